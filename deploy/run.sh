@@ -1 +1 @@
-docker run -d -p 8080:8080 --name transaction-app transaction-app
\ No newline at end of file
+docker run -d -p 8080:8080 -v transaction-data:/app/data --name transaction-app transaction-app
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.zhangboyu.transaction.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * 依次以每种线程数运行匹配的基准，结果写入 target/jmh-result-{threads}t.json，便于与历史基线对比。
+ * 参数：[基准类正则] [线程数列表] [数据量列表] [fork JVM 参数]
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*Benchmark";
+        int[] threads = Arrays.stream((args.length > 1 ? args[1] : "1,4,16,64").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        String[] datasets = (args.length > 2 ? args[2] : "10000,1000000,10000000").split(",");
+        String[] jvmArgs = (args.length > 3 ? args[3] : "-Xms4g -Xmx16g").trim().split("\\s+");
+
+        for (int thread : threads) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(thread)
+                    .jvmArgsAppend(jvmArgs)
+                    .param("datasetSize", datasets)
+                    .result("target/jmh-result-" + thread + "t.json")
+                    .resultFormat(ResultFormatType.JSON);
+            new Runner(options.build()).run();
+        }
+    }
+}
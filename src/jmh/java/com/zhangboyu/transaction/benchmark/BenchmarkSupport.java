@@ -0,0 +1,72 @@
+package com.zhangboyu.transaction.benchmark;
+
+import com.zhangboyu.transaction.TransactionApplication;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.service.iface.TransactionService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 基准测试公共工具：以非 Web 方式启动完整的 Spring 容器，保证被测对象与线上装配方式一致。
+ */
+public final class BenchmarkSupport {
+    // 所有基准数据的创建时间从该时间点开始按序号递增
+    public static final long BASE_TIME = 1_700_000_000_000L;
+
+    private BenchmarkSupport() {
+    }
+
+    public static ConfigurableApplicationContext startContext(String... properties) {
+        // 以命令行参数传入，优先级高于 application.properties（builder 的 properties 只是默认值，会被配置文件覆盖）
+        List<String> args = new ArrayList<>(List.of("--logging.level.root=WARN", "--logging.file.name=",
+                // 默认只测内存路径，-Dbenchmark.wal=true 时带上日志落盘
+                "--transaction.wal.enabled=" + System.getProperty("benchmark.wal", "false"),
+                "--transaction.wal.dir=target/benchmark-wal/" + UUID.randomUUID(),
+                "--transaction.snapshot.enabled=false",
+                "--transaction.id.high-water-file="));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(TransactionApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args.toArray(new String[0]));
+    }
+
+    public static String serialNumber(long i) {
+        return "SN" + i;
+    }
+
+    public static Transaction newTransaction(long i) {
+        Transaction transaction = new Transaction();
+        transaction.setFromAccountId(i % 10_000);
+        transaction.setToAccountId((i * 31) % 10_000);
+        transaction.setAmount(100L + i % 1000);
+        transaction.setCurrency("CNY");
+        transaction.setRemark("benchmark");
+        transaction.setType((int) (i % 4));
+        transaction.setStatus((int) (i % 3));
+        transaction.setCreateTime(new Date(BASE_TIME + i));
+        transaction.setCreator(1L);
+        transaction.setUpdateTime(new Date(BASE_TIME + i));
+        transaction.setUpdater(1L);
+        return transaction;
+    }
+
+    /**
+     * 预置 size 条交易，返回下标到交易号的映射。
+     */
+    public static String[] populate(TransactionService transactionService, int size) {
+        String[] transactionNos = new String[size];
+        for (int i = 0; i < size; i++) {
+            transactionNos[i] = transactionService.createTransaction(serialNumber(i), newTransaction(i));
+        }
+        return transactionNos;
+    }
+}
@@ -0,0 +1,52 @@
+package com.zhangboyu.transaction.benchmark;
+
+import com.zhangboyu.transaction.entity.Cursor;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.service.iface.TransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分页游标编解码基准，每次分页请求都会各执行一次。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CursorBenchmark {
+    private ConfigurableApplicationContext context;
+
+    private TransactionService transactionService;
+
+    private Transaction lastItem;
+
+    private String encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startContext();
+        transactionService = context.getBean(TransactionService.class);
+        lastItem = BenchmarkSupport.newTransaction(123_456);
+        lastItem.setTransactionNo("1234567");
+        encoded = transactionService.encodeCursor(lastItem);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String encodeCursor() {
+        return transactionService.encodeCursor(lastItem);
+    }
+
+    @Benchmark
+    public Cursor decodeCursor() {
+        return transactionService.decodeCursor(encoded);
+    }
+}
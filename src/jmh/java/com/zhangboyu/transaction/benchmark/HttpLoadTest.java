@@ -0,0 +1,308 @@
+package com.zhangboyu.transaction.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP 并发连接压测：每条连接由一个虚拟线程维持 keep-alive，按比例发送创建和列表请求，统计吞吐与延迟分位数。
+ * 用于对比 spring.threads.virtual.enabled 开启和关闭两种模式，被测服务需单独启动：
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec@loadtest -Dloadtest.url=http://localhost:8080 -Dloadtest.connections=10000
+ * </pre>
+ * 参数依次为：服务地址、并发连接数、压测秒数、写请求比例。
+ */
+public final class HttpLoadTest {
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+
+    private final String host;
+
+    private final int port;
+
+    private final double writeRatio;
+
+    // 每次运行使用不同的流水号前缀，避免与上一轮数据重复
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong serialSequence = new AtomicLong();
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder connectFailures = new LongAdder();
+
+    private volatile boolean recording;
+
+    private HttpLoadTest(URI uri, double writeRatio) {
+        this.host = uri.getHost();
+        this.port = uri.getPort() < 0 ? 80 : uri.getPort();
+        this.writeRatio = writeRatio;
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(args.length > 0 ? args[0] : "http://localhost:8080");
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        double writeRatio = args.length > 3 ? Double.parseDouble(args[3]) : 0.5;
+        new HttpLoadTest(uri, writeRatio).run(connections, seconds);
+    }
+
+    private void run(int connections, int seconds) throws InterruptedException {
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch start = new CountDownLatch(1);
+        long connectBegin = System.nanoTime();
+        long elapsedNanos;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                executor.submit(() -> connection(connected, start));
+            }
+            connected.await();
+            System.out.printf("connections:%d, connect cost:%dms, connect failures:%d%n", connections,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectBegin), connectFailures.sum());
+            recording = true;
+            long begin = System.nanoTime();
+            start.countDown();
+            TimeUnit.SECONDS.sleep(seconds);
+            recording = false;
+            elapsedNanos = System.nanoTime() - begin;
+            executor.shutdownNow();
+        }
+        double elapsedSeconds = elapsedNanos / 1e9;
+        long total = succeeded.sum() + failed.sum();
+        System.out.printf("requests:%d, failed:%d, throughput:%.0f req/s%n", total, failed.sum(), total / elapsedSeconds);
+        System.out.printf("latency(ms) p50:%.1f p90:%.1f p99:%.1f p999:%.1f max:%.1f%n",
+                histogram.percentile(0.5) / 1000.0, histogram.percentile(0.9) / 1000.0,
+                histogram.percentile(0.99) / 1000.0, histogram.percentile(0.999) / 1000.0, histogram.max() / 1000.0);
+    }
+
+    private void connection(CountDownLatch connected, CountDownLatch start) {
+        Socket socket = connect();
+        connected.countDown();
+        try {
+            start.await();
+            InputStream in = null;
+            while (!Thread.currentThread().isInterrupted()) {
+                if (socket == null) {
+                    socket = connect();
+                    in = null;
+                    continue;
+                }
+                if (in == null) {
+                    in = new BufferedInputStream(socket.getInputStream(), 8192);
+                }
+                if (!exchange(socket, in)) {
+                    socket.close();
+                    socket = null;
+                }
+            }
+        } catch (InterruptedException | IOException e) {
+            // 压测结束
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private Socket connect() {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            return socket;
+        } catch (IOException e) {
+            connectFailures.increment();
+            closeQuietly(socket);
+            return null;
+        }
+    }
+
+    /**
+     * 发送一个请求并读取完整响应，返回连接是否可继续复用。
+     */
+    private boolean exchange(Socket socket, InputStream in) {
+        byte[] request = ThreadLocalRandom.current().nextDouble() < writeRatio ? createRequest() : listRequest();
+        long begin = System.nanoTime();
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write(request);
+            out.flush();
+            Response response = readResponse(in);
+            if (recording) {
+                histogram.record((System.nanoTime() - begin) / 1000);
+                if (response.status() / 100 == 2) {
+                    succeeded.increment();
+                } else {
+                    failed.increment();
+                }
+            }
+            return response.keepAlive();
+        } catch (IOException e) {
+            if (recording) {
+                failed.increment();
+            }
+            return false;
+        }
+    }
+
+    private byte[] createRequest() {
+        long i = serialSequence.incrementAndGet();
+        String body = String.format("{\"fromAccountId\":%d,\"toAccountId\":%d,\"amount\":100,\"currency\":\"CNY\",\"status\":1,"
+                + "\"type\":1,\"creator\":1,\"updater\":1,\"serialNumber\":\"LT%s-%d\"}", i % 10_000, (i * 31) % 10_000, runId, i);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String head = "POST /api/v1/transactions HTTP/1.1\r\nHost: " + host + "\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + bytes.length + "\r\n\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.US_ASCII);
+        byte[] request = new byte[headBytes.length + bytes.length];
+        System.arraycopy(headBytes, 0, request, 0, headBytes.length);
+        System.arraycopy(bytes, 0, request, headBytes.length, bytes.length);
+        return request;
+    }
+
+    private byte[] listRequest() {
+        return ("GET /api/v1/transactions?pageSize=20 HTTP/1.1\r\nHost: " + host + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private record Response(int status, boolean keepAlive) {
+    }
+
+    /**
+     * 解析 HTTP/1.1 响应，支持 Content-Length 和 chunked 两种响应体，响应体内容直接丢弃。
+     * 每个请求只发一个、读完整个响应再发下一个，缓冲流不会读到下一个响应的数据。
+     */
+    private static Response readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        int status = Integer.parseInt(statusLine.substring(9, 12));
+        long contentLength = -1;
+        boolean chunked = false;
+        boolean keepAlive = true;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            String lower = line.toLowerCase();
+            if (lower.startsWith("content-length:")) {
+                contentLength = Long.parseLong(lower.substring(15).trim());
+            } else if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) {
+                chunked = true;
+            } else if (lower.startsWith("connection:") && lower.contains("close")) {
+                keepAlive = false;
+            }
+        }
+        if (chunked) {
+            long size;
+            while ((size = Long.parseLong(readLine(in).split(";")[0].trim(), 16)) > 0) {
+                skip(in, size + 2);
+            }
+            // 结尾的空行（不支持 trailer）
+            readLine(in);
+        } else if (contentLength > 0) {
+            skip(in, contentLength);
+        }
+        return new Response(status, keepAlive);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("connection closed");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void skip(InputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("connection closed");
+                }
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * 对数分桶的延迟直方图（微秒）：每个 2 的幂区间再等分 16 份，相对误差不超过 1/16。
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BUCKETS = 16;
+
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long micros) {
+            counts.incrementAndGet(index(micros));
+            max.accumulateAndGet(micros, Math::max);
+        }
+
+        long percentile(double p) {
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                total += counts.get(i);
+            }
+            long target = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= target && seen > 0) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return 0;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) ((value >>> (exponent - 4)) & (SUB_BUCKETS - 1));
+            return (exponent - 3) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + 3;
+            long sub = index % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1) << (exponent - 4)) - 1;
+        }
+    }
+}
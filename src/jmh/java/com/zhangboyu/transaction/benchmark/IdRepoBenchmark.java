@@ -0,0 +1,62 @@
+package com.zhangboyu.transaction.benchmark;
+
+import com.zhangboyu.transaction.repo.IdRepo;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IdRepo.createTransactionNo 基准：新流水号（分配新 ID）与已存在流水号（命中映射）两种路径。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IdRepoBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int datasetSize;
+
+    private ConfigurableApplicationContext context;
+
+    private IdRepo idRepo;
+
+    @State(Scope.Thread)
+    public static class ThreadSerial {
+        private final String prefix = UUID.randomUUID() + "-";
+
+        private long next;
+
+        String nextSerial() {
+            return prefix + next++;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startContext();
+        idRepo = context.getBean(IdRepo.class);
+        for (int i = 0; i < datasetSize; i++) {
+            idRepo.createTransactionNo(BenchmarkSupport.serialNumber(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String createTransactionNo_new(ThreadSerial threadSerial) {
+        return idRepo.createTransactionNo(threadSerial.nextSerial());
+    }
+
+    @Benchmark
+    public String createTransactionNo_existing() {
+        return idRepo.createTransactionNo(BenchmarkSupport.serialNumber(ThreadLocalRandom.current().nextInt(datasetSize)));
+    }
+}
@@ -0,0 +1,77 @@
+package com.zhangboyu.transaction.benchmark;
+
+import com.zhangboyu.transaction.entity.Cursor;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.service.iface.TransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 读写混合基准：readPercent 为分页查询占比，其余写操作按 创建:更新:删除 = 10:5:2 分配（与压测报告的混合比例一致）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MixedWorkloadBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int datasetSize;
+
+    @Param({"50", "83", "99"})
+    public int readPercent;
+
+    private ConfigurableApplicationContext context;
+
+    private TransactionService transactionService;
+
+    private String[] transactionNos;
+
+    private final AtomicLong serialSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startContext();
+        transactionService = context.getBean(TransactionService.class);
+        transactionNos = BenchmarkSupport.populate(transactionService, datasetSize);
+        serialSequence.set(datasetSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void mixed(Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(datasetSize);
+        if (random.nextInt(100) < readPercent) {
+            blackhole.consume(transactionService.listAllTransaction(new Cursor(BenchmarkSupport.BASE_TIME + i, ""), 20));
+            return;
+        }
+        int write = random.nextInt(17);
+        try {
+            if (write < 10) {
+                long serial = serialSequence.getAndIncrement();
+                blackhole.consume(transactionService.createTransaction(BenchmarkSupport.serialNumber(serial), BenchmarkSupport.newTransaction(serial)));
+            } else if (write < 15) {
+                Transaction transaction = BenchmarkSupport.newTransaction(i);
+                transaction.setTransactionNo(transactionNos[i]);
+                transactionService.updateTransaction(transaction);
+            } else {
+                transactionService.deleteTransaction(transactionNos[i]);
+                blackhole.consume(transactionService.createTransaction(BenchmarkSupport.serialNumber(i), BenchmarkSupport.newTransaction(i)));
+            }
+        } catch (TransactionException e) {
+            blackhole.consume(e);
+        }
+    }
+}
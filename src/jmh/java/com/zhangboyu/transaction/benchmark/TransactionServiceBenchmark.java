@@ -0,0 +1,141 @@
+package com.zhangboyu.transaction.benchmark;
+
+import com.zhangboyu.transaction.entity.BatchCreateItem;
+import com.zhangboyu.transaction.entity.Cursor;
+import com.zhangboyu.transaction.entity.CursorPageResult;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.entity.TransactionQuery;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.service.iface.TransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TransactionService 单接口基准，线程数由 BenchmarkRunner 依次设置为 1/4/16/64。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransactionServiceBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int datasetSize;
+
+    @Param({"20"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext context;
+
+    private TransactionService transactionService;
+
+    private String[] transactionNos;
+
+    private final AtomicLong serialSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startContext();
+        transactionService = context.getBean(TransactionService.class);
+        transactionNos = BenchmarkSupport.populate(transactionService, datasetSize);
+        serialSequence.set(datasetSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String createTransaction() {
+        long i = serialSequence.getAndIncrement();
+        return transactionService.createTransaction(BenchmarkSupport.serialNumber(i), BenchmarkSupport.newTransaction(i));
+    }
+
+    /**
+     * 每次调用批量创建 BATCH_SIZE 条，结果按单条折算，可与 createTransaction 直接对比。
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int createTransactions() {
+        long first = serialSequence.getAndAdd(BATCH_SIZE);
+        List<BatchCreateItem> items = new ArrayList<>(BATCH_SIZE);
+        for (long i = first; i < first + BATCH_SIZE; i++) {
+            items.add(new BatchCreateItem(BenchmarkSupport.serialNumber(i), BenchmarkSupport.newTransaction(i)));
+        }
+        return transactionService.createTransactions(items);
+    }
+
+    @Benchmark
+    public Transaction updateTransaction() {
+        int i = ThreadLocalRandom.current().nextInt(datasetSize);
+        Transaction transaction = BenchmarkSupport.newTransaction(i);
+        transaction.setTransactionNo(transactionNos[i]);
+        transaction.setRemark("updated");
+        try {
+            transactionService.updateTransaction(transaction);
+        } catch (TransactionException e) {
+            // 并发删除基准中的短暂缺失，不计为失败
+        }
+        return transaction;
+    }
+
+    /**
+     * 删除后用同一流水号重建，保持数据量稳定；单独的删除开销约为本项减去 createTransaction。
+     */
+    @Benchmark
+    public String deleteTransaction() {
+        int i = ThreadLocalRandom.current().nextInt(datasetSize);
+        try {
+            transactionService.deleteTransaction(transactionNos[i]);
+            return transactionService.createTransaction(BenchmarkSupport.serialNumber(i), BenchmarkSupport.newTransaction(i));
+        } catch (TransactionException e) {
+            // 多线程命中同一条交易
+            return null;
+        }
+    }
+
+    @Benchmark
+    public CursorPageResult<Transaction> listAllTransaction() {
+        int i = ThreadLocalRandom.current().nextInt(datasetSize);
+        return transactionService.listAllTransaction(new Cursor(BenchmarkSupport.BASE_TIME + i, ""), pageSize);
+    }
+
+    /**
+     * 过滤查询：类型、状态各命中 1/4、1/3，由类型索引驱动、探测状态索引，金额条件在主表记录上校验。
+     */
+    @Benchmark
+    public CursorPageResult<Transaction> queryTransactions_Selective() {
+        int i = ThreadLocalRandom.current().nextInt(datasetSize);
+        TransactionQuery query = new TransactionQuery();
+        query.setStartTime(BenchmarkSupport.BASE_TIME + i);
+        query.setStatus(2);
+        query.setType(3);
+        query.setMinAmount(900L);
+        return transactionService.queryTransactions(query, null, pageSize);
+    }
+
+    /**
+     * 重复提交已有流水号：一次流水号查询 + 一次主表查询即返回。
+     */
+    @Benchmark
+    public boolean createTransactionIfAbsent_Duplicate() {
+        int i = ThreadLocalRandom.current().nextInt(datasetSize);
+        return transactionService.createTransactionIfAbsent(BenchmarkSupport.serialNumber(i), BenchmarkSupport.newTransaction(i));
+    }
+
+    @Benchmark
+    public boolean existBySerialNo() {
+        int i = ThreadLocalRandom.current().nextInt(datasetSize);
+        return transactionService.existBySerialNo(BenchmarkSupport.serialNumber(i));
+    }
+}
@@ -0,0 +1,145 @@
+package com.zhangboyu.transaction.cluster;
+
+import com.zhangboyu.transaction.dto.response.BaseResponse;
+import com.zhangboyu.transaction.entity.BatchCreateItem;
+import com.zhangboyu.transaction.entity.CursorPageResult;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.exception.TransactionException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.NODE_UNAVAILABLE_EXCEPTION;
+
+/**
+ * 调用其他节点的内部接口（/internal/v1/transactions），对端直接操作本地数据、不再转发。
+ * 对端返回的业务错误按原错误码抛出；连接失败、超时抛出节点不可用异常。
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.cluster.enabled", havingValue = "true")
+@Slf4j
+public class ClusterClient {
+    private static final String BASE_PATH = "/internal/v1/transactions";
+
+    private final ClusterNodes nodes;
+
+    private final RestClient restClient;
+
+    // 分散查询时并发调用各节点，远程调用大部分时间在等待响应
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public ClusterClient(ClusterNodes nodes, RestClient.Builder builder,
+                         @Value("${transaction.cluster.timeout-ms:2000}") long timeoutMillis) {
+        this.nodes = nodes;
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(timeoutMillis)).build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(timeoutMillis));
+        this.restClient = builder.requestFactory(requestFactory).build();
+    }
+
+    public CreateResult create(String nodeId, String serialNumber, Transaction transaction) {
+        return call(nodeId, HttpMethod.POST, BASE_PATH + "?serialNumber={serialNumber}", transaction,
+                new ParameterizedTypeReference<>() {
+                }, serialNumber);
+    }
+
+    public List<BatchCreateItem> createBatch(String nodeId, List<BatchCreateItem> items) {
+        return call(nodeId, HttpMethod.POST, BASE_PATH + "/batch", items, new ParameterizedTypeReference<>() {
+        });
+    }
+
+    public void update(String nodeId, Transaction transaction) {
+        call(nodeId, HttpMethod.PUT, BASE_PATH, transaction, new ParameterizedTypeReference<BaseResponse<Void>>() {
+        });
+    }
+
+    public Transaction get(String nodeId, String transactionNo) {
+        return call(nodeId, HttpMethod.GET, BASE_PATH + "/{transactionNo}", null, new ParameterizedTypeReference<>() {
+        }, transactionNo);
+    }
+
+    public void delete(String nodeId, String transactionNo) {
+        call(nodeId, HttpMethod.DELETE, BASE_PATH + "/{transactionNo}", null, new ParameterizedTypeReference<BaseResponse<Void>>() {
+        }, transactionNo);
+    }
+
+    public CursorPageResult<Transaction> page(String nodeId, ClusterPageRequest request) {
+        return call(nodeId, HttpMethod.POST, BASE_PATH + "/page", request, new ParameterizedTypeReference<>() {
+        });
+    }
+
+    public String createTransactionNo(String nodeId, String serialNumber) {
+        return call(nodeId, HttpMethod.POST, BASE_PATH + "/numbers?serialNumber={serialNumber}", null,
+                new ParameterizedTypeReference<>() {
+                }, serialNumber);
+    }
+
+    public boolean existBySerialNo(String nodeId, String serialNumber) {
+        return Boolean.TRUE.equals(call(nodeId, HttpMethod.GET, BASE_PATH + "/exists?serialNumber={serialNumber}", null,
+                new ParameterizedTypeReference<BaseResponse<Boolean>>() {
+                }, serialNumber));
+    }
+
+    public boolean existByTransactionNo(String nodeId, String transactionNo) {
+        return Boolean.TRUE.equals(call(nodeId, HttpMethod.GET, BASE_PATH + "/exists?transactionNo={transactionNo}", null,
+                new ParameterizedTypeReference<BaseResponse<Boolean>>() {
+                }, transactionNo));
+    }
+
+    /**
+     * 在调用线程池中异步执行一次远程调用。
+     */
+    public <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, executor);
+    }
+
+    private <T> T call(String nodeId, HttpMethod method, String path, Object body,
+                       ParameterizedTypeReference<BaseResponse<T>> type, Object... uriVariables) {
+        BaseResponse<T> response;
+        try {
+            RestClient.RequestBodySpec request = restClient.method(method).uri(nodes.address(nodeId) + path, uriVariables);
+            if (body != null) {
+                request.contentType(MediaType.APPLICATION_JSON).body(body);
+            }
+            // 错误响应体同样是 {code, message}，统一按错误码处理
+            response = request.retrieve()
+                    .onStatus(HttpStatusCode::isError, (req, res) -> {
+                    })
+                    .body(type);
+        } catch (RestClientException e) {
+            log.warn("call cluster node failed, node:{}, path:{}, error:{}", nodeId, path, e.getMessage());
+            throw new TransactionException(NODE_UNAVAILABLE_EXCEPTION);
+        }
+        if (response == null) {
+            throw new TransactionException(NODE_UNAVAILABLE_EXCEPTION);
+        }
+        if (response.getCode() != 200) {
+            throw new TransactionException(response.getCode(), response.getMessage());
+        }
+        return response.getData();
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,73 @@
+package com.zhangboyu.transaction.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 集群成员：静态配置的节点列表（节点ID -> 地址）与本节点ID，交易号和流水号都按同一个哈希环确定所属节点。
+ * 成员变化会改变部分交易号的归属，需要先迁移数据，不支持在线增减节点。
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.cluster.enabled", havingValue = "true")
+@Slf4j
+public class ClusterNodes {
+    private final String self;
+
+    private final Map<String, String> addresses;
+
+    private final HashRing ring;
+
+    @Autowired
+    public ClusterNodes(@Value("${transaction.cluster.node-id:}") String self,
+                        @Value("${transaction.cluster.nodes:}") String nodes,
+                        @Value("${transaction.cluster.virtual-nodes:128}") int virtualNodes) {
+        Map<String, String> addresses = new LinkedHashMap<>();
+        for (String node : StringUtils.commaDelimitedListToStringArray(nodes)) {
+            String[] parts = node.trim().split("=", 2);
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalArgumentException("transaction.cluster.nodes must be nodeId=address pairs, got:" + node);
+            }
+            // 去掉末尾的 /，转发时直接拼接路径
+            addresses.put(parts[0].trim(), parts[1].trim().replaceAll("/+$", ""));
+        }
+        if (!addresses.containsKey(self)) {
+            throw new IllegalArgumentException("transaction.cluster.node-id must be one of transaction.cluster.nodes, nodeId:" + self);
+        }
+        this.self = self;
+        this.addresses = Collections.unmodifiableMap(addresses);
+        this.ring = new HashRing(addresses.keySet(), virtualNodes);
+        log.info("cluster node:{}, nodes:{}", self, addresses);
+    }
+
+    public String self() {
+        return self;
+    }
+
+    /**
+     * 键（交易号或流水号）所属的节点ID。
+     */
+    public String owner(String key) {
+        return ring.owner(key);
+    }
+
+    public boolean isLocal(String key) {
+        return self.equals(ring.owner(key));
+    }
+
+    public String address(String nodeId) {
+        return addresses.get(nodeId);
+    }
+
+    public Set<String> nodeIds() {
+        return addresses.keySet();
+    }
+}
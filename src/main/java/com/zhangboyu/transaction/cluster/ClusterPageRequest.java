@@ -0,0 +1,9 @@
+package com.zhangboyu.transaction.cluster;
+
+import com.zhangboyu.transaction.entity.TransactionQuery;
+
+/**
+ * 节点间分页请求：从游标 (cursorTime, cursorNo) 之后读取本节点满足条件的前 pageSize 条，读取最新数据。
+ */
+public record ClusterPageRequest(TransactionQuery query, long cursorTime, String cursorNo, int pageSize) {
+}
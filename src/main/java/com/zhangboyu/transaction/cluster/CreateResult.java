@@ -0,0 +1,7 @@
+package com.zhangboyu.transaction.cluster;
+
+/**
+ * 节点间创建结果：交易号，以及是否为本次新建（false 表示流水号对应的交易已存在）。
+ */
+public record CreateResult(String transactionNo, boolean created) {
+}
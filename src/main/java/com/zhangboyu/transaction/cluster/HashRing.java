@@ -0,0 +1,64 @@
+package com.zhangboyu.transaction.cluster;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希环：每个节点在环上放置若干虚拟节点，键归属于顺时针方向遇到的第一个虚拟节点。
+ * 哈希只依赖字符串内容，各节点按同一份节点列表独立计算得到相同的归属，无需协调；
+ * 增减一个节点只会改变相邻区间的归属。
+ */
+public class HashRing {
+    // 环上的位置（升序）及其所属节点
+    private final long[] points;
+
+    private final String[] owners;
+
+    public HashRing(Collection<String> nodeIds, int virtualNodes) {
+        if (nodeIds.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("hash ring needs at least one node and one virtual node");
+        }
+        TreeMap<Long, String> ring = new TreeMap<>();
+        // 按节点ID排序后放置，位置冲突时各节点保留的都是同一个
+        for (String nodeId : nodeIds.stream().sorted().toList()) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(nodeId + "#" + i), nodeId);
+            }
+        }
+        this.points = new long[ring.size()];
+        this.owners = new String[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> point : ring.entrySet()) {
+            points[i] = point.getKey();
+            owners[i] = point.getValue();
+            i++;
+        }
+    }
+
+    public String owner(String key) {
+        int i = Arrays.binarySearch(points, hash(key));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == points.length ? 0 : i];
+    }
+
+    /**
+     * FNV-1a 64 位哈希，再做一次 murmur3 的末尾混合，使相邻的交易号在环上均匀分散。
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,60 @@
+package com.zhangboyu.transaction.controller;
+
+import com.zhangboyu.transaction.dto.response.BaseResponse;
+import com.zhangboyu.transaction.entity.AccountFlow;
+import com.zhangboyu.transaction.entity.CurrencyTotal;
+import com.zhangboyu.transaction.entity.DailyCounts;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.service.TransactionAggregates;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.ARGUMENT_EXCEPTION;
+
+/**
+ * 只读汇总接口，直接读取增量维护的汇总值，不遍历交易数据。
+ */
+@RestController
+@RequestMapping("/api/v1/aggregates")
+public class AggregateController {
+    @Autowired
+    private TransactionAggregates transactionAggregates;
+
+    /**
+     * 账户在各币种下的转入、转出与净流入，指定 currency 时只返回该币种。
+     */
+    @GetMapping("/accounts/{accountId}")
+    public BaseResponse<List<AccountFlow>> getAccountFlows(@PathVariable long accountId,
+                                                           @RequestParam(required = false) String currency) {
+        BaseResponse<List<AccountFlow>> response = new BaseResponse<>();
+        response.setData(transactionAggregates.accountFlows(accountId, currency));
+        return response;
+    }
+
+    @GetMapping("/currencies")
+    public BaseResponse<List<CurrencyTotal>> getCurrencyTotals() {
+        BaseResponse<List<CurrencyTotal>> response = new BaseResponse<>();
+        response.setData(transactionAggregates.currencyTotals());
+        return response;
+    }
+
+    /**
+     * 某天创建的交易按状态、类型分组的笔数，date 为 yyyy-MM-dd。
+     */
+    @GetMapping("/days/{date}")
+    public BaseResponse<DailyCounts> getDailyCounts(@PathVariable String date) {
+        LocalDate day;
+        try {
+            day = LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        BaseResponse<DailyCounts> response = new BaseResponse<>();
+        response.setData(transactionAggregates.dailyCounts(day));
+        return response;
+    }
+}
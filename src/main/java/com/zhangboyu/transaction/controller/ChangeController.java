@@ -0,0 +1,113 @@
+package com.zhangboyu.transaction.controller;
+
+import com.zhangboyu.transaction.converter.TransactionConverter;
+import com.zhangboyu.transaction.dto.dto.ChangeEventDTO;
+import com.zhangboyu.transaction.dto.response.BaseResponse;
+import com.zhangboyu.transaction.dto.response.ChangeData;
+import com.zhangboyu.transaction.entity.ChangeBatch;
+import com.zhangboyu.transaction.entity.ChangeEvent;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.service.ChangeLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.ARGUMENT_EXCEPTION;
+
+/**
+ * 交易变更流：按序号推送创建、更新、删除事件，消费方记下最后处理的序号，断开后从该序号之后续读。
+ * 不传序号时从当前最新序号开始，只接收之后的变更。序号过期（落后超过缓冲容量或服务重启）时需重新全量同步。
+ * <p>
+ * 等待新变更期间不占用请求线程，由定时器按轮询间隔检查缓冲。
+ */
+@RestController
+@RequestMapping("/api/v1/changes")
+public class ChangeController {
+    private static final String EXPIRED_EVENT = "expired";
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private TransactionConverter transactionConverter;
+
+    @Value("${transaction.cdc.poll-interval-ms:20}")
+    private long pollIntervalMillis;
+
+    @Value("${transaction.cdc.max-wait-ms:30000}")
+    private long maxWaitMillis;
+
+    @Value("${transaction.cdc.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    /**
+     * 长轮询：返回序号大于 after 的变更，最多 limit 条；暂无变更时最多等待 waitMs 毫秒，超时返回空列表。
+     * 下次请求以返回的 lastSequence 作为 after。
+     */
+    @GetMapping
+    public Mono<BaseResponse<ChangeData>> pollChanges(@RequestParam(required = false) Long after,
+                                                      @RequestParam(defaultValue = "100") int limit,
+                                                      @RequestParam(defaultValue = "0") long waitMs) {
+        if (limit <= 0 || limit > maxBatchSize || waitMs < 0) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        long start = after == null ? changeLog.latestSequence() : after;
+        ChangeBatch batch = changeLog.read(start, limit);
+        if (!batch.getEvents().isEmpty() || waitMs == 0) {
+            return Mono.just(toResponse(batch));
+        }
+        return Flux.interval(Duration.ofMillis(pollIntervalMillis))
+                .onBackpressureDrop()
+                .map(tick -> changeLog.read(start, limit))
+                .filter(next -> !next.getEvents().isEmpty())
+                .next()
+                .timeout(Duration.ofMillis(Math.min(waitMs, maxWaitMillis)), Mono.fromCallable(() -> changeLog.read(start, limit)))
+                .map(this::toResponse);
+    }
+
+    /**
+     * SSE 推送：事件 id 为变更序号，event 为变更类型。断线重连时浏览器携带的 Last-Event-ID 优先于 after。
+     * 序号过期时推送一个 expired 事件后结束。
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ChangeEventDTO>> streamChanges(
+            @RequestParam(required = false) Long after,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Long resume = lastEventId != null ? lastEventId : after;
+        long start = resume == null ? changeLog.latestSequence() : resume;
+        // 参数错误在开始推送前返回
+        changeLog.read(start, 0);
+        AtomicLong position = new AtomicLong(start);
+        // 每个时钟周期读一批，当前批推送完且下游仍有需求时才读下一批
+        return Flux.interval(Duration.ZERO, Duration.ofMillis(pollIntervalMillis))
+                .onBackpressureDrop()
+                .concatMapIterable(tick -> {
+                    ChangeBatch batch = changeLog.read(position.get(), maxBatchSize);
+                    position.set(batch.getLastSequence());
+                    return batch.getEvents();
+                }, 1)
+                .map(this::toServerSentEvent)
+                .onErrorResume(TransactionException.class,
+                        e -> Mono.just(ServerSentEvent.<ChangeEventDTO>builder().event(EXPIRED_EVENT).build()));
+    }
+
+    private BaseResponse<ChangeData> toResponse(ChangeBatch batch) {
+        BaseResponse<ChangeData> response = new BaseResponse<>();
+        response.setData(transactionConverter.toChangeData(batch));
+        return response;
+    }
+
+    private ServerSentEvent<ChangeEventDTO> toServerSentEvent(ChangeEvent event) {
+        return ServerSentEvent.builder(transactionConverter.toChangeEventDTO(event))
+                .id(Long.toString(event.getSequence()))
+                .event(event.getType().name())
+                .build();
+    }
+}
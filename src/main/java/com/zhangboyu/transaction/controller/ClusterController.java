@@ -0,0 +1,83 @@
+package com.zhangboyu.transaction.controller;
+
+import com.zhangboyu.transaction.cluster.ClusterPageRequest;
+import com.zhangboyu.transaction.cluster.CreateResult;
+import com.zhangboyu.transaction.dto.response.BaseResponse;
+import com.zhangboyu.transaction.entity.BatchCreateItem;
+import com.zhangboyu.transaction.entity.CursorPageResult;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.service.ClusterTransactionService;
+import com.zhangboyu.transaction.service.TransactionServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 集群节点间的内部接口：由其他节点转发而来，只操作本节点数据、不再转发。
+ * 入参已在转发方校验，这里不重复校验；这些接口只应在集群内网开放。
+ */
+@RestController
+@RequestMapping("/internal/v1/transactions")
+@ConditionalOnProperty(name = "transaction.cluster.enabled", havingValue = "true")
+public class ClusterController {
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private ClusterTransactionService clusterTransactionService;
+
+    @PostMapping
+    public BaseResponse<CreateResult> createTransaction(@RequestParam String serialNumber, @RequestBody Transaction transaction) {
+        boolean created = transactionService.createTransactionIfAbsent(serialNumber, transaction);
+        return response(new CreateResult(transaction.getTransactionNo(), created));
+    }
+
+    @PostMapping("/batch")
+    public BaseResponse<List<BatchCreateItem>> createTransactions(@RequestBody List<BatchCreateItem> items) {
+        transactionService.createTransactions(items);
+        return response(items);
+    }
+
+    @PutMapping
+    public BaseResponse<Void> updateTransaction(@RequestBody Transaction transaction) {
+        transactionService.updateTransaction(transaction);
+        return response(null);
+    }
+
+    @GetMapping("/{transactionNo}")
+    public BaseResponse<Transaction> getTransaction(@PathVariable String transactionNo) {
+        return response(transactionService.getTransaction(transactionNo));
+    }
+
+    @DeleteMapping("/{transactionNo}")
+    public BaseResponse<Void> deleteTransaction(@PathVariable String transactionNo) {
+        transactionService.deleteTransaction(transactionNo);
+        return response(null);
+    }
+
+    @PostMapping("/page")
+    public BaseResponse<CursorPageResult<Transaction>> page(@RequestBody ClusterPageRequest request) {
+        return response(clusterTransactionService.localPage(request));
+    }
+
+    @PostMapping("/numbers")
+    public BaseResponse<String> createTransactionNo(@RequestParam String serialNumber) {
+        return response(transactionService.createTransactionNo(serialNumber));
+    }
+
+    @GetMapping("/exists")
+    public BaseResponse<Boolean> exists(@RequestParam(required = false) String serialNumber,
+                                        @RequestParam(required = false) String transactionNo) {
+        return response(serialNumber != null
+                ? transactionService.existBySerialNo(serialNumber)
+                : transactionService.existByTransactionNo(transactionNo));
+    }
+
+    private static <T> BaseResponse<T> response(T data) {
+        BaseResponse<T> response = new BaseResponse<>();
+        response.setData(data);
+        return response;
+    }
+}
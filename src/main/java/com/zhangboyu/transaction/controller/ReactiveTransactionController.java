@@ -0,0 +1,104 @@
+package com.zhangboyu.transaction.controller;
+
+import com.zhangboyu.transaction.converter.TransactionConverter;
+import com.zhangboyu.transaction.dto.dto.ExportRowDTO;
+import com.zhangboyu.transaction.dto.dto.TransactionDTO;
+import com.zhangboyu.transaction.entity.Cursor;
+import com.zhangboyu.transaction.entity.CursorPageResult;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.service.iface.TransactionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * 响应式查询接口：列表和导出都返回 Flux，以 NDJSON 或 SSE 逐条推送。
+ * <p>
+ * Spring MVC 对流式媒体类型的 Flux 每写完一条才向上游请求下一条，数据按客户端的消费速度从索引中读取：
+ * 慢客户端不会让服务端堆积整页或整表的数据，等待期间也不占用线程。
+ * 列表与导出的一致性同 {@link TransactionController}。
+ */
+@RestController
+@RequestMapping("/api/v1/reactive/transactions")
+@ConditionalOnProperty(name = "transaction.reactive.enabled", havingValue = "true")
+@Slf4j
+public class ReactiveTransactionController {
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private TransactionConverter transactionConverter;
+
+    @Value("${transaction.reactive.page-size:100}")
+    private int pageSize;
+
+    /**
+     * 从游标开始按时间顺序推送全部交易，指定 accountId 时只推送该账户的交易。
+     * 内部按页读取，当前页推送完且下游仍有需求时才读下一页，每个订阅最多缓存一页。
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TransactionDTO> listTransactions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Long accountId) {
+        Cursor start = transactionService.decodeCursor(cursor);
+        return Flux.<TransactionDTO, PageState>generate(() -> new PageState(start), (state, sink) -> {
+                    // 当前页取完才读下一页
+                    while (!state.items.hasNext()) {
+                        if (state.last) {
+                            sink.complete();
+                            return state;
+                        }
+                        CursorPageResult<Transaction> page = accountId == null
+                                ? transactionService.listAllTransaction(state.cursor, pageSize)
+                                : transactionService.listTransactionByAccount(accountId, state.cursor, pageSize);
+                        state.items = page.getItems().iterator();
+                        state.last = !page.isHasNext();
+                        if (!page.getItems().isEmpty()) {
+                            Transaction lastItem = page.getItems().getLast();
+                            // 沿用首页固定的读版本，整个推送过程读取同一个快照
+                            state.cursor = new Cursor(lastItem.getCreateTime().getTime(), lastItem.getTransactionNo(), page.getReadVersion());
+                        }
+                    }
+                    sink.next(transactionConverter.toTransactionDTO(state.items.next()));
+                    return state;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // 单个订阅的翻页状态，只由 generate 回调串行访问
+    private static final class PageState {
+        private Cursor cursor;
+
+        private Iterator<Transaction> items = Collections.emptyIterator();
+
+        private boolean last;
+
+        private PageState(Cursor cursor) {
+            this.cursor = cursor;
+        }
+    }
+
+    /**
+     * 流式导出，参数同 {@link TransactionController#exportTransactions}；参数错误在开始推送前返回。
+     */
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<ExportRowDTO> exportTransactions(
+            @RequestParam(required = false) Long startTime,
+            @RequestParam(required = false) Long endTime,
+            @RequestParam(required = false) String cursor) {
+        Iterator<Transaction> transactions = transactionService.exportTransactions(transactionService.decodeCursor(cursor), startTime, endTime);
+        return Flux.fromIterable(() -> transactions)
+                .map(transaction -> new ExportRowDTO(transactionConverter.toTransactionDTO(transaction), transactionService.encodeCursor(transaction)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,102 @@
+package com.zhangboyu.transaction.controller;
+
+import com.zhangboyu.transaction.dto.response.BaseResponse;
+import com.zhangboyu.transaction.dto.response.ReplicationStatusData;
+import com.zhangboyu.transaction.enums.ReplicationRole;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.persistence.SnapshotStore;
+import com.zhangboyu.transaction.replication.ReplicationState;
+import com.zhangboyu.transaction.replication.Replicator;
+import com.zhangboyu.transaction.repo.IdRepo;
+import com.zhangboyu.transaction.service.ChangeLog;
+import com.zhangboyu.transaction.service.TransactionServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.ARGUMENT_EXCEPTION;
+
+/**
+ * 主从复制的内部接口：副本拉取全量快照，运维查看复制状态、提升副本、切换副本跟随的主节点。只应在内网开放。
+ */
+@RestController
+@RequestMapping("/internal/v1/replication")
+@Slf4j
+public class ReplicationController {
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private SnapshotStore snapshotStore;
+
+    @Autowired
+    private IdRepo idRepo;
+
+    @Autowired
+    private ReplicationState replicationState;
+
+    @Autowired
+    private Replicator replicator;
+
+    /**
+     * 全量快照，格式与快照文件相同，文件头中的位置为变更序号，副本从该序号之后续读变更流。
+     * 先取序号再遍历主表：序号之前的变更都已写入主表，遍历期间的新变更由副本重放覆盖。
+     */
+    @GetMapping(value = "/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> snapshot() {
+        long sequence = changeLog.latestSequence();
+        StreamingResponseBody body = out -> {
+            long count = snapshotStore.writeTo(out, sequence, transactionService.records(), idRepo.serialEntries(), idRepo.currentId());
+            log.info("replication snapshot sent, sequence:{}, transactions:{}", sequence, count);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(body);
+    }
+
+    @GetMapping("/status")
+    public BaseResponse<ReplicationStatusData> status() {
+        ReplicationStatusData data = new ReplicationStatusData();
+        data.setRole(replicationState.role().name());
+        if (replicationState.isFollower()) {
+            long lag = replicationState.lagMillis();
+            data.setPrimaryUrl(replicationState.primaryUrl());
+            data.setSequence(replicationState.appliedSequence());
+            data.setLagMillis(lag == Long.MAX_VALUE ? null : lag);
+        } else {
+            data.setSequence(changeLog.latestSequence());
+            data.setLagMillis(0L);
+        }
+        BaseResponse<ReplicationStatusData> response = new BaseResponse<>();
+        response.setData(data);
+        return response;
+    }
+
+    /**
+     * 主节点故障后把副本提升为主节点。原主节点恢复后不能再直接接受写入，需先通过 follow 改为新主节点的副本。
+     */
+    @PostMapping("/promote")
+    public BaseResponse<ReplicationStatusData> promote() {
+        if (replicationState.role() == ReplicationRole.FOLLOWER) {
+            replicator.promote();
+        }
+        return status();
+    }
+
+    /**
+     * 改为跟随 primaryUrl 指定的主节点并重新全量同步，本地与新主节点不一致的数据以新主节点为准。
+     */
+    @PostMapping("/follow")
+    public BaseResponse<ReplicationStatusData> follow(@RequestParam String primaryUrl) {
+        if (!StringUtils.hasText(primaryUrl)) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        replicator.follow(primaryUrl);
+        return status();
+    }
+}
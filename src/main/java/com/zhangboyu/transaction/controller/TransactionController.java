@@ -1,15 +1,27 @@
 package com.zhangboyu.transaction.controller;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.zhangboyu.transaction.converter.TransactionConverter;
+import com.zhangboyu.transaction.dto.dto.ExportRowDTO;
 import com.zhangboyu.transaction.dto.dto.TransactionDTO;
+import com.zhangboyu.transaction.dto.request.TransactionBatchCreateRequest;
 import com.zhangboyu.transaction.dto.request.TransactionCreateRequest;
 import com.zhangboyu.transaction.dto.request.TransactionUpdateRequest;
 import com.zhangboyu.transaction.dto.response.BaseResponse;
 import com.zhangboyu.transaction.dto.response.PageData;
+import com.zhangboyu.transaction.dto.response.TransactionBatchCreateData;
 import com.zhangboyu.transaction.dto.response.TransactionCreateData;
+import com.zhangboyu.transaction.entity.BatchCreateItem;
+import com.zhangboyu.transaction.entity.Cursor;
 import com.zhangboyu.transaction.entity.CursorPageResult;
 import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.entity.TransactionQuery;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.service.HotTransactionCache;
 import com.zhangboyu.transaction.service.iface.TransactionService;
 import com.zhangboyu.transaction.validator.TransactionValidator;
 import jakarta.validation.Valid;
@@ -18,29 +30,54 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.ARGUMENT_EXCEPTION;
+import static com.zhangboyu.transaction.enums.ErrorEnum.CREATE_DUPLICATE_EXCEPTION;
 
 @RestController
 @RequestMapping("/api/v1/transactions")
 @Slf4j
 public class TransactionController {
+    private static final String NDJSON = "application/x-ndjson";
+
+    // 导出时响应缓冲区大小，写满即推送给客户端
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     @Autowired
     private TransactionService transactionService;
     @Autowired
     private TransactionConverter transactionConverter;
     @Autowired
     private TransactionValidator transactionValidator;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private HotTransactionCache hotTransactions;
+    @Value("${transaction.batch.max-size:1000}")
+    private int batchMaxSize;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public ResponseEntity<BaseResponse<TransactionCreateData>> createTransaction(@RequestBody @Valid TransactionCreateRequest request) {
-        transactionValidator.validate(request);
         Transaction transaction = transactionConverter.toTransaction(request);
-        String transactionNo = transactionService.createTransaction(request.serialNumber(), transaction);
+        // 判重、分配交易号和写入在服务层一次完成
+        if (!transactionService.createTransactionIfAbsent(request.serialNumber(), transaction)) {
+            throw new TransactionException(CREATE_DUPLICATE_EXCEPTION);
+        }
+        String transactionNo = transaction.getTransactionNo();
         BaseResponse<TransactionCreateData> response = new BaseResponse<>();
         TransactionCreateData data = new TransactionCreateData();
         TransactionDTO transactionDTO = transactionConverter.toTransactionDTO(transaction);
@@ -50,17 +87,112 @@ public class TransactionController {
                 .body(response);
     }
 
+    /**
+     * 批量创建，单次最多 transaction.batch.max-size 条；逐项返回创建成功或重复，重复项不影响其他项。
+     */
+    @PostMapping("/batch")
+    public BaseResponse<TransactionBatchCreateData> createTransactions(@RequestBody @Valid TransactionBatchCreateRequest request) {
+        if (request.transactions().size() > batchMaxSize) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        List<BatchCreateItem> items = new ArrayList<>(request.transactions().size());
+        for (TransactionCreateRequest createRequest : request.transactions()) {
+            items.add(new BatchCreateItem(createRequest.serialNumber(), transactionConverter.toTransaction(createRequest)));
+        }
+        transactionService.createTransactions(items);
+        BaseResponse<TransactionBatchCreateData> response = new BaseResponse<>();
+        response.setData(transactionConverter.toBatchCreateData(items));
+        return response;
+    }
+
+    /**
+     * 按创建时间分页查询，可选过滤条件：startTime（含）、endTime（不含）为毫秒时间戳，minAmount、maxAmount 均含边界，
+     * status、type、currency 为等值条件。翻页时需带上与首页相同的条件。
+     */
     @GetMapping
     public BaseResponse<PageData<TransactionDTO>> getAllTransactions(
             @RequestParam(defaultValue = "20") @Min(1) @Max(100) int pageSize,
-            @RequestParam(required = false) String cursor) {
-        CursorPageResult<Transaction> transactionCursorPageResult = transactionService.listAllTransaction(transactionService.decodeCursor(cursor), pageSize);
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Long accountId,
+            @RequestParam(required = false) Long startTime,
+            @RequestParam(required = false) Long endTime,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) Integer type,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) Long minAmount,
+            @RequestParam(required = false) Long maxAmount) {
+        Cursor decodedCursor = transactionService.decodeCursor(cursor);
+        TransactionQuery query = new TransactionQuery();
+        query.setAccountId(accountId);
+        query.setStartTime(startTime);
+        query.setEndTime(endTime);
+        query.setStatus(status);
+        query.setType(type);
+        query.setCurrency(currency);
+        query.setMinAmount(minAmount);
+        query.setMaxAmount(maxAmount);
+        // 带过滤条件时走过滤查询；否则指定账户时走账户索引，不指定时按时间全量分页
+        CursorPageResult<Transaction> transactionCursorPageResult;
+        if (query.hasFilters()) {
+            transactionCursorPageResult = transactionService.queryTransactions(query, decodedCursor, pageSize);
+        } else if (accountId == null) {
+            transactionCursorPageResult = transactionService.listAllTransaction(decodedCursor, pageSize);
+        } else {
+            transactionCursorPageResult = transactionService.listTransactionByAccount(accountId, decodedCursor, pageSize);
+        }
         PageData<TransactionDTO> transactionDTOPageData = transactionConverter.toTransactionDTOPageData(transactionCursorPageResult);
         BaseResponse<PageData<TransactionDTO>> response = new BaseResponse<>();
         response.setData(transactionDTOPageData);
         return response;
     }
 
+    /**
+     * 流式导出（NDJSON，每行一笔交易），单个请求按时间顺序一次遍历完整个时间索引，边读边写，内存占用固定。
+     * startTime（含）、endTime（不含）为可选的创建时间范围；每行带 cursor 字段，中断后以最后收到的一行的 cursor 断点续传。
+     */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(required = false) Long startTime,
+            @RequestParam(required = false) Long endTime,
+            @RequestParam(required = false) String cursor) {
+        Cursor decodedCursor = transactionService.decodeCursor(cursor);
+        Iterator<Transaction> transactions = transactionService.exportTransactions(decodedCursor, startTime, endTime);
+        ObjectWriter writer = objectMapper.writerFor(ExportRowDTO.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream, EXPORT_BUFFER_SIZE);
+            long count = 0;
+            while (transactions.hasNext()) {
+                Transaction transaction = transactions.next();
+                writer.writeValue(out, new ExportRowDTO(transactionConverter.toTransactionDTO(transaction), transactionService.encodeCursor(transaction)));
+                out.write('\n');
+                count++;
+            }
+            out.flush();
+            log.info("export finished, rows:{}", count);
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    /**
+     * 按交易号查询。响应带 ETag 与 Last-Modified（更新时间），请求的 If-None-Match / If-Modified-Since 未变化时返回 304、不带响应体。
+     * 热点交易的响应 JSON 已序列化缓存，与当前交易一致时直接返回缓存的字节，不再转换和序列化。
+     */
+    @GetMapping("/{transactionNo}")
+    public ResponseEntity<byte[]> getTransaction(@PathVariable String transactionNo) throws JsonProcessingException {
+        Transaction transaction = transactionService.getTransaction(transactionNo);
+        HotTransactionCache.Entry entry = hotTransactions.get(transactionNo, transaction);
+        if (entry == null) {
+            BaseResponse<TransactionDTO> response = new BaseResponse<>();
+            response.setData(transactionConverter.toTransactionDTO(transaction));
+            entry = hotTransactions.put(transactionNo, transaction, objectMapper.writeValueAsBytes(response));
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(entry.etag());
+        if (transaction.getUpdateTime() != null) {
+            builder.lastModified(transaction.getUpdateTime().getTime());
+        }
+        return builder.body(entry.json());
+    }
+
     @PutMapping("/{transactionNo}")
     public BaseResponse<TransactionCreateData> updateTransaction(
             @PathVariable String transactionNo,
@@ -1,14 +1,24 @@
 package com.zhangboyu.transaction.converter;
 
+import com.zhangboyu.transaction.dto.dto.BatchCreateItemDTO;
+import com.zhangboyu.transaction.dto.dto.ChangeEventDTO;
 import com.zhangboyu.transaction.dto.dto.PaginationDTO;
 import com.zhangboyu.transaction.dto.dto.TransactionDTO;
 import com.zhangboyu.transaction.dto.request.TransactionCreateRequest;
 import com.zhangboyu.transaction.dto.request.TransactionUpdateRequest;
+import com.zhangboyu.transaction.dto.response.ChangeData;
 import com.zhangboyu.transaction.dto.response.PageData;
+import com.zhangboyu.transaction.dto.response.TransactionBatchCreateData;
+import com.zhangboyu.transaction.entity.BatchCreateItem;
+import com.zhangboyu.transaction.entity.ChangeBatch;
+import com.zhangboyu.transaction.entity.ChangeEvent;
 import com.zhangboyu.transaction.entity.CursorPageResult;
 import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.enums.BatchCreateStatus;
+import com.zhangboyu.transaction.enums.ChangeType;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
@@ -94,6 +104,34 @@ public class TransactionConverter {
         return dto;
     }
 
+    public Transaction toTransaction(TransactionDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        Transaction transaction = new Transaction();
+        transaction.setTransactionNo(dto.getTransactionNo());
+        transaction.setFromAccountId(dto.getFromAccountId());
+        transaction.setToAccountId(dto.getToAccountId());
+        transaction.setAmount(dto.getAmount());
+        transaction.setCurrency(dto.getCurrency());
+        transaction.setRemark(dto.getRemark());
+        transaction.setType(dto.getType());
+        transaction.setStatus(dto.getStatus());
+        transaction.setCreateTime(dto.getCreateTime() == null ? null : new Date(dto.getCreateTime()));
+        transaction.setUpdateTime(dto.getUpdateTime() == null ? null : new Date(dto.getUpdateTime()));
+        transaction.setCreator(dto.getCreator());
+        transaction.setUpdater(dto.getUpdater());
+        return transaction;
+    }
+
+    public ChangeEvent toChangeEvent(ChangeEventDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        return new ChangeEvent(dto.getSequence(), ChangeType.valueOf(dto.getType()), dto.getTransactionNo(),
+                dto.getSerialNumber(), toTransaction(dto.getBefore()), toTransaction(dto.getAfter()));
+    }
+
     public PageData<TransactionDTO> toTransactionDTOPageData(CursorPageResult<Transaction> result) {
         if (result == null) {
             return null;
@@ -107,6 +145,60 @@ public class TransactionConverter {
         return data;
     }
 
+    public ChangeEventDTO toChangeEventDTO(ChangeEvent event) {
+        if (event == null) {
+            return null;
+        }
+        ChangeEventDTO dto = new ChangeEventDTO();
+        dto.setSequence(event.getSequence());
+        dto.setType(event.getType().name());
+        dto.setTransactionNo(event.getTransactionNo());
+        dto.setSerialNumber(event.getSerialNumber());
+        dto.setBefore(toTransactionDTO(event.getBefore()));
+        dto.setAfter(toTransactionDTO(event.getAfter()));
+        return dto;
+    }
+
+    public ChangeData toChangeData(ChangeBatch batch) {
+        if (batch == null) {
+            return null;
+        }
+        ChangeData data = new ChangeData();
+        data.setEvents(batch.getEvents().stream()
+                .map(this::toChangeEventDTO)
+                .collect(Collectors.toList()));
+        data.setLastSequence(batch.getLastSequence());
+        return data;
+    }
+
+    public TransactionBatchCreateData toBatchCreateData(List<BatchCreateItem> items) {
+        if (items == null) {
+            return null;
+        }
+        TransactionBatchCreateData data = new TransactionBatchCreateData();
+        List<BatchCreateItemDTO> itemDTOList = new ArrayList<>(items.size());
+        int duplicated = 0;
+        for (int i = 0; i < items.size(); i++) {
+            BatchCreateItem item = items.get(i);
+            BatchCreateItemDTO dto = new BatchCreateItemDTO();
+            dto.setIndex(i);
+            dto.setSerialNumber(item.getSerialNumber());
+            dto.setTransactionNo(item.getTransactionNo());
+            if (item.isDuplicate()) {
+                dto.setStatus(BatchCreateStatus.DUPLICATE);
+                duplicated++;
+            } else {
+                dto.setStatus(BatchCreateStatus.SUCCESS);
+                dto.setTransaction(toTransactionDTO(item.getTransaction()));
+            }
+            itemDTOList.add(dto);
+        }
+        data.setItems(itemDTOList);
+        data.setDuplicated(duplicated);
+        data.setSucceeded(items.size() - duplicated);
+        return data;
+    }
+
     public PaginationDTO toPaginationDTO(boolean hasNext, String nextCursor) {
         PaginationDTO paginationDTO = new PaginationDTO();
         paginationDTO.setHasNext(hasNext);
@@ -0,0 +1,19 @@
+package com.zhangboyu.transaction.dto.dto;
+
+import com.zhangboyu.transaction.enums.BatchCreateStatus;
+import lombok.Data;
+
+@Data
+public class BatchCreateItemDTO {
+    // 在请求列表中的下标
+    private int index;
+
+    private String serialNumber;
+
+    private String transactionNo;
+
+    private BatchCreateStatus status;
+
+    // 仅创建成功时返回
+    private TransactionDTO transaction;
+}
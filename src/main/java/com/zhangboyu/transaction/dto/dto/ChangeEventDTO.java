@@ -0,0 +1,19 @@
+package com.zhangboyu.transaction.dto.dto;
+
+import lombok.Data;
+
+@Data
+public class ChangeEventDTO {
+    //变更序号
+    private Long sequence;
+    //变更类型：CREATE / UPDATE / DELETE
+    private String type;
+    //交易编号
+    private String transactionNo;
+    //流水号，仅创建事件有值
+    private String serialNumber;
+    //变更前的交易，创建时为空
+    private TransactionDTO before;
+    //变更后的交易，删除时为空
+    private TransactionDTO after;
+}
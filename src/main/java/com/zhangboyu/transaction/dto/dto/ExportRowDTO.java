@@ -0,0 +1,20 @@
+package com.zhangboyu.transaction.dto.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 导出的一行：交易字段平铺，附带从这一行之后继续导出的游标。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportRowDTO {
+    @JsonUnwrapped
+    private TransactionDTO transaction;
+
+    // 断点续传游标，中断后以最后收到的一行的游标作为 cursor 参数重新请求
+    private String cursor;
+}
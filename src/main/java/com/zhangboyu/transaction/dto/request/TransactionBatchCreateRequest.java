@@ -0,0 +1,10 @@
+package com.zhangboyu.transaction.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record TransactionBatchCreateRequest(
+        @NotEmpty List<@Valid TransactionCreateRequest> transactions
+) {}
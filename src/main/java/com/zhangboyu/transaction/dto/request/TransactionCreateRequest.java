@@ -1,15 +1,15 @@
 package com.zhangboyu.transaction.dto.request;
 
+import com.zhangboyu.transaction.validator.IsoCurrency;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
-import jakarta.validation.constraints.Size;
 
 public record TransactionCreateRequest(
         @NotNull Long fromAccountId,
         @NotNull Long toAccountId,
         @NotNull @Positive Long amount,
-        @NotBlank @Size(max = 3) String currency,
+        @NotBlank @IsoCurrency String currency,
 
         String remark,
         @NotNull Integer status,
@@ -0,0 +1,14 @@
+package com.zhangboyu.transaction.dto.response;
+
+import com.zhangboyu.transaction.dto.dto.ChangeEventDTO;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ChangeData {
+    private List<ChangeEventDTO> events;
+
+    // 下次请求的 after 参数
+    private long lastSequence;
+}
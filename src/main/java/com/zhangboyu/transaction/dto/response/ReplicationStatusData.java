@@ -0,0 +1,15 @@
+package com.zhangboyu.transaction.dto.response;
+
+import lombok.Data;
+
+@Data
+public class ReplicationStatusData {
+    //复制角色：PRIMARY / FOLLOWER
+    private String role;
+    //副本跟随的主节点地址，主节点为空
+    private String primaryUrl;
+    //主节点为本节点最新变更序号；副本为已应用到的主节点变更序号
+    private Long sequence;
+    //数据落后主节点的上界（毫秒），副本尚未追上过时为空
+    private Long lagMillis;
+}
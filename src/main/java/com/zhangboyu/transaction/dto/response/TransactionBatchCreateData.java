@@ -0,0 +1,15 @@
+package com.zhangboyu.transaction.dto.response;
+
+import com.zhangboyu.transaction.dto.dto.BatchCreateItemDTO;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TransactionBatchCreateData {
+    private int succeeded;
+
+    private int duplicated;
+
+    private List<BatchCreateItemDTO> items;
+}
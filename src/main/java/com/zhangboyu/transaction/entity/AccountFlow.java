@@ -0,0 +1,22 @@
+package com.zhangboyu.transaction.entity;
+
+import lombok.Data;
+
+/**
+ * 单个账户在某币种下的资金流向汇总。
+ */
+@Data
+public class AccountFlow {
+    private long accountId;
+    private String currency;
+    //转入总额
+    private long inflow;
+    //转出总额
+    private long outflow;
+    //净流入（转入 - 转出）
+    private long net;
+    //转入笔数
+    private long inCount;
+    //转出笔数
+    private long outCount;
+}
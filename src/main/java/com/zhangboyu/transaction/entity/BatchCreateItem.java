@@ -0,0 +1,24 @@
+package com.zhangboyu.transaction.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量创建中的一项：入参为流水号和交易，处理后回填交易号以及是否为重复创建。
+ */
+@Data
+@NoArgsConstructor
+public class BatchCreateItem {
+    private String serialNumber;
+
+    private Transaction transaction;
+
+    private String transactionNo;
+
+    private boolean duplicate;
+
+    public BatchCreateItem(String serialNumber, Transaction transaction) {
+        this.serialNumber = serialNumber;
+        this.transaction = transaction;
+    }
+}
@@ -0,0 +1,14 @@
+package com.zhangboyu.transaction.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ChangeBatch {
+    private List<ChangeEvent> events;
+    // 已读到的序号，下次从它之后继续读；没有新变更时为请求的起始序号
+    private long lastSequence;
+}
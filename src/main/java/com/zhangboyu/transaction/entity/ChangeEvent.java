@@ -0,0 +1,21 @@
+package com.zhangboyu.transaction.entity;
+
+import com.zhangboyu.transaction.enums.ChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 一次交易变更：创建时 before 为空，删除时 after 为空。
+ */
+@Data
+@AllArgsConstructor
+public class ChangeEvent {
+    //变更序号，即该次写入的版本号
+    private long sequence;
+    private ChangeType type;
+    private String transactionNo;
+    //创建时的流水号，更新和删除时为空
+    private String serialNumber;
+    private Transaction before;
+    private Transaction after;
+}
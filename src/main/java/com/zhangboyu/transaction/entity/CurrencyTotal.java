@@ -0,0 +1,13 @@
+package com.zhangboyu.transaction.entity;
+
+import lombok.Data;
+
+/**
+ * 单个币种的交易总额与笔数。
+ */
+@Data
+public class CurrencyTotal {
+    private String currency;
+    private long amount;
+    private long count;
+}
@@ -8,11 +8,20 @@ public class Cursor {
 
     private String transactionNo;
 
+    // 分页快照的读版本，0 表示尚未固定，查询时取当前可见版本
+    private long readVersion;
+
     public Cursor(Long date, String transactionNo) {
         this.date = date;
         this.transactionNo = transactionNo;
     }
 
+    public Cursor(Long date, String transactionNo, long readVersion) {
+        this.date = date;
+        this.transactionNo = transactionNo;
+        this.readVersion = readVersion;
+    }
+
     public static Cursor initial() {
         return new Cursor(0L, "");
     }
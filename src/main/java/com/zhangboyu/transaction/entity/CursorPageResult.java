@@ -9,4 +9,6 @@ public class CursorPageResult <T> {
     private List<T> items;
     private boolean hasNext;
     private String nextCursor;
+    // 本页读取的快照版本，全量列表翻页时沿用；按账户查询为 0
+    private long readVersion;
 }
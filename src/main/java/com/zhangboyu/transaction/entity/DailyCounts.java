@@ -0,0 +1,17 @@
+package com.zhangboyu.transaction.entity;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 按创建日期统计的交易笔数，以及按状态、类型分组的笔数。
+ */
+@Data
+public class DailyCounts {
+    //日期，yyyy-MM-dd
+    private String date;
+    private long total;
+    private Map<Integer, Long> byStatus;
+    private Map<Integer, Long> byType;
+}
@@ -0,0 +1,34 @@
+package com.zhangboyu.transaction.entity;
+
+import lombok.Data;
+
+/**
+ * 列表过滤条件，均可为空：创建时间 [startTime, endTime)、金额 [minAmount, maxAmount]，其余为等值条件。
+ */
+@Data
+public class TransactionQuery {
+    //转出或转入账户id
+    private Long accountId;
+    //创建时间下界（含），毫秒时间戳
+    private Long startTime;
+    //创建时间上界（不含），毫秒时间戳
+    private Long endTime;
+    //交易状态
+    private Integer status;
+    //交易类型
+    private Integer type;
+    //币种
+    private String currency;
+    //最小金额（含）
+    private Long minAmount;
+    //最大金额（含）
+    private Long maxAmount;
+
+    /**
+     * 是否带有账户以外的过滤条件。
+     */
+    public boolean hasFilters() {
+        return startTime != null || endTime != null || status != null || type != null || currency != null
+                || minAmount != null || maxAmount != null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.zhangboyu.transaction.enums;
+
+public enum BatchCreateStatus {
+    SUCCESS,
+    // 流水号已创建过（包括同一批次内重复出现），返回已有的交易号
+    DUPLICATE,
+}
@@ -0,0 +1,7 @@
+package com.zhangboyu.transaction.enums;
+
+public enum ChangeType {
+    CREATE,
+    UPDATE,
+    DELETE,
+}
@@ -7,6 +7,11 @@ public enum ErrorEnum {
     TRANSACTION_NOT_EXISTS_EXCEPTION(102, "交易不存在"),
 
     CURSOR_EXCEPTION(103, "游标异常"),
+    CHANGE_EXPIRED_EXCEPTION(104, "变更序号已过期，请重新全量同步"),
+    NODE_UNAVAILABLE_EXCEPTION(105, "集群节点不可用，请稍后重试"),
+    READ_ONLY_REPLICA_EXCEPTION(106, "只读副本不接受写入，请发往主节点"),
+    REPLICA_STALE_EXCEPTION(107, "副本数据落后超过允许范围，请改读主节点或稍后重试"),
+    WAL_UNAVAILABLE_EXCEPTION(108, "日志不可写，暂停接受写入"),
 
     SYSTEM_EXCEPTION(500, "系统异常请稍后重试"),
     CONCURRENCY_EXCEPTION(600, "并发,请稍后重试"),
@@ -0,0 +1,6 @@
+package com.zhangboyu.transaction.enums;
+
+public enum ReplicationRole {
+    PRIMARY,
+    FOLLOWER,
+}
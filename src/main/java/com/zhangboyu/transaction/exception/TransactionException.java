@@ -17,4 +17,17 @@ public class TransactionException extends RuntimeException {
         this.code = code;
         this.message = message;
     }
+
+    private TransactionException(ErrorEnum errorEnum, boolean writableStackTrace) {
+        super(errorEnum.getMessage(), null, false, writableStackTrace);
+        this.code = errorEnum.getCode();
+        this.message = errorEnum.getMessage();
+    }
+
+    /**
+     * 不采集调用栈的异常，用于由客户端输入频繁触发、调用栈没有诊断价值的错误，可作为常量复用。
+     */
+    public static TransactionException withoutStackTrace(ErrorEnum errorEnum) {
+        return new TransactionException(errorEnum, false);
+    }
 }
@@ -0,0 +1,164 @@
+package com.zhangboyu.transaction.lock;
+
+import com.zhangboyu.transaction.exception.TransactionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.CONCURRENCY_EXCEPTION;
+import static com.zhangboyu.transaction.enums.ErrorEnum.SYSTEM_EXCEPTION;
+
+/**
+ * 固定大小的分段锁表：交易号按哈希落到某一段，锁对象数量与数据量无关。
+ * 段数默认取 CPU 核数的 4 倍并向上取整为 2 的幂，降低不同交易落到同一段的概率。
+ * <p>
+ * 加锁等待时间记录为 transaction.lock.wait 直方图，等待超时记录为 transaction.lock.timeout，
+ * 均按 lock 标签区分单个交易加锁（key）、批量按段加锁（stripe）和快照屏障（barrier）。
+ */
+@Component
+@Slf4j
+public class StripedLock {
+    private final ReentrantLock[] locks;
+
+    private final int mask;
+
+    private final long waitMillis;
+
+    private final Timer keyWait;
+
+    private final Timer stripeWait;
+
+    private final Timer barrierWait;
+
+    private final Counter keyTimeouts;
+
+    private final Counter stripeTimeouts;
+
+    public StripedLock(int stripes, long waitMillis) {
+        this(stripes, waitMillis, Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public StripedLock(@Value("${transaction.lock.stripes:0}") int stripes,
+                       @Value("${transaction.lock.wait-millis:50}") long waitMillis,
+                       MeterRegistry meterRegistry) {
+        int size = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors() * 4;
+        size = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.waitMillis = waitMillis;
+        this.keyWait = waitTimer(meterRegistry, "key");
+        this.stripeWait = waitTimer(meterRegistry, "stripe");
+        this.barrierWait = waitTimer(meterRegistry, "barrier");
+        this.keyTimeouts = timeoutCounter(meterRegistry, "key");
+        this.stripeTimeouts = timeoutCounter(meterRegistry, "stripe");
+    }
+
+    private static Timer waitTimer(MeterRegistry meterRegistry, String lock) {
+        return Timer.builder("transaction.lock.wait")
+                .description("交易锁加锁等待时间")
+                .tag("lock", lock)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1000))
+                .maximumExpectedValue(Duration.ofSeconds(1))
+                .register(meterRegistry);
+    }
+
+    private static Counter timeoutCounter(MeterRegistry meterRegistry, String lock) {
+        return Counter.builder("transaction.lock.timeout")
+                .description("交易锁等待超时次数，即 CONCURRENCY_EXCEPTION 的来源")
+                .tag("lock", lock)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取 key 所在段的锁，最多等待配置的时间，超时抛出并发异常。
+     * 调用方负责在 finally 中 unlock 返回的锁。
+     */
+    public ReentrantLock lock(String key) {
+        return acquire(getLock(key), key, keyWait, keyTimeouts);
+    }
+
+    /**
+     * 按段号加锁，供批量操作把落在同一段的多个 key 合并为一次加锁。等待与超时规则同 {@link #lock(String)}。
+     */
+    public ReentrantLock lockStripe(int index) {
+        return acquire(locks[index], index, stripeWait, stripeTimeouts);
+    }
+
+    private ReentrantLock acquire(ReentrantLock lock, Object key, Timer wait, Counter timeouts) {
+        long begin = System.nanoTime();
+        try {
+            boolean locked = lock.tryLock(waitMillis, TimeUnit.MILLISECONDS);
+            wait.record(System.nanoTime() - begin, TimeUnit.NANOSECONDS);
+            if (!locked) {
+                timeouts.increment();
+                throw new TransactionException(CONCURRENCY_EXCEPTION);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("lock interrupted, key:{}", key, e);
+            throw new TransactionException(SYSTEM_EXCEPTION);
+        }
+        return lock;
+    }
+
+    /**
+     * 依次获取并释放每一段锁：返回时，调用前已持有任意一段锁的线程都已释放。
+     */
+    public void barrier() {
+        long begin = System.nanoTime();
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+            lock.unlock();
+        }
+        barrierWait.record(System.nanoTime() - begin, TimeUnit.NANOSECONDS);
+    }
+
+    public ReentrantLock getLock(String key) {
+        return locks[indexFor(key)];
+    }
+
+    public int indexFor(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public int stripes() {
+        return locks.length;
+    }
+
+    /**
+     * 当前被持有的段数，监控采样用。
+     */
+    public int heldStripes() {
+        int held = 0;
+        for (ReentrantLock lock : locks) {
+            held += lock.isLocked() ? 1 : 0;
+        }
+        return held;
+    }
+
+    /**
+     * 当前排队等待加锁的线程数（估计值），监控采样用。
+     */
+    public int queuedThreads() {
+        int queued = 0;
+        for (ReentrantLock lock : locks) {
+            queued += lock.getQueueLength();
+        }
+        return queued;
+    }
+}
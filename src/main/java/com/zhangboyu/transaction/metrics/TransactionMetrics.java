@@ -0,0 +1,74 @@
+package com.zhangboyu.transaction.metrics;
+
+import com.zhangboyu.transaction.lock.StripedLock;
+import com.zhangboyu.transaction.repo.IdRepo;
+import com.zhangboyu.transaction.service.TransactionServiceImpl;
+import com.zhangboyu.transaction.service.VersionManager;
+import com.zhangboyu.transaction.store.TransactionStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 内存结构规模与锁占用的采样指标，抓取时读取，不在写路径上增加开销。
+ */
+@Component
+public class TransactionMetrics implements MeterBinder {
+    @Autowired
+    private TransactionStore transactionStore;
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private IdRepo idRepo;
+
+    @Autowired
+    private StripedLock keyLocks;
+
+    @Autowired
+    private VersionManager versions;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("transaction.store.size", transactionStore, TransactionStore::size)
+                .description("主表中的交易数")
+                .register(registry);
+        Gauge.builder("transaction.index.size", transactionService, TransactionServiceImpl::timeIndexSize)
+                .description("时间索引条目数")
+                .tag("index", "time")
+                .register(registry);
+        Gauge.builder("transaction.index.size", transactionService, TransactionServiceImpl::statusIndexSize)
+                .description("状态索引条目数")
+                .tag("index", "status")
+                .register(registry);
+        Gauge.builder("transaction.index.size", transactionService, TransactionServiceImpl::typeIndexSize)
+                .description("类型索引条目数")
+                .tag("index", "type")
+                .register(registry);
+        Gauge.builder("transaction.index.size", transactionService, TransactionServiceImpl::currencyIndexSize)
+                .description("币种索引条目数")
+                .tag("index", "currency")
+                .register(registry);
+        Gauge.builder("transaction.serial.window.size", idRepo, IdRepo::serialWindowSize)
+                .description("幂等窗口内登记的流水号数")
+                .register(registry);
+        Gauge.builder("transaction.lock.stripes", keyLocks, StripedLock::stripes)
+                .description("交易锁段数")
+                .register(registry);
+        Gauge.builder("transaction.lock.held", keyLocks, StripedLock::heldStripes)
+                .description("当前被持有的交易锁段数")
+                .register(registry);
+        Gauge.builder("transaction.lock.queued", keyLocks, StripedLock::queuedThreads)
+                .description("排队等待交易锁的线程数")
+                .register(registry);
+        Gauge.builder("transaction.mvcc.chains", versions, VersionManager::chainCount)
+                .description("挂有未回收旧版本的交易数")
+                .register(registry);
+        Gauge.builder("transaction.mvcc.pins", versions, VersionManager::pinCount)
+                .description("租约内的分页读版本数")
+                .register(registry);
+    }
+}
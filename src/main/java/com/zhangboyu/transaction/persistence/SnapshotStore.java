@@ -0,0 +1,349 @@
+package com.zhangboyu.transaction.persistence;
+
+import com.zhangboyu.transaction.repo.SerialIndex;
+import com.zhangboyu.transaction.store.CurrencyDictionary;
+import com.zhangboyu.transaction.store.TransactionRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static com.zhangboyu.transaction.store.TransactionRecord.NULL_CURRENCY;
+
+/**
+ * 快照文件读写：snapshot-{日志段号}.bin，表示该段之前的日志已全部包含在快照中，恢复时只需重放该段及之后的日志。
+ * <p>
+ * 格式：[int 魔数][byte 版本][long 日志段号]（副本同步时为变更序号），随后是若干条 [int 长度][byte 类型][负载] 记录：
+ * <ul>
+ *     <li>DICT：short 编码 + 币种字符串，币种首次出现时写入，之后交易记录只写 2 字节编码</li>
+ *     <li>TX：交易，账户、金额、时间等均为原始 long，可空字段通过一个 short 位图标记</li>
+ *     <li>SERIAL：流水号与交易号映射（版本 1，只读）</li>
+ *     <li>SERIAL_FINGERPRINT：long 流水号指纹 + long 交易号（版本 2 起）</li>
+ *     <li>END：long ID 计数器 + long 交易数，其后是 int CRC32C（覆盖 END 之前的全部字节）</li>
+ * </ul>
+ * 先写临时文件并 fsync，再原子重命名，因此目录中的快照文件总是完整的。
+ */
+@Component
+@Slf4j
+public class SnapshotStore {
+    private static final int MAGIC = 0x54585331;
+
+    private static final byte VERSION = 2;
+
+    // 仍可加载的最早版本
+    private static final byte MIN_VERSION = 1;
+
+    private static final byte TYPE_END = 0;
+
+    private static final byte TYPE_DICT = 1;
+
+    private static final byte TYPE_TX = 2;
+
+    private static final byte TYPE_SERIAL = 3;
+
+    private static final byte TYPE_SERIAL_FINGERPRINT = 4;
+
+    private static final String PREFIX = "snapshot-";
+
+    private static final String SUFFIX = ".bin";
+
+    private final boolean enabled;
+
+    private final Path dir;
+
+    @Autowired
+    public SnapshotStore(@Value("${transaction.snapshot.enabled:false}") boolean enabled,
+                         @Value("${transaction.snapshot.dir:data/snapshot}") String dir) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 写入快照。transactions 与 serialEntries 可以是并发容器的弱一致视图：
+     * 快照期间发生的修改都记录在 walSegment 及之后的日志段中，恢复时重放会覆盖到最终状态。
+     */
+    public void write(long walSegment, Iterable<TransactionRecord> transactions,
+                      Iterable<SerialIndex.Entry> serialEntries, long idCounter) throws IOException {
+        Files.createDirectories(dir);
+        Path target = dir.resolve(PREFIX + String.format("%016d", walSegment) + SUFFIX);
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        long transactionCount;
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+            transactionCount = writeTo(file, walSegment, transactions, serialEntries, idCounter);
+            file.getChannel().force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path old : listSnapshots()) {
+            if (!old.equals(target)) {
+                Files.delete(old);
+            }
+        }
+        log.info("snapshot written, file:{}, transactions:{}", target, transactionCount);
+    }
+
+    /**
+     * 按快照文件格式写入输出流（不关闭），文件头中的位置由调用方给出：快照文件为日志段号，副本同步为变更序号。返回交易数。
+     */
+    public long writeTo(OutputStream target, long position, Iterable<TransactionRecord> transactions,
+                        Iterable<SerialIndex.Entry> serialEntries, long idCounter) throws IOException {
+        CRC32C crc = new CRC32C();
+        long transactionCount = 0;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(target, crc), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(position);
+        RecordWriter writer = new RecordWriter(out);
+        Map<String, Short> dictionary = new HashMap<>();
+        for (TransactionRecord tx : transactions) {
+            writer.transaction(tx, dictionary);
+            transactionCount++;
+        }
+        for (SerialIndex.Entry entry : serialEntries) {
+            writer.serial(entry);
+        }
+        ByteBuffer end = writer.begin(TYPE_END);
+        end.putLong(idCounter);
+        end.putLong(transactionCount);
+        writer.finish();
+        out.flush();
+        out.writeInt((int) crc.getValue());
+        out.flush();
+        return transactionCount;
+    }
+
+    /**
+     * 加载最新快照，返回恢复时应开始重放的日志段号；没有快照时返回 0。
+     */
+    public long load(Consumer<TransactionRecord> transactionConsumer, Consumer<SerialIndex.Entry> serialConsumer,
+                     LongConsumer idCounterConsumer) {
+        if (!enabled) {
+            return 0;
+        }
+        try {
+            List<Path> snapshots = listSnapshots();
+            if (snapshots.isEmpty()) {
+                return 0;
+            }
+            return load(snapshots.getLast(), transactionConsumer, serialConsumer, idCounterConsumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("snapshot load failed, dir:" + dir, e);
+        }
+    }
+
+    private long load(Path snapshot, Consumer<TransactionRecord> transactionConsumer, Consumer<SerialIndex.Entry> serialConsumer,
+                      LongConsumer idCounterConsumer) throws IOException {
+        try (InputStream in = new FileInputStream(snapshot.toFile())) {
+            return readFrom(in, snapshot.toString(), transactionConsumer, serialConsumer, idCounterConsumer);
+        }
+    }
+
+    /**
+     * 从输入流读取一份快照（不关闭），依次回调交易、流水号映射和 ID 计数器，返回文件头中的位置。name 用于日志和错误信息。
+     */
+    public long readFrom(InputStream source, String name, Consumer<TransactionRecord> transactionConsumer,
+                         Consumer<SerialIndex.Entry> serialConsumer, LongConsumer idCounterConsumer) throws IOException {
+        CRC32C crc = new CRC32C();
+        // CheckedInputStream 在缓冲之上，只对已消费的字节计算校验和
+        DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(source, 1 << 16), crc));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("bad snapshot header: " + name);
+        }
+        byte version = in.readByte();
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new IOException("bad snapshot header: " + name);
+        }
+        long position = in.readLong();
+        Map<Short, String> dictionary = new HashMap<>();
+        byte[] payload = new byte[256];
+        while (true) {
+            int length = in.readInt();
+            byte type = in.readByte();
+            if (payload.length < length) {
+                payload = new byte[Math.max(length, payload.length * 2)];
+            }
+            in.readFully(payload, 0, length);
+            ByteBuffer buffer = ByteBuffer.wrap(payload, 0, length);
+            switch (type) {
+                case TYPE_DICT -> dictionary.put(buffer.getShort(), getString(buffer));
+                case TYPE_TX -> transactionConsumer.accept(readTransaction(buffer, dictionary));
+                case TYPE_SERIAL -> readLegacySerial(buffer, serialConsumer);
+                case TYPE_SERIAL_FINGERPRINT -> serialConsumer.accept(new SerialIndex.Entry(buffer.getLong(), buffer.getLong()));
+                case TYPE_END -> {
+                    long idCounter = buffer.getLong();
+                    long transactionCount = buffer.getLong();
+                    int actual = (int) crc.getValue();
+                    if (in.readInt() != actual) {
+                        throw new IOException("snapshot checksum mismatch: " + name);
+                    }
+                    idCounterConsumer.accept(idCounter);
+                    log.info("snapshot loaded, source:{}, transactions:{}", name, transactionCount);
+                    return position;
+                }
+                default -> throw new IOException("bad snapshot record type " + type + ": " + name);
+            }
+        }
+    }
+
+    /**
+     * 版本 1 的快照保存流水号原文，加载时换算为指纹。
+     */
+    private static void readLegacySerial(ByteBuffer buffer, Consumer<SerialIndex.Entry> serialConsumer) {
+        String serialNumber = getString(buffer);
+        String transactionNo = getString(buffer);
+        if (serialNumber == null || transactionNo == null) {
+            return;
+        }
+        try {
+            serialConsumer.accept(new SerialIndex.Entry(SerialIndex.fingerprint(serialNumber), Long.parseLong(transactionNo)));
+        } catch (NumberFormatException e) {
+            // 非本系统分配的交易号，不参与幂等判断
+        }
+    }
+
+    private TransactionRecord readTransaction(ByteBuffer buffer, Map<Short, String> dictionary) {
+        short nulls = buffer.getShort();
+        String transactionNo = getString(buffer);
+        long from = buffer.getLong();
+        long to = buffer.getLong();
+        long amount = buffer.getLong();
+        short currency = buffer.getShort();
+        String remark = getString(buffer);
+        int type = buffer.getInt();
+        int status = buffer.getInt();
+        long createTime = buffer.getLong();
+        long creator = buffer.getLong();
+        long updateTime = buffer.getLong();
+        long updater = buffer.getLong();
+        // 快照内的币种编码只在本文件内有效，加载时换成进程内字典编码
+        short currencyCode = (nulls & NULL_CURRENCY) != 0 ? 0 : CurrencyDictionary.code(dictionary.get(currency));
+        return new TransactionRecord(transactionNo, from, to, amount, createTime, updateTime, creator, updater,
+                type, status, currencyCode, nulls, remark);
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(PREFIX)
+                            && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return s;
+    }
+
+    /**
+     * 先把一条记录编码进可复用的缓冲区，再写出 [长度][类型][负载]。
+     */
+    private static final class RecordWriter {
+        private final DataOutputStream out;
+
+        private ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        private byte type;
+
+        RecordWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        ByteBuffer begin(byte type) {
+            this.type = type;
+            buffer.clear();
+            return buffer;
+        }
+
+        void finish() throws IOException {
+            out.writeInt(buffer.position());
+            out.writeByte(type);
+            out.write(buffer.array(), 0, buffer.position());
+        }
+
+        void serial(SerialIndex.Entry entry) throws IOException {
+            begin(TYPE_SERIAL_FINGERPRINT);
+            buffer.putLong(entry.fingerprint());
+            buffer.putLong(entry.transactionNo());
+            finish();
+        }
+
+        void transaction(TransactionRecord tx, Map<String, Short> dictionary) throws IOException {
+            short currency = 0;
+            String name = tx.currency();
+            if (name != null) {
+                Short code = dictionary.get(name);
+                if (code == null) {
+                    code = (short) dictionary.size();
+                    dictionary.put(name, code);
+                    ensure(6 + utf8Length(name));
+                    begin(TYPE_DICT);
+                    buffer.putShort(code);
+                    putString(name);
+                    finish();
+                }
+                currency = code;
+            }
+            ensure(96 + utf8Length(tx.transactionNo()) + utf8Length(tx.remark()));
+            begin(TYPE_TX);
+            // 记录中的空值位图与快照格式一致，空字段的原始值为 0
+            buffer.putShort(tx.nulls());
+            putString(tx.transactionNo());
+            buffer.putLong(tx.fromAccountId());
+            buffer.putLong(tx.toAccountId());
+            buffer.putLong(tx.amount());
+            buffer.putShort(currency);
+            putString(tx.remark());
+            buffer.putInt(tx.type());
+            buffer.putInt(tx.status());
+            buffer.putLong(tx.createTime());
+            buffer.putLong(tx.creator());
+            buffer.putLong(tx.updateTime());
+            buffer.putLong(tx.updater());
+            finish();
+        }
+
+        private void putString(String s) {
+            if (s == null) {
+                buffer.putInt(-1);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void ensure(int capacity) {
+            if (buffer.capacity() < capacity) {
+                buffer = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+            }
+        }
+
+        private static int utf8Length(String s) {
+            return s == null ? 0 : s.length() * 3;
+        }
+    }
+}
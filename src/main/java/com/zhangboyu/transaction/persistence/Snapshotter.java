@@ -0,0 +1,81 @@
+package com.zhangboyu.transaction.persistence;
+
+import com.zhangboyu.transaction.lock.StripedLock;
+import com.zhangboyu.transaction.repo.IdRepo;
+import com.zhangboyu.transaction.service.TransactionServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 定期生成快照，使重启耗时只取决于数据量和一个快照周期内的日志量，而与服务运行时长无关。
+ * <p>
+ * 不阻塞写入：先切换日志段，再依次获取并释放每个分段锁，确保切换前已写日志的写线程都已修改完内存；
+ * 之后遍历的内存状态至少包含旧段中的全部记录，旧段即可在快照落盘后删除。
+ */
+@Component
+@Slf4j
+public class Snapshotter {
+    @Autowired
+    private SnapshotStore snapshotStore;
+    @Autowired
+    private WriteAheadLog writeAheadLog;
+    @Autowired
+    private StripedLock keyLocks;
+    @Autowired
+    private TransactionServiceImpl transactionService;
+    @Autowired
+    private IdRepo idRepo;
+
+    // 定时快照与副本全量同步后的立即快照互斥；不用 synchronized，虚拟线程等待日志切换时不钉住载体线程
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    @Scheduled(fixedDelayString = "${transaction.snapshot.interval-ms:600000}",
+            initialDelayString = "${transaction.snapshot.interval-ms:600000}")
+    public void snapshot() {
+        snapshot(false);
+    }
+
+    /**
+     * 立即生成快照，即使上次快照后没有新的日志：副本全量同步后，流水号指纹只能通过快照持久化。
+     */
+    public void snapshotNow() {
+        snapshot(true);
+    }
+
+    private void snapshot(boolean force) {
+        if (!snapshotStore.isEnabled() || !writeAheadLog.isEnabled()) {
+            return;
+        }
+        snapshotLock.lock();
+        try {
+            doSnapshot(force);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private void doSnapshot(boolean force) {
+        if (!force && writeAheadLog.currentSegmentBytes() == 0) {
+            // 上次快照后没有新的写入
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            long segment = writeAheadLog.rollSegment();
+            if (segment < 0) {
+                // 日志已关闭，服务正在停止
+                return;
+            }
+            keyLocks.barrier();
+            snapshotStore.write(segment, transactionService.records(), idRepo.serialEntries(), idRepo.currentId());
+            writeAheadLog.deleteSegmentsBefore(segment);
+            log.info("snapshot done, walSegment:{}, cost:{}ms", segment, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("snapshot error", e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.zhangboyu.transaction.persistence;
+
+import com.zhangboyu.transaction.store.CurrencyDictionary;
+import com.zhangboyu.transaction.store.TransactionRecord;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+import static com.zhangboyu.transaction.store.TransactionRecord.*;
+
+/**
+ * 日志记录的二进制格式：[int 负载长度][int CRC32C][负载]。
+ * 负载：byte 类型 + 字段；字符串为 int 长度（-1 表示 null）+ UTF-8，可空数值字段前有 1 字节存在标记。
+ */
+public final class WalCodec {
+    public static final int HEADER_BYTES = 8;
+
+    private WalCodec() {
+    }
+
+    public static ByteBuffer encode(WalRecord record) {
+        byte[] serialNumber = bytes(record.serialNumber());
+        byte[] transactionNo = bytes(record.transactionNo());
+        TransactionRecord tx = record.transaction();
+        byte[] currency = tx == null ? null : bytes(tx.currency());
+        byte[] remark = tx == null ? null : bytes(tx.remark());
+
+        int payload = 1 + sizeOf(serialNumber) + sizeOf(transactionNo);
+        if (tx != null) {
+            // 5 个可空 long + 2 个可空 int + 2 个时间戳 + 2 个字符串
+            payload += 5 * 9 + 2 * 5 + 2 * 9 + sizeOf(currency) + sizeOf(remark);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload);
+        buffer.position(HEADER_BYTES);
+        buffer.put(record.type().getCode());
+        putBytes(buffer, serialNumber);
+        putBytes(buffer, transactionNo);
+        if (tx != null) {
+            putLong(buffer, !tx.isNull(NULL_FROM), tx.fromAccountId());
+            putLong(buffer, !tx.isNull(NULL_TO), tx.toAccountId());
+            putLong(buffer, !tx.isNull(NULL_AMOUNT), tx.amount());
+            putBytes(buffer, currency);
+            putBytes(buffer, remark);
+            putInt(buffer, !tx.isNull(NULL_TYPE), tx.type());
+            putInt(buffer, !tx.isNull(NULL_STATUS), tx.status());
+            putLong(buffer, !tx.isNull(NULL_CREATE_TIME), tx.createTime());
+            putLong(buffer, !tx.isNull(NULL_CREATOR), tx.creator());
+            putLong(buffer, !tx.isNull(NULL_UPDATE_TIME), tx.updateTime());
+            putLong(buffer, !tx.isNull(NULL_UPDATER), tx.updater());
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), HEADER_BYTES, payload);
+        buffer.putInt(0, payload);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 从 buffer 当前位置解码一条记录并前移 position；剩余字节不足或校验失败（写到一半的尾部）返回 null，position 不变。
+     */
+    public static WalRecord decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int payload = buffer.getInt(start);
+        int checksum = buffer.getInt(start + 4);
+        if (payload <= 0 || buffer.remaining() - HEADER_BYTES < payload) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        ByteBuffer slice = buffer.slice(start + HEADER_BYTES, payload);
+        crc.update(slice);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        buffer.position(start + HEADER_BYTES);
+        WalRecordType type = WalRecordType.of(buffer.get());
+        String serialNumber = getString(buffer);
+        String transactionNo = getString(buffer);
+        TransactionRecord tx = null;
+        if (type != WalRecordType.DELETE) {
+            tx = decodeTransaction(buffer, transactionNo);
+        }
+        buffer.position(start + HEADER_BYTES + payload);
+        return new WalRecord(type, serialNumber, transactionNo, tx);
+    }
+
+    private static TransactionRecord decodeTransaction(ByteBuffer buffer, String transactionNo) {
+        int nulls = absent(buffer, NULL_FROM);
+        long from = buffer.getLong();
+        nulls |= absent(buffer, NULL_TO);
+        long to = buffer.getLong();
+        nulls |= absent(buffer, NULL_AMOUNT);
+        long amount = buffer.getLong();
+        String currency = getString(buffer);
+        nulls |= currency == null ? NULL_CURRENCY : 0;
+        String remark = getString(buffer);
+        nulls |= remark == null ? NULL_REMARK : 0;
+        nulls |= absent(buffer, NULL_TYPE);
+        int type = buffer.getInt();
+        nulls |= absent(buffer, NULL_STATUS);
+        int status = buffer.getInt();
+        nulls |= absent(buffer, NULL_CREATE_TIME);
+        long createTime = buffer.getLong();
+        nulls |= absent(buffer, NULL_CREATOR);
+        long creator = buffer.getLong();
+        nulls |= absent(buffer, NULL_UPDATE_TIME);
+        long updateTime = buffer.getLong();
+        nulls |= absent(buffer, NULL_UPDATER);
+        long updater = buffer.getLong();
+        return new TransactionRecord(transactionNo, from, to, amount, createTime, updateTime, creator, updater,
+                type, status, currency == null ? 0 : CurrencyDictionary.code(currency), (short) nulls, remark);
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static void putLong(ByteBuffer buffer, boolean present, long value) {
+        buffer.put(present ? (byte) 1 : (byte) 0);
+        buffer.putLong(value);
+    }
+
+    private static void putInt(ByteBuffer buffer, boolean present, int value) {
+        buffer.put(present ? (byte) 1 : (byte) 0);
+        buffer.putInt(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取 1 字节存在标记，字段不存在时返回对应的位图标记，否则返回 0。
+     */
+    private static int absent(ByteBuffer buffer, int field) {
+        return buffer.get() == 0 ? field : 0;
+    }
+}
@@ -0,0 +1,21 @@
+package com.zhangboyu.transaction.persistence;
+
+import com.zhangboyu.transaction.store.TransactionRecord;
+
+/**
+ * 一条日志记录。创建与更新都携带完整的交易内容，重放时直接覆盖，因此重复重放同一条记录是幂等的。
+ */
+public record WalRecord(WalRecordType type, String serialNumber, String transactionNo, TransactionRecord transaction) {
+
+    public static WalRecord create(String serialNumber, TransactionRecord transaction) {
+        return new WalRecord(WalRecordType.CREATE, serialNumber, transaction.transactionNo(), transaction);
+    }
+
+    public static WalRecord update(TransactionRecord transaction) {
+        return new WalRecord(WalRecordType.UPDATE, null, transaction.transactionNo(), transaction);
+    }
+
+    public static WalRecord delete(String transactionNo) {
+        return new WalRecord(WalRecordType.DELETE, null, transactionNo, null);
+    }
+}
@@ -0,0 +1,26 @@
+package com.zhangboyu.transaction.persistence;
+
+public enum WalRecordType {
+    CREATE((byte) 1),
+    UPDATE((byte) 2),
+    DELETE((byte) 3),
+    ;
+    private final byte code;
+
+    WalRecordType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static WalRecordType of(byte code) {
+        for (WalRecordType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("unknown wal record type: " + code);
+    }
+}
@@ -0,0 +1,424 @@
+package com.zhangboyu.transaction.persistence;
+
+import com.zhangboyu.transaction.exception.TransactionException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.SYSTEM_EXCEPTION;
+import static com.zhangboyu.transaction.enums.ErrorEnum.WAL_UNAVAILABLE_EXCEPTION;
+
+/**
+ * 追加写日志（WAL），按段文件存储：wal-{段号}.log。
+ * <p>
+ * 写入采用组提交：业务线程只负责编码并入队，由单个刷盘线程批量写入并只执行一次 fsync，
+ * 同一批次的所有写请求共享这次 fsync。调用方在持有交易锁时 {@link #append} 以保证同一交易的日志顺序，
+ * 释放锁之后再 {@link #awaitDurable} 等待落盘。
+ * <p>
+ * 启动时 {@link #recover} 通过内存映射顺序读取快照之后的段文件重放，末尾写到一半的记录会被截断。
+ * 生成快照前通过 {@link #rollSegment} 切换到新段，快照完成后用 {@link #deleteSegmentsBefore} 删除已被快照覆盖的段。
+ * <p>
+ * 调用方在 append 之后、落盘之前已把变更应用到内存，写入或刷盘失败时内存中已有日志里没有的变更，无法通过重试补回。
+ * 因此任何写入失败都进入不可用状态：先把段截回这一批写入前的位置，段尾不留半条记录（否则重启恢复会在此截断并删除之后的段），
+ * 然后队列中和之后的写入立即失败，不再继续写入，需排查后重启，按快照和日志重放使内存与日志重新一致。
+ */
+@Component
+@Slf4j
+public class WriteAheadLog {
+    private static final String SEGMENT_PREFIX = "wal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // 单个段最大 1GB，保证整个段可以一次映射
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private static final int MAX_BATCH = 4096;
+
+    private final boolean enabled;
+
+    private final Path dir;
+
+    private final long segmentBytes;
+
+    private final boolean fsync;
+
+    private final LinkedBlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+    // 以下字段只由刷盘线程访问（启动阶段除外）
+    private FileChannel channel;
+
+    private volatile long segmentIndex;
+
+    private volatile long segmentSize;
+
+    private Thread flusher;
+
+    private volatile boolean running;
+
+    // 不为 null 表示日志已不可写
+    private volatile Throwable failure;
+
+    // data 为 null 表示切换日志段的标记
+    private record PendingWrite(ByteBuffer data, CompletableFuture<Void> durable) {
+    }
+
+    private record SegmentReplay(long records, boolean complete) {
+    }
+
+    @Autowired
+    public WriteAheadLog(@Value("${transaction.wal.enabled:false}") boolean enabled,
+                         @Value("${transaction.wal.dir:data/wal}") String dir,
+                         @Value("${transaction.wal.segment-size-mb:256}") long segmentSizeMb,
+                         @Value("${transaction.wal.fsync:true}") boolean fsync) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.segmentBytes = Math.min(segmentSizeMb << 20, MAX_SEGMENT_BYTES);
+        this.fsync = fsync;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 从 fromSegment 号段开始按顺序重放日志，更早的段已被快照覆盖直接删除；然后打开新段并启动刷盘线程。返回重放的记录数。
+     */
+    public long recover(long fromSegment, Consumer<WalRecord> consumer) {
+        if (!enabled) {
+            return 0;
+        }
+        try {
+            Files.createDirectories(dir);
+            segmentIndex = fromSegment - 1;
+            List<Path> segments = listSegments();
+            long count = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                Path segment = segments.get(i);
+                if (segmentIndex(segment) < fromSegment) {
+                    Files.delete(segment);
+                    continue;
+                }
+                SegmentReplay replay = replaySegment(segment, consumer);
+                count += replay.records();
+                segmentIndex = segmentIndex(segment);
+                if (!replay.complete()) {
+                    // 不完整记录之后写入的段不再可信
+                    for (Path later : segments.subList(i + 1, segments.size())) {
+                        log.error("wal segment {} follows a torn record, removed", later);
+                        Files.delete(later);
+                    }
+                    break;
+                }
+            }
+            openSegment(segmentIndex + 1);
+            running = true;
+            flusher = Thread.ofPlatform().daemon().name("wal-flusher").start(this::flushLoop);
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("wal recover failed, dir:" + dir, e);
+        }
+    }
+
+    private SegmentReplay replaySegment(Path segment, Consumer<WalRecord> consumer) throws IOException {
+        long records = 0;
+        try (FileChannel readChannel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = readChannel.size();
+            if (size == 0) {
+                return new SegmentReplay(0, true);
+            }
+            MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            WalRecord record;
+            while ((record = WalCodec.decode(buffer)) != null) {
+                consumer.accept(record);
+                records++;
+            }
+            if (buffer.hasRemaining()) {
+                log.warn("wal segment {} has {} bytes of torn tail, truncated at {}", segment, buffer.remaining(), buffer.position());
+                readChannel.truncate(buffer.position());
+                return new SegmentReplay(records, false);
+            }
+            return new SegmentReplay(records, true);
+        }
+    }
+
+    /**
+     * 切换到新的日志段并返回新段号：此后入队的记录都写入新段及之后的段。未启用时返回 -1。
+     */
+    public long rollSegment() {
+        if (!enabled || !running) {
+            return -1;
+        }
+        CompletableFuture<Void> rolled = new CompletableFuture<>();
+        queue.add(new PendingWrite(null, rolled));
+        awaitDurable(rolled);
+        return segmentIndex;
+    }
+
+    /**
+     * 当前段已写入的字节数，用于判断上次快照后是否有新的写入。
+     */
+    public long currentSegmentBytes() {
+        return segmentSize;
+    }
+
+    /**
+     * 日志是否因写入失败不可用。
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * 日志不可用时拒绝写入。写入方法在判重之前调用：失败写入的变更仍留在内存中，重试不能按“已存在”返回成功。
+     */
+    public void checkWritable() {
+        if (failure != null) {
+            throw new TransactionException(WAL_UNAVAILABLE_EXCEPTION);
+        }
+    }
+
+    public void deleteSegmentsBefore(long index) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (Path segment : listSegments()) {
+                if (segmentIndex(segment) < index) {
+                    Files.delete(segment);
+                }
+            }
+        } catch (IOException e) {
+            log.error("wal delete segments error, before:{}", index, e);
+        }
+    }
+
+    /**
+     * 编码并入队，返回落盘完成的 future；未启用时返回 null。
+     */
+    public CompletableFuture<Void> append(WalRecord record) {
+        if (!enabled) {
+            return null;
+        }
+        if (!running) {
+            log.error("wal is not running, transactionNo:{}", record.transactionNo());
+            throw new TransactionException(SYSTEM_EXCEPTION);
+        }
+        checkWritable();
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        queue.add(new PendingWrite(WalCodec.encode(record), durable));
+        return durable;
+    }
+
+    /**
+     * 等待 append 返回的 future 落盘。落盘失败时内存状态已生效而日志没有，日志已进入不可用状态，
+     * 返回日志不可用，之后的写入同样被拒绝，直到重启按日志重放。
+     */
+    public void awaitDurable(CompletableFuture<Void> durable) {
+        if (durable == null) {
+            return;
+        }
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            log.error("wal write failed", e.getCause());
+            throw new TransactionException(WAL_UNAVAILABLE_EXCEPTION);
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+                failAll(batch, e);
+                break;
+            } catch (Throwable e) {
+                // 刷盘线程不能退出，否则等待落盘的写线程会一直阻塞
+                fail(e);
+                failAll(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+        // 被中断退出或停止后才入队的写入
+        queue.drainTo(batch);
+        failAll(batch, failure != null ? failure : new IOException("wal closed"));
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        int from = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i).data() == null) {
+                writeRecords(batch.subList(from, i));
+                roll(batch.get(i));
+                from = i + 1;
+            }
+        }
+        writeRecords(batch.subList(from, batch.size()));
+    }
+
+    private void roll(PendingWrite marker) {
+        if (failure != null) {
+            marker.durable().completeExceptionally(failure);
+            return;
+        }
+        try {
+            closeSegment();
+            openSegment(segmentIndex + 1);
+            marker.durable().complete(null);
+        } catch (IOException e) {
+            fail(e);
+            marker.durable().completeExceptionally(e);
+        }
+    }
+
+    private void writeRecords(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (failure != null) {
+            failAll(batch, failure);
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        long bytes = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = batch.get(i).data();
+            bytes += buffers[i].remaining();
+        }
+        try {
+            long written = 0;
+            while (written < bytes) {
+                written += channel.write(buffers);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            discardTail();
+            fail(e);
+            failAll(batch, e);
+            return;
+        }
+        segmentSize += bytes;
+        for (PendingWrite pendingWrite : batch) {
+            pendingWrite.durable().complete(null);
+        }
+        if (segmentSize >= segmentBytes) {
+            try {
+                closeSegment();
+                openSegment(segmentIndex + 1);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * 截掉失败批次已写入的部分，段尾回到最后一条完整记录之后；截断失败时重启恢复会按残缺记录截断。
+     */
+    private void discardTail() {
+        try {
+            channel.truncate(segmentSize);
+            channel.force(true);
+            log.warn("wal write failed, segment {} truncated back to {}", segmentIndex, segmentSize);
+        } catch (IOException e) {
+            log.error("wal truncate failed, segment:{}, size:{}", segmentIndex, segmentSize, e);
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (failure == null) {
+            failure = e;
+            log.error("wal unavailable, segment:{}, size:{}", segmentIndex, segmentSize, e);
+        }
+    }
+
+    private static void failAll(List<PendingWrite> batch, Throwable e) {
+        for (PendingWrite pendingWrite : batch) {
+            pendingWrite.durable().completeExceptionally(e);
+        }
+    }
+
+    FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void openSegment(long index) throws IOException {
+        segmentIndex = index;
+        channel = openChannel(segmentPath(index));
+        segmentSize = channel.size();
+    }
+
+    private void closeSegment() throws IOException {
+        if (channel != null) {
+            channel.force(true);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentIndex(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!running) {
+            return;
+        }
+        // 不中断刷盘线程：FileChannel 被中断会直接关闭通道；刷盘线程写完队列剩余记录后自行退出
+        running = false;
+        try {
+            flusher.join();
+            closeSegment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("wal close error, dir:{}", dir, e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.zhangboyu.transaction.replication;
+
+import com.zhangboyu.transaction.enums.ReplicationRole;
+import com.zhangboyu.transaction.exception.TransactionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.READ_ONLY_REPLICA_EXCEPTION;
+import static com.zhangboyu.transaction.enums.ErrorEnum.REPLICA_STALE_EXCEPTION;
+
+/**
+ * 本节点的复制角色与副本进度。主节点接受写入；副本只读，由 Replicator 从主节点拉取快照和变更流。
+ * <p>
+ * 副本延迟按“最近一次确认追上主节点的拉取请求的发出时间”估计：那次拉取读到了主节点当时的最新序号，
+ * 请求发出前主节点已提交的变更一定都已应用，因此当前时间与它的差是数据落后的上界，不依赖两台机器的时钟一致。
+ */
+@Component
+@Slf4j
+public class ReplicationState {
+    private volatile ReplicationRole role;
+
+    private volatile String primaryUrl;
+
+    // 已应用到的主节点变更序号
+    private volatile long appliedSequence;
+
+    // 最近一次确认追上主节点的拉取请求发出时间，0 表示切换主节点后还没有追上过
+    private volatile long caughtUpAt;
+
+    // 角色或主节点每变化一次加一，只在 Replicator 的 applyLock 内修改
+    private volatile long epoch;
+
+    @Autowired
+    public ReplicationState(@Value("${transaction.replication.role:primary}") String role,
+                            @Value("${transaction.replication.primary-url:}") String primaryUrl) {
+        this.role = ReplicationRole.valueOf(role.trim().toUpperCase());
+        if (this.role == ReplicationRole.FOLLOWER && !StringUtils.hasText(primaryUrl)) {
+            throw new IllegalArgumentException("transaction.replication.primary-url is required for follower");
+        }
+        this.primaryUrl = normalize(primaryUrl);
+    }
+
+    public ReplicationRole role() {
+        return role;
+    }
+
+    public boolean isFollower() {
+        return role == ReplicationRole.FOLLOWER;
+    }
+
+    public String primaryUrl() {
+        return primaryUrl;
+    }
+
+    public long appliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * 复制纪元：提升或切换主节点后变化，此前开始的同步作废。
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * 副本拒绝写入。
+     */
+    public void checkWritable() {
+        if (role == ReplicationRole.FOLLOWER) {
+            throw new TransactionException(READ_ONLY_REPLICA_EXCEPTION);
+        }
+    }
+
+    /**
+     * 数据落后主节点的上界（毫秒）：主节点为 0，副本尚未追上过时为 Long.MAX_VALUE。
+     */
+    public long lagMillis() {
+        if (role != ReplicationRole.FOLLOWER) {
+            return 0;
+        }
+        long at = caughtUpAt;
+        return at == 0 ? Long.MAX_VALUE : Math.max(0, System.currentTimeMillis() - at);
+    }
+
+    /**
+     * 有界陈旧读：落后超过 maxStalenessMillis 时拒绝读取。
+     */
+    public void checkStaleness(long maxStalenessMillis) {
+        if (lagMillis() > maxStalenessMillis) {
+            throw new TransactionException(REPLICA_STALE_EXCEPTION);
+        }
+    }
+
+    void follow(String primaryUrl) {
+        this.primaryUrl = normalize(primaryUrl);
+        this.caughtUpAt = 0;
+        this.role = ReplicationRole.FOLLOWER;
+        this.epoch++;
+        log.info("replication role: follower, primary:{}", this.primaryUrl);
+    }
+
+    void promote() {
+        this.role = ReplicationRole.PRIMARY;
+        this.epoch++;
+        log.info("replication role: primary, appliedSequence:{}", appliedSequence);
+    }
+
+    /**
+     * 记录已应用到的序号；requestedAt 大于 0 表示这次拉取已追上主节点。
+     */
+    void applied(long sequence, long requestedAt) {
+        this.appliedSequence = sequence;
+        if (requestedAt > 0) {
+            this.caughtUpAt = requestedAt;
+        }
+    }
+
+    private static String normalize(String url) {
+        // 去掉末尾的 /，拉取时直接拼接路径
+        return url == null ? "" : url.trim().replaceAll("/+$", "");
+    }
+}
@@ -0,0 +1,20 @@
+package com.zhangboyu.transaction.replication;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ReplicationWebConfig implements WebMvcConfigurer {
+    @Autowired
+    private StalenessInterceptor stalenessInterceptor;
+
+    /**
+     * 对外查询接口按副本延迟做有界陈旧读检查。
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(stalenessInterceptor).addPathPatterns("/api/v1/**");
+    }
+}
@@ -0,0 +1,332 @@
+package com.zhangboyu.transaction.replication;
+
+import com.zhangboyu.transaction.converter.TransactionConverter;
+import com.zhangboyu.transaction.dto.response.BaseResponse;
+import com.zhangboyu.transaction.dto.response.ChangeData;
+import com.zhangboyu.transaction.entity.ChangeEvent;
+import com.zhangboyu.transaction.enums.ChangeType;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.persistence.SnapshotStore;
+import com.zhangboyu.transaction.persistence.Snapshotter;
+import com.zhangboyu.transaction.repo.IdRepo;
+import com.zhangboyu.transaction.service.TransactionServiceImpl;
+import com.zhangboyu.transaction.store.TransactionRecord;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.CHANGE_EXPIRED_EXCEPTION;
+import static com.zhangboyu.transaction.enums.ErrorEnum.NODE_UNAVAILABLE_EXCEPTION;
+
+/**
+ * 副本同步：先从主节点拉取一份快照做全量同步，再长轮询主节点的变更流（/api/v1/changes）逐批应用。
+ * <p>
+ * 全量同步：主节点先取当前最新序号再遍历主表，序号之前的变更都已包含在快照中，遍历期间的新变更可能部分可见；
+ * 副本覆盖快照中的全部交易、删除快照中没有的本地交易，再从该序号之后重放变更流，重放是幂等覆盖，最终与主节点一致。
+ * 启动、变更序号过期（落后超过主节点的变更缓冲或主节点重启）和切换主节点时都会重新全量同步，本地已有的数据只做差异修正。
+ * <p>
+ * 应用每一批变更与角色切换互斥：提升为主节点时等正在应用的一批完成后才开始接受写入，之后不再应用旧主节点的变更；
+ * 下载快照和长轮询等待都不持有该锁。
+ */
+@Component
+@Slf4j
+public class Replicator {
+    private static final String SNAPSHOT_PATH = "/internal/v1/replication/snapshot";
+
+    private static final String CHANGES_PATH = "/api/v1/changes?after={after}&limit={limit}&waitMs={waitMs}";
+
+    // 全量同步期间被提升或切换了主节点，中止本次同步
+    private static final ResyncAbortedException RESYNC_ABORTED = new ResyncAbortedException();
+
+    private static final class ResyncAbortedException extends RuntimeException {
+        private ResyncAbortedException() {
+            super("resync aborted", null, false, false);
+        }
+    }
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private ReplicationState state;
+
+    @Autowired
+    private SnapshotStore snapshotStore;
+
+    @Autowired
+    private Snapshotter snapshotter;
+
+    @Autowired
+    private IdRepo idRepo;
+
+    @Autowired
+    private TransactionConverter transactionConverter;
+
+    private final RestClient restClient;
+
+    private final int batchSize;
+
+    private final long pollWaitMillis;
+
+    private final long retryIntervalMillis;
+
+    private final ReentrantLock applyLock = new ReentrantLock();
+
+    private final ReentrantLock workerLock = new ReentrantLock();
+
+    // 同步线程，只在副本角色下运行，由 workerLock 保护
+    private Thread worker;
+
+    private volatile boolean resyncRequired = true;
+
+    private volatile boolean stopped;
+
+    @Autowired
+    public Replicator(RestClient.Builder builder,
+                      @Value("${transaction.replication.batch-size:1000}") int batchSize,
+                      @Value("${transaction.replication.poll-wait-ms:500}") long pollWaitMillis,
+                      @Value("${transaction.replication.retry-interval-ms:1000}") long retryIntervalMillis,
+                      @Value("${transaction.replication.timeout-ms:5000}") long timeoutMillis) {
+        this.batchSize = batchSize;
+        this.pollWaitMillis = pollWaitMillis;
+        this.retryIntervalMillis = retryIntervalMillis;
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(timeoutMillis)).build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        // 长轮询本身最多等待 pollWaitMillis
+        requestFactory.setReadTimeout(Duration.ofMillis(timeoutMillis + pollWaitMillis));
+        this.restClient = builder.requestFactory(requestFactory).build();
+    }
+
+    /**
+     * 启动恢复完成后，副本开始同步。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (state.isFollower()) {
+            startWorker();
+        }
+    }
+
+    /**
+     * 提升为主节点：等待正在应用的一批完成，之后停止同步并接受写入。
+     */
+    public void promote() {
+        applyLock.lock();
+        try {
+            state.promote();
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    /**
+     * 改为跟随指定的主节点（故障切换后其余副本改跟新的主节点，或原主节点恢复后作为副本重新加入），重新全量同步。
+     */
+    public void follow(String primaryUrl) {
+        applyLock.lock();
+        try {
+            state.follow(primaryUrl);
+            resyncRequired = true;
+        } finally {
+            applyLock.unlock();
+        }
+        startWorker();
+    }
+
+    private void startWorker() {
+        workerLock.lock();
+        try {
+            if (worker == null && !stopped) {
+                worker = Thread.ofPlatform().daemon().name("replicator").start(this::run);
+            }
+        } finally {
+            workerLock.unlock();
+        }
+    }
+
+    private boolean keepRunning() {
+        workerLock.lock();
+        try {
+            if (stopped || !state.isFollower()) {
+                worker = null;
+                return false;
+            }
+            return true;
+        } finally {
+            workerLock.unlock();
+        }
+    }
+
+    private void run() {
+        while (keepRunning()) {
+            try {
+                if (resyncRequired) {
+                    resync();
+                } else {
+                    pull();
+                }
+            } catch (ResyncAbortedException e) {
+                log.info("replica resync aborted, role:{}, primary:{}", state.role(), state.primaryUrl());
+            } catch (TransactionException e) {
+                if (e.getCode() == CHANGE_EXPIRED_EXCEPTION.getCode()) {
+                    log.warn("replication sequence expired, resync, primary:{}, sequence:{}", state.primaryUrl(), state.appliedSequence());
+                    resyncRequired = true;
+                } else {
+                    log.warn("replication failed, primary:{}, code:{}, message:{}", state.primaryUrl(), e.getCode(), e.getMessage());
+                    pause();
+                }
+            } catch (Exception e) {
+                log.warn("replication failed, primary:{}, error:{}", state.primaryUrl(), e.toString());
+                pause();
+            }
+        }
+    }
+
+    /**
+     * 拉取并应用一批变更。返回的条数不足一批说明已读到主节点的最新序号，以请求发出时间作为追上的时间。
+     */
+    private void pull() {
+        String primaryUrl = state.primaryUrl();
+        long requestedAt = System.currentTimeMillis();
+        BaseResponse<ChangeData> response = restClient.get()
+                .uri(primaryUrl + CHANGES_PATH, state.appliedSequence(), batchSize, pollWaitMillis)
+                .retrieve()
+                // 错误响应体同样是 {code, message}，统一按错误码处理
+                .onStatus(HttpStatusCode::isError, (req, res) -> {
+                })
+                .body(new ParameterizedTypeReference<>() {
+                });
+        if (response == null) {
+            throw new TransactionException(NODE_UNAVAILABLE_EXCEPTION);
+        }
+        if (response.getCode() != 200) {
+            throw new TransactionException(response.getCode(), response.getMessage());
+        }
+        ChangeData data = response.getData();
+        List<ChangeEvent> events = data.getEvents().stream().map(transactionConverter::toChangeEvent).toList();
+        applyLock.lock();
+        try {
+            // 拉取期间已提升为主节点或切换了主节点，这批变更作废
+            if (!state.isFollower() || resyncRequired || !primaryUrl.equals(state.primaryUrl())) {
+                return;
+            }
+            transactionService.applyReplicated(events);
+            state.applied(data.getLastSequence(), events.size() < batchSize ? requestedAt : 0);
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    /**
+     * 全量同步。下载和应用快照不持有 applyLock，只在应用每一批时短暂加锁并检查复制纪元，
+     * 期间被提升或切换了主节点则在下一批之前中止，提升不必等整份快照传完。
+     */
+    private void resync() {
+        long epoch = state.epoch();
+        if (!state.isFollower()) {
+            return;
+        }
+        String primaryUrl = state.primaryUrl();
+        long start = System.currentTimeMillis();
+        Set<String> seen = new HashSet<>();
+        List<ChangeEvent> chunk = new ArrayList<>(batchSize);
+        long sequence = restClient.get()
+                .uri(primaryUrl + SNAPSHOT_PATH)
+                .exchange((request, response) -> {
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        throw new TransactionException(NODE_UNAVAILABLE_EXCEPTION);
+                    }
+                    return snapshotStore.readFrom(response.getBody(), primaryUrl, record -> {
+                        seen.add(record.transactionNo());
+                        chunk.add(new ChangeEvent(0, ChangeType.UPDATE, record.transactionNo(), null, null, record.toTransaction()));
+                        if (chunk.size() >= batchSize) {
+                            apply(epoch, chunk);
+                            chunk.clear();
+                        }
+                    }, entry -> {
+                        checkEpoch(epoch);
+                        idRepo.restore(entry);
+                    }, idRepo::restoreCounter);
+                });
+        apply(epoch, chunk);
+        // 本地有、快照中没有的交易在快照序号之前已被删除（之后重建的由变更流重放）
+        List<ChangeEvent> deletes = new ArrayList<>();
+        long deleted = 0;
+        for (TransactionRecord record : transactionService.records()) {
+            if (!seen.contains(record.transactionNo())) {
+                deletes.add(new ChangeEvent(0, ChangeType.DELETE, record.transactionNo(), null, record.toTransaction(), null));
+                if (deletes.size() >= batchSize) {
+                    apply(epoch, deletes);
+                    deleted += deletes.size();
+                    deletes.clear();
+                }
+            }
+        }
+        apply(epoch, deletes);
+        deleted += deletes.size();
+        applyLock.lock();
+        try {
+            checkEpoch(epoch);
+            resyncRequired = false;
+            state.applied(sequence, 0);
+        } finally {
+            applyLock.unlock();
+        }
+        log.info("replica resynced, primary:{}, sequence:{}, transactions:{}, deleted:{}, cost:{}ms",
+                primaryUrl, sequence, seen.size(), deleted, System.currentTimeMillis() - start);
+        // 流水号指纹不写日志，立即快照使其持久化，提升为主节点并重启后仍能判重
+        snapshotter.snapshotNow();
+    }
+
+    private void apply(long epoch, List<ChangeEvent> events) {
+        applyLock.lock();
+        try {
+            checkEpoch(epoch);
+            transactionService.applyReplicated(events);
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    private void checkEpoch(long epoch) {
+        if (state.epoch() != epoch) {
+            throw RESYNC_ABORTED;
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(retryIntervalMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        Thread thread;
+        workerLock.lock();
+        try {
+            stopped = true;
+            thread = worker;
+        } finally {
+            workerLock.unlock();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.zhangboyu.transaction.replication;
+
+import com.zhangboyu.transaction.exception.TransactionException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.ARGUMENT_EXCEPTION;
+
+/**
+ * 副本上的有界陈旧读：请求头 X-Max-Staleness-Ms 指定可接受的最大落后毫秒数，超过时返回副本落后错误，由客户端改读主节点。
+ * 副本的读响应都带 X-Replication-Lag-Ms 头（尚未追上主节点时不带）。主节点不落后，直接放行。
+ */
+@Component
+public class StalenessInterceptor implements HandlerInterceptor {
+    static final String MAX_STALENESS_HEADER = "X-Max-Staleness-Ms";
+
+    static final String LAG_HEADER = "X-Replication-Lag-Ms";
+
+    @Autowired
+    private ReplicationState state;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!state.isFollower() || !"GET".equals(request.getMethod())) {
+            return true;
+        }
+        long lag = state.lagMillis();
+        if (lag != Long.MAX_VALUE) {
+            response.setHeader(LAG_HEADER, Long.toString(lag));
+        }
+        String maxStaleness = request.getHeader(MAX_STALENESS_HEADER);
+        if (maxStaleness != null) {
+            long maxStalenessMillis;
+            try {
+                maxStalenessMillis = Long.parseLong(maxStaleness.trim());
+            } catch (NumberFormatException e) {
+                throw new TransactionException(ARGUMENT_EXCEPTION);
+            }
+            state.checkStaleness(maxStalenessMillis);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package com.zhangboyu.transaction.repo;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 持久化的 ID 高水位：生成器分配出去的值不超过已落盘的高水位，重启后从高水位之后继续分配。
+ * 每次落盘额外预留 lease 的余量，正常分配路径只需读一次 volatile，只有越过高水位时才加锁写盘。
+ */
+@Slf4j
+final class HighWaterMark implements Closeable {
+    private final FileChannel channel;
+
+    private final long lease;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final long initial;
+
+    private volatile long mark;
+
+    private HighWaterMark(FileChannel channel, long lease, long initial) {
+        this.channel = channel;
+        this.lease = lease;
+        this.initial = initial;
+        this.mark = channel == null ? Long.MAX_VALUE : initial;
+    }
+
+    /**
+     * 不持久化，仅用于测试和未配置文件的场景。
+     */
+    static HighWaterMark none() {
+        return new HighWaterMark(null, 0, 0);
+    }
+
+    static HighWaterMark open(String file, long lease) {
+        Path path = Paths.get(file);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long initial = 0;
+            if (channel.size() >= Long.BYTES) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                channel.read(buffer, 0);
+                initial = buffer.flip().getLong();
+            }
+            return new HighWaterMark(channel, lease, initial);
+        } catch (IOException e) {
+            throw new UncheckedIOException("open id high water mark failed, file:" + file, e);
+        }
+    }
+
+    /**
+     * 启动时读到的高水位，之前分配出去的值都不超过它；没有记录时为 0。
+     */
+    long initial() {
+        return initial;
+    }
+
+    /**
+     * 保证 value 不超过已落盘的高水位，返回后 value 才能分配出去。
+     */
+    void ensure(long value) {
+        if (value <= mark) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (value <= mark) {
+                return;
+            }
+            long next = value + lease;
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(next).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            channel.force(false);
+            mark = next;
+        } catch (IOException e) {
+            log.error("persist id high water mark error, value:{}", value, e);
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
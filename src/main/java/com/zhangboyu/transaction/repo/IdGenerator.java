@@ -0,0 +1,24 @@
+package com.zhangboyu.transaction.repo;
+
+/**
+ * 交易号数值生成器，实现需保证并发下不重复、重启后不重复。
+ */
+public interface IdGenerator {
+    long next();
+
+    /**
+     * 一次领取 ids.length 个 ID。
+     */
+    void next(long[] ids);
+
+    /**
+     * 已分配出去的 ID 上界，供快照记录。
+     */
+    long current();
+
+    /**
+     * 推进生成器，保证调用返回之后分配的 ID 不会与 id 重复。除启动恢复外，副本应用复制来的交易和全量同步时也会调用，
+     * 实现需允许与取号并发。
+     */
+    void advanceTo(long id);
+}
@@ -1,21 +1,226 @@
 package com.zhangboyu.transaction.repo;
 
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.function.LongPredicate;
 
 @Component
+@Slf4j
 public class IdRepo {
-    private final AtomicLong idGenerator = new AtomicLong(1000);
+    // 自增序号模式下第一个交易号为 INITIAL_ID + 1
+    private static final long INITIAL_ID = 1000;
 
-    private final ConcurrentHashMap<String, String> serialNumMap = new ConcurrentHashMap<>();
+    // 高水位每次落盘预留的序号数量
+    private static final long SEQUENCE_LEASE = 100_000;
 
+    // 默认幂等窗口：24 小时、一千万个流水号
+    private static final long DEFAULT_WINDOW_TTL_MILLIS = 86_400_000L;
+
+    private static final long DEFAULT_WINDOW_CAPACITY = 10_000_000L;
+
+    private final IdGenerator idGenerator;
+
+    private final HighWaterMark highWater;
+
+    private final SerialIndex serialIndex;
+
+    // 集群模式下只分配归属本节点的交易号，为空表示不限
+    private volatile LongPredicate owned;
+
+    public IdRepo() {
+        this(new SequenceIdGenerator(INITIAL_ID, 100, defaultStripes(), HighWaterMark.none()), HighWaterMark.none(),
+                new SerialIndex(DEFAULT_WINDOW_TTL_MILLIS, DEFAULT_WINDOW_CAPACITY));
+    }
+
+    IdRepo(IdGenerator idGenerator, HighWaterMark highWater, SerialIndex serialIndex) {
+        this.idGenerator = idGenerator;
+        this.highWater = highWater;
+        this.serialIndex = serialIndex;
+    }
+
+    @Autowired
+    public IdRepo(@Value("${transaction.id.mode:sequence}") String mode,
+                  @Value("${transaction.id.node-id:0}") int nodeId,
+                  @Value("${transaction.id.block-size:100}") int blockSize,
+                  @Value("${transaction.id.high-water-file:}") String highWaterFile,
+                  @Value("${transaction.serial.window-ttl-ms:86400000}") long windowTtlMillis,
+                  @Value("${transaction.serial.window-capacity:10000000}") long windowCapacity) {
+        boolean snowflake = "snowflake".equalsIgnoreCase(mode);
+        if (!snowflake && !"sequence".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("unknown transaction.id.mode:" + mode);
+        }
+        this.highWater = StringUtils.hasLength(highWaterFile)
+                ? HighWaterMark.open(highWaterFile, snowflake ? SnowflakeIdGenerator.LEASE : SEQUENCE_LEASE)
+                : HighWaterMark.none();
+        this.idGenerator = snowflake
+                ? new SnowflakeIdGenerator(nodeId, highWater)
+                : new SequenceIdGenerator(INITIAL_ID, blockSize, defaultStripes(), highWater);
+        this.serialIndex = new SerialIndex(windowTtlMillis, windowCapacity);
+        log.info("id generator mode:{}, high water:{}, serial window ttl:{}ms, capacity:{}", mode, highWater.initial(),
+                windowTtlMillis, windowCapacity);
+    }
+
+    private static int defaultStripes() {
+        return Runtime.getRuntime().availableProcessors() * 4;
+    }
+
+    /**
+     * 限制之后分配的交易号都满足 owned，不满足的 ID 直接丢弃（交易号允许不连续）。
+     * 集群模式下各节点只分配哈希环上归属自己的交易号，不同节点分配的交易号互不重复。
+     */
+    public void restrictTo(LongPredicate owned) {
+        this.owned = owned;
+    }
+
+    private long nextId() {
+        LongPredicate filter = owned;
+        long id = idGenerator.next();
+        while (filter != null && !filter.test(id)) {
+            id = idGenerator.next();
+        }
+        return id;
+    }
+
+    private void nextIds(long[] ids) {
+        if (owned == null) {
+            idGenerator.next(ids);
+            return;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nextId();
+        }
+    }
+
+    /**
+     * 幂等窗口内已登记的流水号返回原交易号，否则分配新交易号并登记。
+     */
     public String createTransactionNo(String serialNumber) {
         if (!StringUtils.hasLength(serialNumber)) {
             return null;
         }
-        return serialNumMap.computeIfAbsent(serialNumber, a -> String.valueOf(idGenerator.addAndGet(1)));
+        long fingerprint = SerialIndex.fingerprint(serialNumber);
+        // 已登记的流水号无锁直接返回
+        long transactionNo = serialIndex.get(fingerprint);
+        if (transactionNo == 0) {
+            transactionNo = serialIndex.getOrAssign(fingerprint, this::nextId);
+        }
+        return Long.toString(transactionNo);
+    }
+
+    /**
+     * 只查询不登记：幂等窗口内已登记返回交易号，否则返回 null。
+     */
+    public String findTransactionNo(String serialNumber) {
+        if (!StringUtils.hasLength(serialNumber)) {
+            return null;
+        }
+        long transactionNo = serialIndex.get(SerialIndex.fingerprint(serialNumber));
+        return transactionNo == 0 ? null : Long.toString(transactionNo);
+    }
+
+    /**
+     * 批量分配交易号：已登记的流水号沿用原交易号，其余流水号一次性从生成器领取所需数量的 ID。
+     * 并发时某个流水号被其他线程抢先登记的，以先登记者为准，预留的 ID 作废（交易号允许不连续）。
+     */
+    public String[] createTransactionNos(List<String> serialNumbers) {
+        String[] transactionNos = new String[serialNumbers.size()];
+        long[] fingerprints = new long[transactionNos.length];
+        int missing = 0;
+        for (int i = 0; i < transactionNos.length; i++) {
+            String serialNumber = serialNumbers.get(i);
+            if (StringUtils.hasLength(serialNumber)) {
+                fingerprints[i] = SerialIndex.fingerprint(serialNumber);
+                long transactionNo = serialIndex.get(fingerprints[i]);
+                if (transactionNo == 0) {
+                    missing++;
+                } else {
+                    transactionNos[i] = Long.toString(transactionNo);
+                }
+            }
+        }
+        if (missing == 0) {
+            return transactionNos;
+        }
+        long[] ids = new long[missing];
+        nextIds(ids);
+        PrimitiveIterator.OfLong reserved = Arrays.stream(ids).iterator();
+        for (int i = 0; i < transactionNos.length; i++) {
+            if (transactionNos[i] == null && fingerprints[i] != 0) {
+                // 批内重复或被其他线程抢先登记的流水号不会消耗预留的 ID
+                transactionNos[i] = Long.toString(serialIndex.getOrAssign(fingerprints[i], reserved::nextLong));
+            }
+        }
+        return transactionNos;
+    }
+
+    public long currentId() {
+        return idGenerator.current();
+    }
+
+    /**
+     * 幂等窗口内登记的流水号数量，监控采样用。
+     */
+    public long serialWindowSize() {
+        return serialIndex.size();
+    }
+
+    public Iterable<SerialIndex.Entry> serialEntries() {
+        return serialIndex.entries();
+    }
+
+    /**
+     * 快照恢复时还原 ID 计数器，只会向前推进。
+     */
+    public void restoreCounter(long id) {
+        idGenerator.advanceTo(id);
+    }
+
+    /**
+     * 日志重放时恢复流水号与交易号的映射，并保证之后分配的 ID 不会与已恢复的交易号重复。
+     */
+    public void restore(String serialNumber, String transactionNo) {
+        if (!StringUtils.hasLength(serialNumber) || !StringUtils.hasLength(transactionNo)) {
+            return;
+        }
+        try {
+            long id = Long.parseLong(transactionNo);
+            serialIndex.put(SerialIndex.fingerprint(serialNumber), id);
+            idGenerator.advanceTo(id);
+        } catch (NumberFormatException e) {
+            // 非本系统分配的交易号，不参与幂等判断
+        }
+    }
+
+    /**
+     * 快照加载时恢复流水号指纹与交易号的映射。
+     */
+    public void restore(SerialIndex.Entry entry) {
+        serialIndex.put(entry.fingerprint(), entry.transactionNo());
+        idGenerator.advanceTo(entry.transactionNo());
+    }
+
+    /**
+     * 只有交易号、没有流水号映射时（如沿用堆外存储中已有的数据），保证之后分配的 ID 不与其重复。
+     */
+    public void restoreTransactionNo(String transactionNo) {
+        try {
+            idGenerator.advanceTo(Long.parseLong(transactionNo));
+        } catch (NumberFormatException e) {
+            // 非本系统分配的交易号，不影响 ID 生成
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        highWater.close();
     }
 }
@@ -0,0 +1,101 @@
+package com.zhangboyu.transaction.repo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 分段取号的自增序号：全局计数器只负责按号段（blockSize 个）批量发放，
+ * 线程按线程 ID 落到某个分段，在分段当前号段内用 getAndIncrement 取号，号段用完才访问全局计数器。
+ * <p>
+ * 不同分段的号段交错发放，交易号整体唯一但不严格按创建顺序递增；
+ * 并发换号段失败或重启时，未用完的号段作废，交易号允许不连续。
+ * <p>
+ * {@link #advanceTo} 可与取号并发：先抬高已恢复的下界再推进全局计数器，取号时丢弃号段中不超过下界的 ID 并换新号段，
+ * 因此不需要清空各分段，也不会有线程在推进之后仍从旧号段取到已被占用的 ID。
+ */
+final class SequenceIdGenerator implements IdGenerator {
+    // 号段 [next, end)
+    private record Block(AtomicLong next, long end) {
+    }
+
+    private final AtomicLong counter;
+
+    private final AtomicReferenceArray<Block> blocks;
+
+    private final int mask;
+
+    private final int blockSize;
+
+    private final HighWaterMark highWater;
+
+    // 已恢复的最大 ID，号段中不超过它的 ID 作废
+    private final AtomicLong restored = new AtomicLong();
+
+    SequenceIdGenerator(long initial, int blockSize, int stripes, HighWaterMark highWater) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.counter = new AtomicLong(Math.max(initial, highWater.initial()));
+        this.blocks = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.blockSize = Math.max(1, blockSize);
+        this.highWater = highWater;
+    }
+
+    @Override
+    public long next() {
+        int stripe = stripe();
+        while (true) {
+            Block block = blocks.get(stripe);
+            if (block != null) {
+                long id = block.next().getAndIncrement();
+                if (id < block.end() && id > restored.get()) {
+                    return id;
+                }
+            }
+            long first = reserve(blockSize);
+            // 其他线程已换上新号段时，本次领取的号段作废，改用对方的号段重试
+            blocks.compareAndSet(stripe, block, new Block(new AtomicLong(first), first + blockSize));
+        }
+    }
+
+    @Override
+    public void next(long[] ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        long first = reserve(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = first + i;
+        }
+    }
+
+    @Override
+    public long current() {
+        return counter.get();
+    }
+
+    @Override
+    public void advanceTo(long id) {
+        if (restored.get() >= id) {
+            return;
+        }
+        restored.accumulateAndGet(id, Math::max);
+        if (counter.get() < id) {
+            counter.accumulateAndGet(id, Math::max);
+            highWater.ensure(id);
+        }
+    }
+
+    /**
+     * 从全局计数器领取 n 个连续 ID，返回第一个；高水位落盘后才返回。
+     */
+    private long reserve(int n) {
+        long end = counter.addAndGet(n);
+        highWater.ensure(end);
+        return end - n + 1;
+    }
+
+    private int stripe() {
+        long h = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
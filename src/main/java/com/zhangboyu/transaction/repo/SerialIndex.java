@@ -0,0 +1,331 @@
+package com.zhangboyu.transaction.repo;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 流水号幂等窗口：流水号 -> 交易号，只保留最近 ttl 内且不超过容量的流水号，内存有上界。
+ * <p>
+ * 不保存流水号原文，只保存 64 位指纹。按指纹分为 SHARDS 个分片，每个分片最多保留 GENERATIONS 代开放寻址表（long 指纹 + long 交易号）：
+ * 新流水号总是写入最新一代，最新一代写满（容量 / 分片数 / 代数）或已存在 ttl / GENERATIONS 时换代，超出代数的最老一代整体丢弃；
+ * 最后一次写入早于 ttl 的代在查询时直接忽略（整代一起过期，实际保留 ttl ~ ttl * (1 + 1 / GENERATIONS)）。每一代带一个分块布隆过滤器（3 位落在同一个 long 中），不存在的流水号通常每代只读一个 long。
+ * <p>
+ * 写入、扩容、换代都在分片锁内完成。读不加锁：扩容时整表替换，读到旧表最多漏掉刚写入的项，所以分配交易号以加锁后的查询为准。
+ * 不同流水号的指纹碰撞概率约为 n²/2^65，碰撞时后到的流水号会被当作重复请求。
+ */
+public class SerialIndex {
+    public record Entry(long fingerprint, long transactionNo) {
+    }
+
+    private static final int SHARD_BITS = 6;
+
+    private static final int SHARDS = 1 << SHARD_BITS;
+
+    private static final int GENERATIONS = 4;
+
+    private static final int INITIAL_SLOTS = 1 << 8;
+
+    private final Shard[] shards = new Shard[SHARDS];
+
+    private final long ttlMillis;
+
+    private final int generationCapacity;
+
+    private final LongSupplier clock;
+
+    public SerialIndex(long ttlMillis, long capacity) {
+        this(ttlMillis, capacity, System::currentTimeMillis);
+    }
+
+    SerialIndex(long ttlMillis, long capacity, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.generationCapacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, capacity / SHARDS / GENERATIONS));
+        this.clock = clock;
+        long now = clock.getAsLong();
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(now);
+        }
+    }
+
+    /**
+     * 流水号的 64 位指纹（FNV-1a 后再做一次 fmix64 混合），0 保留为空槽。
+     */
+    public static long fingerprint(String serialNumber) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < serialNumber.length(); i++) {
+            h ^= serialNumber.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * 无锁查询，返回交易号，窗口内不存在时返回 0。
+     */
+    public long get(long fingerprint) {
+        return shard(fingerprint).find(fingerprint, clock.getAsLong());
+    }
+
+    /**
+     * 已存在时返回已有交易号，否则用 supplier 分配一个并登记；同一指纹的并发调用只会分配一次。
+     */
+    public long getOrAssign(long fingerprint, LongSupplier supplier) {
+        Shard shard = shard(fingerprint);
+        shard.lock.lock();
+        try {
+            long now = clock.getAsLong();
+            long transactionNo = shard.find(fingerprint, now);
+            if (transactionNo == 0) {
+                transactionNo = supplier.getAsLong();
+                shard.insert(fingerprint, transactionNo, now);
+            }
+            return transactionNo;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * 登记或覆盖映射，用于快照加载和日志重放。
+     */
+    public void put(long fingerprint, long transactionNo) {
+        Shard shard = shard(fingerprint);
+        shard.lock.lock();
+        try {
+            shard.insert(fingerprint, transactionNo, clock.getAsLong());
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * 各代登记的条数之和（含已过期但尚未丢弃的代）。
+     */
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            for (Generation generation : shard.generations) {
+                size += generation.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 窗口内全部映射的弱一致视图，每个分片由老到新，供快照按顺序重新登记后仍是新值覆盖旧值。
+     */
+    public Iterable<Entry> entries() {
+        return EntryIterator::new;
+    }
+
+    private Shard shard(long fingerprint) {
+        return shards[(int) (fingerprint >>> (64 - SHARD_BITS))];
+    }
+
+    private final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // [0] 为最新一代
+        private volatile Generation[] generations;
+
+        private Shard(long now) {
+            this.generations = new Generation[]{new Generation(now, INITIAL_SLOTS)};
+        }
+
+        private long find(long fingerprint, long now) {
+            for (Generation generation : generations) {
+                if (generation.lastWriteAt < now - ttlMillis) {
+                    // 更老的代最后写入得更早，同样已过期
+                    break;
+                }
+                long transactionNo = generation.table.get(fingerprint);
+                if (transactionNo != 0) {
+                    return transactionNo;
+                }
+            }
+            return 0;
+        }
+
+        // 以下方法调用方需持有分片锁
+
+        private void insert(long fingerprint, long transactionNo, long now) {
+            Generation current = generations[0];
+            if (current.size >= generationCapacity || now - current.createdAt >= ttlMillis / GENERATIONS) {
+                current = rotate(now);
+            }
+            Table table = current.table;
+            if ((current.size + 1) * 4L > table.capacity() * 3L) {
+                table = table.grow();
+                current.table = table;
+            }
+            if (table.put(fingerprint, transactionNo)) {
+                current.size++;
+            }
+            current.lastWriteAt = now;
+        }
+
+        private Generation rotate(long now) {
+            Generation[] old = generations;
+            Generation[] rotated = new Generation[Math.min(old.length + 1, GENERATIONS)];
+            rotated[0] = new Generation(now, INITIAL_SLOTS);
+            System.arraycopy(old, 0, rotated, 1, rotated.length - 1);
+            generations = rotated;
+            return rotated[0];
+        }
+    }
+
+    private static final class Generation {
+        private final long createdAt;
+
+        private volatile long lastWriteAt;
+
+        private volatile Table table;
+
+        // 只在分片锁内修改
+        private volatile int size;
+
+        private Generation(long createdAt, int slots) {
+            this.createdAt = createdAt;
+            this.lastWriteAt = createdAt;
+            this.table = new Table(slots);
+        }
+    }
+
+    /**
+     * 线性探测表，单线程写（分片锁内）、多线程读：先写交易号和过滤器，最后写指纹，读到指纹时交易号一定已可见。
+     */
+    private static final class Table {
+        private final AtomicLongArray keys;
+
+        private final AtomicLongArray values;
+
+        // 每个槽位 16 位
+        private final AtomicLongArray bloom;
+
+        private final int mask;
+
+        private Table(int slots) {
+            this.keys = new AtomicLongArray(slots);
+            this.values = new AtomicLongArray(slots);
+            this.bloom = new AtomicLongArray(Math.max(1, slots >> 2));
+            this.mask = slots - 1;
+        }
+
+        private int capacity() {
+            return mask + 1;
+        }
+
+        private long get(long fingerprint) {
+            if ((bloom.get(bloomWord(fingerprint)) & bloomBits(fingerprint)) != bloomBits(fingerprint)) {
+                return 0;
+            }
+            for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                long key = keys.get(i);
+                if (key == fingerprint) {
+                    return values.get(i);
+                }
+                if (key == 0) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * 返回是否新增；已存在时覆盖交易号。
+         */
+        private boolean put(long fingerprint, long transactionNo) {
+            for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                long key = keys.get(i);
+                if (key == fingerprint) {
+                    values.set(i, transactionNo);
+                    return false;
+                }
+                if (key == 0) {
+                    int word = bloomWord(fingerprint);
+                    bloom.set(word, bloom.get(word) | bloomBits(fingerprint));
+                    values.set(i, transactionNo);
+                    keys.set(i, fingerprint);
+                    return true;
+                }
+            }
+        }
+
+        private Table grow() {
+            Table grown = new Table(capacity() << 1);
+            for (int i = 0; i < capacity(); i++) {
+                long key = keys.get(i);
+                if (key != 0) {
+                    grown.put(key, values.get(i));
+                }
+            }
+            return grown;
+        }
+
+        // 槽位用指纹低位，过滤器用中间的位，分片用最高 6 位，三者互不相关
+        private int bloomWord(long fingerprint) {
+            return (int) (fingerprint >>> 38) & (bloom.length() - 1);
+        }
+
+        private static long bloomBits(long fingerprint) {
+            return (1L << (fingerprint >>> 20)) | (1L << (fingerprint >>> 26)) | (1L << (fingerprint >>> 32));
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry> {
+        private final long now = clock.getAsLong();
+
+        private int shard = -1;
+
+        private Generation[] generations = new Generation[0];
+
+        private int generation = -1;
+
+        private Table table;
+
+        private int slot;
+
+        private Entry next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (table != null && slot < table.capacity()) {
+                    long key = table.keys.get(slot);
+                    if (key != 0) {
+                        next = new Entry(key, table.values.get(slot));
+                    }
+                    slot++;
+                } else if (generation >= 0) {
+                    Generation current = generations[generation--];
+                    table = current.lastWriteAt < now - ttlMillis ? null : current.table;
+                    slot = 0;
+                } else if (shard + 1 < SHARDS) {
+                    generations = shards[++shard].generations;
+                    generation = generations.length - 1;
+                    table = null;
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry entry = next;
+            next = null;
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.zhangboyu.transaction.repo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花 ID：41 位毫秒时间戳（自 2024-01-01 起）| 10 位节点号 | 12 位序号，多节点按节点号区分，无需协调。
+ * <p>
+ * 时间戳和序号合并为一个 AtomicLong 状态，取号为一次 CAS：同一毫秒内序号递增，序号用尽时借用下一毫秒；
+ * 时钟回拨时沿用上次的状态继续递增，同一节点生成的 ID 始终单调递增。
+ * 高水位按状态持久化，重启后即使时钟回拨也不会重复。{@link #advanceTo} 与取号在同一状态上做原子的取最大值，可以并发。
+ */
+final class SnowflakeIdGenerator implements IdGenerator {
+    static final long EPOCH = 1704067200000L;
+
+    static final int NODE_BITS = 10;
+
+    static final int SEQUENCE_BITS = 12;
+
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    // 每次持久化高水位预留 10 秒
+    static final long LEASE = 10_000L << SEQUENCE_BITS;
+
+    // (毫秒时间戳 << SEQUENCE_BITS) | 序号
+    private final AtomicLong state;
+
+    private final long node;
+
+    private final HighWaterMark highWater;
+
+    SnowflakeIdGenerator(int nodeId, HighWaterMark highWater) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("snowflake node id must be in [0, " + MAX_NODE_ID + "], nodeId:" + nodeId);
+        }
+        this.node = (long) nodeId << SEQUENCE_BITS;
+        this.state = new AtomicLong(highWater.initial());
+        this.highWater = highWater;
+    }
+
+    @Override
+    public long next() {
+        long now = now();
+        long next = state.updateAndGet(prev -> Math.max(prev + 1, now));
+        highWater.ensure(next);
+        return toId(next);
+    }
+
+    @Override
+    public void next(long[] ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        long now = now();
+        int n = ids.length;
+        long last = state.updateAndGet(prev -> Math.max(prev + 1, now) + n - 1);
+        highWater.ensure(last);
+        for (int i = 0; i < n; i++) {
+            ids[i] = toId(last - n + 1 + i);
+        }
+    }
+
+    @Override
+    public long current() {
+        return toId(state.get());
+    }
+
+    @Override
+    public void advanceTo(long id) {
+        long restored = ((id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS) | (id & ((1L << SEQUENCE_BITS) - 1));
+        if (state.accumulateAndGet(restored, Math::max) == restored) {
+            highWater.ensure(restored);
+        }
+    }
+
+    private long toId(long value) {
+        return ((value >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | node | (value & ((1L << SEQUENCE_BITS) - 1));
+    }
+
+    private static long now() {
+        return (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+    }
+}
@@ -0,0 +1,85 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.service.TransactionServiceImpl.SortKey;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 账户二级索引：账户ID -> 按 (创建时间, 交易号) 排序的索引项集合。
+ * <p>
+ * 同一账户的交易分布在不同的交易锁分段上，集合的创建、写入和清理都在 compute 中完成，
+ * 避免一个线程刚删除空集合、另一个线程又往旧集合里写入导致索引项丢失。
+ */
+public class AccountIndex {
+    private final ConcurrentHashMap<Long, NavigableSet<SortKey>> index = new ConcurrentHashMap<>();
+
+    public void add(long accountId, SortKey sortKey) {
+        index.compute(accountId, (id, keys) -> {
+            if (keys == null) {
+                keys = new ConcurrentSkipListSet<>();
+            }
+            keys.add(sortKey);
+            return keys;
+        });
+    }
+
+    public void remove(long accountId, SortKey sortKey) {
+        index.computeIfPresent(accountId, (id, keys) -> {
+            keys.remove(sortKey);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * 返回游标之后（不含游标）的弱一致视图，cursor 为空时从头开始。
+     */
+    public NavigableSet<SortKey> tail(long accountId, SortKey cursor) {
+        NavigableSet<SortKey> keys = index.get(accountId);
+        if (keys == null) {
+            return Collections.emptyNavigableSet();
+        }
+        return cursor == null ? keys : keys.tailSet(cursor, false);
+    }
+
+    /**
+     * 按顺序合并两个有序集合，两边相同的索引项（转出转入是同一账户）只返回一次。
+     */
+    public static Iterator<SortKey> union(NavigableSet<SortKey> left, NavigableSet<SortKey> right) {
+        Iterator<SortKey> l = left.iterator();
+        Iterator<SortKey> r = right.iterator();
+        return new Iterator<>() {
+            private SortKey nextLeft = l.hasNext() ? l.next() : null;
+            private SortKey nextRight = r.hasNext() ? r.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextLeft != null || nextRight != null;
+            }
+
+            @Override
+            public SortKey next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int compare = nextLeft == null ? 1 : nextRight == null ? -1 : nextLeft.compareTo(nextRight);
+                SortKey result = compare <= 0 ? nextLeft : nextRight;
+                if (compare <= 0) {
+                    nextLeft = l.hasNext() ? l.next() : null;
+                }
+                if (compare >= 0) {
+                    nextRight = r.hasNext() ? r.next() : null;
+                }
+                return result;
+            }
+        };
+    }
+
+    public int accounts() {
+        return index.size();
+    }
+}
@@ -0,0 +1,101 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.service.TransactionServiceImpl.SortKey;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 低基数属性（状态、类型、币种）索引：属性值 -> 按 (创建时间, 交易号) 排序的索引项集合，每个值单独计数。
+ * <p>
+ * 与账户索引不同，属性值很少且几乎所有写入都落在少数几个值上，集合创建后不再删除，
+ * 写入直接操作集合而不经过 compute，避免同一属性值上的写入互相排队。
+ * 新交易的创建时间都接近当前时间，与时间索引一样，每个属性值的索引项按交易号哈希分区，插入分散到各分区的尾部，
+ * 遍历时用 {@link TimeIndex} 的多路归并恢复时间顺序。
+ */
+public class AttributeIndex {
+    private static final class Postings {
+        private final NavigableSet<SortKey>[] partitions;
+
+        private final LongAdder size = new LongAdder();
+
+        @SuppressWarnings("unchecked")
+        private Postings(int count) {
+            partitions = new NavigableSet[count];
+            for (int i = 0; i < count; i++) {
+                partitions[i] = new ConcurrentSkipListSet<>();
+            }
+        }
+
+        private NavigableSet<SortKey> partition(SortKey sortKey) {
+            return partitions[TimeIndex.partitionOf(sortKey, partitions.length)];
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Postings> index = new ConcurrentHashMap<>();
+
+    private final LongAdder entries = new LongAdder();
+
+    private final int partitions;
+
+    /**
+     * partitions 为每个属性值的分区数，0 表示等于 CPU 核数。
+     */
+    public AttributeIndex(int partitions) {
+        this.partitions = TimeIndex.partitionCount(partitions);
+    }
+
+    public void add(long value, SortKey sortKey) {
+        Postings postings = index.get(value);
+        if (postings == null) {
+            postings = index.computeIfAbsent(value, v -> new Postings(partitions));
+        }
+        if (postings.partition(sortKey).add(sortKey)) {
+            postings.size.increment();
+            entries.increment();
+        }
+    }
+
+    public void remove(long value, SortKey sortKey) {
+        Postings postings = index.get(value);
+        if (postings != null && postings.partition(sortKey).remove(sortKey)) {
+            postings.size.decrement();
+            entries.decrement();
+        }
+    }
+
+    public boolean contains(long value, SortKey sortKey) {
+        Postings postings = index.get(value);
+        return postings != null && postings.partition(sortKey).contains(sortKey);
+    }
+
+    /**
+     * 该属性值的索引项数，用于选择过滤查询的驱动索引。
+     */
+    public long size(long value) {
+        Postings postings = index.get(value);
+        return postings == null ? 0 : postings.size.sum();
+    }
+
+    /**
+     * 按顺序遍历 (from, to) 开区间内的索引项，边界为空表示不限；弱一致，遍历期间不阻塞写入。
+     */
+    public Iterator<SortKey> range(long value, SortKey from, SortKey to) {
+        Postings postings = index.get(value);
+        if (postings == null) {
+            return Collections.emptyIterator();
+        }
+        return TimeIndex.merge(postings.partitions, from, to);
+    }
+
+    /**
+     * 全部属性值的索引项总数，监控采样用。
+     */
+    public long entries() {
+        return entries.sum();
+    }
+}
@@ -0,0 +1,117 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.entity.ChangeBatch;
+import com.zhangboyu.transaction.entity.ChangeEvent;
+import com.zhangboyu.transaction.enums.ChangeType;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.store.TransactionRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.CHANGE_EXPIRED_EXCEPTION;
+
+/**
+ * 变更流：每次创建、更新、删除按写入版本号（即变更序号）写入预分配的环形缓冲，消费方从某个序号之后续读。
+ * <p>
+ * 序号 s 固定写入槽位 s & mask。写入方持有交易锁且在提交版本前发布，版本号各不相同，
+ * 环的容量不小于在途版本数上限，同一槽位不会有两个写入方，写入无需加锁或 CAS。
+ * 读取只读到可见水位：水位以内的序号都已提交，槽位中没有该序号的事件说明那次写入失败，直接跳过。
+ * <p>
+ * 槽位按顺序锁方式读写：写入方先把序号置为负数（写入中）再写内容，最后写入序号；
+ * 读取方读内容前后各读一次序号，不一致说明槽位已被新的事件覆盖，消费方落后超过一圈，需重新全量同步。
+ * 旧记录本身不可变，槽位只保存引用，读取时才转换为对外的交易视图。
+ */
+@Component
+public class ChangeLog {
+    private static final ChangeType[] TYPES = ChangeType.values();
+
+    private final VersionManager versions;
+
+    private final int mask;
+
+    private final AtomicLongArray sequences;
+
+    private final byte[] types;
+
+    private final String[] serialNumbers;
+
+    private final TransactionRecord[] befores;
+
+    private final TransactionRecord[] afters;
+
+    @Autowired
+    public ChangeLog(VersionManager versions, @Value("${transaction.cdc.capacity:65536}") int capacity) {
+        this.versions = versions;
+        // 取不小于配置值的 2 的幂，且不小于版本提交环，保证在途写入不会落到同一槽位
+        int size = Math.max(VersionManager.RING_SIZE, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.types = new byte[size];
+        this.serialNumbers = new String[size];
+        this.befores = new TransactionRecord[size];
+        this.afters = new TransactionRecord[size];
+    }
+
+    /**
+     * 发布变更，调用方需持有交易锁，并在提交 sequence 对应的版本之前调用。serialNumber 只有创建时才有。
+     */
+    public void publish(long sequence, ChangeType type, String serialNumber, TransactionRecord before, TransactionRecord after) {
+        int slot = (int) (sequence & mask);
+        sequences.set(slot, -sequence);
+        VarHandle.releaseFence();
+        types[slot] = (byte) type.ordinal();
+        serialNumbers[slot] = serialNumber;
+        befores[slot] = before;
+        afters[slot] = after;
+        sequences.set(slot, sequence);
+    }
+
+    /**
+     * 当前可见的最新序号，新的消费方从这里开始只接收之后的变更。
+     */
+    public long latestSequence() {
+        return versions.visibleVersion();
+    }
+
+    /**
+     * 读取序号大于 after 的变更，最多 limit 条。after 早于本次启动、超出最新序号或已被覆盖时抛出变更过期异常。
+     */
+    public ChangeBatch read(long after, int limit) {
+        long latest = versions.visibleVersion();
+        if (after < versions.initialVersion() || after > latest || latest - after > mask + 1) {
+            throw new TransactionException(CHANGE_EXPIRED_EXCEPTION);
+        }
+        List<ChangeEvent> events = new ArrayList<>(Math.min(limit, (int) (latest - after)));
+        long position = after;
+        while (position < latest && events.size() < limit) {
+            long sequence = position + 1;
+            int slot = (int) (sequence & mask);
+            long stored = sequences.get(slot);
+            if (stored == sequence) {
+                ChangeType type = TYPES[types[slot]];
+                String serialNumber = serialNumbers[slot];
+                TransactionRecord beforeRecord = befores[slot];
+                TransactionRecord afterRecord = afters[slot];
+                VarHandle.acquireFence();
+                if (sequences.get(slot) != sequence) {
+                    throw new TransactionException(CHANGE_EXPIRED_EXCEPTION);
+                }
+                String transactionNo = afterRecord == null ? beforeRecord.transactionNo() : afterRecord.transactionNo();
+                events.add(new ChangeEvent(sequence, type, transactionNo, serialNumber,
+                        beforeRecord == null ? null : beforeRecord.toTransaction(),
+                        afterRecord == null ? null : afterRecord.toTransaction()));
+            } else if (stored > sequence || stored < 0) {
+                // 负数为正在写入的更大序号
+                throw new TransactionException(CHANGE_EXPIRED_EXCEPTION);
+            }
+            position = sequence;
+        }
+        return new ChangeBatch(events, position);
+    }
+}
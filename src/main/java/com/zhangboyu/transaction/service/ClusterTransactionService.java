@@ -0,0 +1,317 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.cluster.ClusterClient;
+import com.zhangboyu.transaction.cluster.ClusterNodes;
+import com.zhangboyu.transaction.cluster.ClusterPageRequest;
+import com.zhangboyu.transaction.cluster.CreateResult;
+import com.zhangboyu.transaction.entity.BatchCreateItem;
+import com.zhangboyu.transaction.entity.Cursor;
+import com.zhangboyu.transaction.entity.CursorPageResult;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.entity.TransactionQuery;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.repo.IdRepo;
+import com.zhangboyu.transaction.service.iface.TransactionService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.ARGUMENT_EXCEPTION;
+import static com.zhangboyu.transaction.enums.ErrorEnum.CONCURRENCY_EXCEPTION;
+
+/**
+ * 集群模式下的交易服务：按一致性哈希环把请求路由到所属节点，本节点的直接交给 {@link TransactionServiceImpl}。
+ * <ul>
+ *     <li>创建按流水号路由，所属节点只分配哈希环上同样归属自己的交易号，流水号映射、日志和数据都在同一节点，
+ *     重启后的幂等判断与单机一致，一次转发即可完成</li>
+ *     <li>更新、删除、存在性判断按交易号路由</li>
+ *     <li>列表、过滤查询和导出向所有节点分散查询：各节点从同一游标之后读取一页，按 (创建时间, 交易号) 归并后取前 pageSize 条，
+ *     下一页游标为最后一条，格式与单机相同</li>
+ * </ul>
+ * 各节点的版本号互相独立，集群列表读取各节点的最新数据，不提供跨节点的分页快照；任一节点不可用时列表请求失败。
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "transaction.cluster.enabled", havingValue = "true")
+@Slf4j
+public class ClusterTransactionService implements TransactionService {
+    // 导出时每次向各节点读取的条数
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    private static final Comparator<Transaction> ORDER = Comparator
+            .comparingLong((Transaction transaction) -> transaction.getCreateTime().getTime())
+            .thenComparing(Transaction::getTransactionNo);
+
+    @Autowired
+    private TransactionServiceImpl local;
+
+    @Autowired
+    private ClusterNodes nodes;
+
+    @Autowired
+    private ClusterClient client;
+
+    @Autowired
+    private CursorCodec cursorCodec;
+
+    @Autowired
+    private IdRepo idRepo;
+
+    @PostConstruct
+    public void init() {
+        idRepo.restrictTo(id -> nodes.isLocal(Long.toString(id)));
+    }
+
+    @Override
+    public String createTransaction(String serialNumber, Transaction transaction) {
+        if (!StringUtils.hasLength(serialNumber)) {
+            return null;
+        }
+        if (!createTransactionIfAbsent(serialNumber, transaction)) {
+            throw new TransactionException(CONCURRENCY_EXCEPTION);
+        }
+        return transaction.getTransactionNo();
+    }
+
+    @Override
+    public boolean createTransactionIfAbsent(String serialNumber, Transaction transaction) {
+        if (!StringUtils.hasLength(serialNumber)) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        String owner = nodes.owner(serialNumber);
+        if (owner.equals(nodes.self())) {
+            return local.createTransactionIfAbsent(serialNumber, transaction);
+        }
+        CreateResult result = client.create(owner, serialNumber, transaction);
+        transaction.setTransactionNo(result.transactionNo());
+        return result.created();
+    }
+
+    /**
+     * 批量创建：按流水号所属节点分组，各组并发提交后把交易号和重复标记回填到原批次。
+     */
+    @Override
+    public int createTransactions(List<BatchCreateItem> items) {
+        Map<String, List<BatchCreateItem>> groups = new HashMap<>();
+        for (BatchCreateItem item : items) {
+            // 流水号为空的项由本节点按单机规则跳过
+            String owner = StringUtils.hasLength(item.getSerialNumber()) ? nodes.owner(item.getSerialNumber()) : nodes.self();
+            groups.computeIfAbsent(owner, k -> new ArrayList<>()).add(item);
+        }
+        Map<List<BatchCreateItem>, CompletableFuture<List<BatchCreateItem>>> remote = new IdentityHashMap<>();
+        groups.forEach((owner, group) -> {
+            if (!owner.equals(nodes.self())) {
+                remote.put(group, client.async(() -> client.createBatch(owner, group)));
+            }
+        });
+        int created = groups.containsKey(nodes.self()) ? local.createTransactions(groups.get(nodes.self())) : 0;
+        for (Map.Entry<List<BatchCreateItem>, CompletableFuture<List<BatchCreateItem>>> entry : remote.entrySet()) {
+            List<BatchCreateItem> group = entry.getKey();
+            List<BatchCreateItem> results = join(entry.getValue());
+            for (int i = 0; i < group.size(); i++) {
+                BatchCreateItem result = results.get(i);
+                group.get(i).setTransactionNo(result.getTransactionNo());
+                group.get(i).setDuplicate(result.isDuplicate());
+                group.get(i).getTransaction().setTransactionNo(result.getTransactionNo());
+                if (result.getTransactionNo() != null && !result.isDuplicate()) {
+                    created++;
+                }
+            }
+        }
+        return created;
+    }
+
+    @Override
+    public void deleteTransaction(String transactionNo) {
+        if (!StringUtils.hasLength(transactionNo)) {
+            return;
+        }
+        String owner = nodes.owner(transactionNo);
+        if (owner.equals(nodes.self())) {
+            local.deleteTransaction(transactionNo);
+        } else {
+            client.delete(owner, transactionNo);
+        }
+    }
+
+    @Override
+    public void updateTransaction(Transaction transaction) {
+        String owner = nodes.owner(transaction.getTransactionNo());
+        if (owner.equals(nodes.self())) {
+            local.updateTransaction(transaction);
+        } else {
+            client.update(owner, transaction);
+        }
+    }
+
+    @Override
+    public CursorPageResult<Transaction> listAllTransaction(Cursor cursor, int pageSize) {
+        return scatter(new TransactionQuery(), cursor, pageSize);
+    }
+
+    @Override
+    public CursorPageResult<Transaction> listTransactionByAccount(long accountId, Cursor cursor, int pageSize) {
+        TransactionQuery query = new TransactionQuery();
+        query.setAccountId(accountId);
+        return scatter(query, cursor, pageSize);
+    }
+
+    @Override
+    public CursorPageResult<Transaction> queryTransactions(TransactionQuery query, Cursor cursor, int pageSize) {
+        return scatter(query, cursor, pageSize);
+    }
+
+    /**
+     * 按页向各节点分散查询的惰性迭代器，每次归并 EXPORT_PAGE_SIZE 条。
+     */
+    @Override
+    public Iterator<Transaction> exportTransactions(Cursor cursor, Long startTime, Long endTime) {
+        if (startTime != null && endTime != null && startTime > endTime) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        TransactionQuery query = new TransactionQuery();
+        query.setStartTime(startTime);
+        query.setEndTime(endTime);
+        return new Iterator<>() {
+            private Cursor next = cursor;
+
+            private Iterator<Transaction> items = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!items.hasNext() && next != null) {
+                    CursorPageResult<Transaction> page = scatter(query, next, EXPORT_PAGE_SIZE);
+                    items = page.getItems().iterator();
+                    Transaction last = page.getItems().isEmpty() ? null : page.getItems().getLast();
+                    next = page.isHasNext() ? new Cursor(last.getCreateTime().getTime(), last.getTransactionNo()) : null;
+                }
+                return items.hasNext();
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return items.next();
+            }
+        };
+    }
+
+    @Override
+    public String createTransactionNo(String serialNumber) {
+        if (!StringUtils.hasLength(serialNumber)) {
+            return null;
+        }
+        String owner = nodes.owner(serialNumber);
+        return owner.equals(nodes.self()) ? local.createTransactionNo(serialNumber) : client.createTransactionNo(owner, serialNumber);
+    }
+
+    @Override
+    public boolean existBySerialNo(String serialNo) {
+        if (!StringUtils.hasLength(serialNo)) {
+            return false;
+        }
+        String owner = nodes.owner(serialNo);
+        return owner.equals(nodes.self()) ? local.existBySerialNo(serialNo) : client.existBySerialNo(owner, serialNo);
+    }
+
+    @Override
+    public Transaction getTransaction(String transactionNo) {
+        String owner = StringUtils.hasLength(transactionNo) ? nodes.owner(transactionNo) : nodes.self();
+        return owner.equals(nodes.self()) ? local.getTransaction(transactionNo) : client.get(owner, transactionNo);
+    }
+
+    @Override
+    public boolean existByTransactionNo(String transactionNo) {
+        if (!StringUtils.hasLength(transactionNo)) {
+            return false;
+        }
+        String owner = nodes.owner(transactionNo);
+        return owner.equals(nodes.self()) ? local.existByTransactionNo(transactionNo) : client.existByTransactionNo(owner, transactionNo);
+    }
+
+    @Override
+    public Cursor decodeCursor(String encoded) {
+        return local.decodeCursor(encoded);
+    }
+
+    @Override
+    public String encodeCursor(Transaction lastItem) {
+        return local.encodeCursor(lastItem);
+    }
+
+    /**
+     * 本节点的一页：只带创建时间范围时按导出方式读取时间索引，其他条件走过滤查询；两者都读取当前版本，不登记读版本。
+     * 供分散查询在本节点执行，也是内部分页接口的实现。
+     */
+    public CursorPageResult<Transaction> localPage(ClusterPageRequest request) {
+        TransactionQuery query = request.query();
+        Cursor cursor = new Cursor(request.cursorTime(), request.cursorNo());
+        if (query.getAccountId() != null || query.getStatus() != null || query.getType() != null || query.getCurrency() != null
+                || query.getMinAmount() != null || query.getMaxAmount() != null) {
+            return local.queryLatestTransactions(query, cursor, request.pageSize());
+        }
+        Iterator<Transaction> transactions = local.exportTransactions(cursor, query.getStartTime(), query.getEndTime());
+        List<Transaction> items = new ArrayList<>(request.pageSize() + 1);
+        while (transactions.hasNext() && items.size() <= request.pageSize()) {
+            items.add(transactions.next());
+        }
+        CursorPageResult<Transaction> result = new CursorPageResult<>();
+        result.setHasNext(items.size() > request.pageSize());
+        result.setItems(result.isHasNext() ? items.subList(0, request.pageSize()) : items);
+        return result;
+    }
+
+    private CursorPageResult<Transaction> scatter(TransactionQuery query, Cursor cursor, int pageSize) {
+        ClusterPageRequest request = new ClusterPageRequest(query, cursor.getDate(), cursor.getTransactionNo(), pageSize);
+        List<CompletableFuture<CursorPageResult<Transaction>>> remote = new ArrayList<>();
+        for (String nodeId : nodes.nodeIds()) {
+            if (!nodeId.equals(nodes.self())) {
+                remote.add(client.async(() -> client.page(nodeId, request)));
+            }
+        }
+        List<CursorPageResult<Transaction>> pages = new ArrayList<>(remote.size() + 1);
+        pages.add(localPage(request));
+        for (CompletableFuture<CursorPageResult<Transaction>> future : remote) {
+            pages.add(join(future));
+        }
+        List<Transaction> merged = new ArrayList<>();
+        boolean hasNext = false;
+        for (CursorPageResult<Transaction> page : pages) {
+            merged.addAll(page.getItems());
+            hasNext |= page.isHasNext();
+        }
+        merged.sort(ORDER);
+        // 某个节点还有后续，或归并后超过一页，都还有下一页
+        hasNext |= merged.size() > pageSize;
+        CursorPageResult<Transaction> result = new CursorPageResult<>();
+        List<Transaction> items = merged.subList(0, Math.min(merged.size(), pageSize));
+        result.setItems(items);
+        result.setHasNext(hasNext);
+        if (hasNext && !items.isEmpty()) {
+            Transaction last = items.getLast();
+            result.setNextCursor(cursorCodec.encode(last.getCreateTime().getTime(), last.getTransactionNo()));
+        }
+        return result;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
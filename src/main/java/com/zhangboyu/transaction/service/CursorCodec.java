@@ -0,0 +1,273 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.entity.Cursor;
+import com.zhangboyu.transaction.exception.TransactionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.CURSOR_EXCEPTION;
+
+/**
+ * 分页游标编解码，游标为 Base64url（无填充）编码的定长二进制：
+ * <ul>
+ *     <li>[byte 1][long createTime][long 交易号]：交易号为规范的非负十进制数（本系统分配的交易号），共 17 字节</li>
+ *     <li>[byte 2][long createTime][UTF-8 交易号]：其他交易号</li>
+ *     <li>[byte 3][long createTime][long 读版本][long 交易号]、[byte 4][long createTime][long 读版本][UTF-8 交易号]：
+ *     带分页快照读版本的游标，交易号规则同上</li>
+ * </ul>
+ * 配置了 transaction.cursor.secret 时末尾追加 8 字节 HmacSHA256 截断签名，客户端无法伪造游标。
+ * 首字节不超过 4，编码后首字符为 'A' 或 'B'；旧版文本游标（"createTime,transactionNo" 的 Base64url）以数字或 '-' 开头，
+ * 编码后首字符不会是 'A'，据此区分，transaction.cursor.legacy-enabled 开启时继续接受；旧版游标无法签名，配置了密钥时一律拒绝。
+ * 非法游标抛出预先创建、不带调用栈的异常。
+ */
+@Component
+@Slf4j
+public class CursorCodec {
+    private static final byte FORMAT_NUMERIC = 1;
+
+    private static final byte FORMAT_TEXT = 2;
+
+    private static final byte FORMAT_NUMERIC_VERSIONED = 3;
+
+    private static final byte FORMAT_TEXT_VERSIONED = 4;
+
+    private static final int HEADER_LENGTH = 9;
+
+    private static final int VERSIONED_HEADER_LENGTH = HEADER_LENGTH + Long.BYTES;
+
+    private static final int MAC_LENGTH = 8;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final byte[] DECODE = new byte[128];
+
+    private static final TransactionException INVALID = TransactionException.withoutStackTrace(CURSOR_EXCEPTION);
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    // 未配置密钥时为 null；Mac 非线程安全，每次使用时克隆
+    private final Mac macPrototype;
+
+    private final boolean legacyEnabled;
+
+    @Autowired
+    public CursorCodec(@Value("${transaction.cursor.secret:}") String secret,
+                       @Value("${transaction.cursor.legacy-enabled:true}") boolean legacyEnabled) {
+        if (!StringUtils.hasLength(secret)) {
+            this.macPrototype = null;
+            this.legacyEnabled = legacyEnabled;
+            return;
+        }
+        if (legacyEnabled) {
+            log.warn("transaction.cursor.secret is set, unsigned legacy cursors are rejected");
+        }
+        this.legacyEnabled = false;
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM));
+            mac.clone();
+            this.macPrototype = mac;
+        } catch (GeneralSecurityException | CloneNotSupportedException e) {
+            throw new IllegalStateException("cursor mac init failed", e);
+        }
+    }
+
+    public String encode(long createTime, String transactionNo) {
+        return encode(createTime, transactionNo, 0);
+    }
+
+    /**
+     * readVersion 大于 0 时游标携带读版本。
+     */
+    public String encode(long createTime, String transactionNo, long readVersion) {
+        long id = parseId(transactionNo);
+        byte[] text = id < 0 ? transactionNo.getBytes(StandardCharsets.UTF_8) : null;
+        int header = readVersion > 0 ? VERSIONED_HEADER_LENGTH : HEADER_LENGTH;
+        int payload = header + (text == null ? Long.BYTES : text.length);
+        byte[] raw = new byte[payload + (macPrototype == null ? 0 : MAC_LENGTH)];
+        if (readVersion > 0) {
+            raw[0] = text == null ? FORMAT_NUMERIC_VERSIONED : FORMAT_TEXT_VERSIONED;
+            putLong(raw, HEADER_LENGTH, readVersion);
+        } else {
+            raw[0] = text == null ? FORMAT_NUMERIC : FORMAT_TEXT;
+        }
+        putLong(raw, 1, createTime);
+        if (text == null) {
+            putLong(raw, header, id);
+        } else {
+            System.arraycopy(text, 0, raw, header, text.length);
+        }
+        if (macPrototype != null) {
+            System.arraycopy(sign(raw, payload), 0, raw, payload, MAC_LENGTH);
+        }
+        // 编码结果直接作为字符串的 Latin-1 内容
+        byte[] encoded = new byte[(raw.length * 4 + 2) / 3];
+        ENCODER.encode(raw, encoded);
+        return new String(encoded, StandardCharsets.ISO_8859_1);
+    }
+
+    public Cursor decode(String encoded) {
+        byte[] raw = decodeBase64(encoded);
+        if (raw == null || raw.length == 0) {
+            throw invalid(encoded);
+        }
+        byte format = raw[0];
+        if (format < FORMAT_NUMERIC || format > FORMAT_TEXT_VERSIONED) {
+            return decodeLegacy(raw, encoded);
+        }
+        boolean numeric = format == FORMAT_NUMERIC || format == FORMAT_NUMERIC_VERSIONED;
+        int header = format >= FORMAT_NUMERIC_VERSIONED ? VERSIONED_HEADER_LENGTH : HEADER_LENGTH;
+        int payload = raw.length - (macPrototype == null ? 0 : MAC_LENGTH);
+        if (payload < header || (numeric && payload != header + Long.BYTES)) {
+            throw invalid(encoded);
+        }
+        if (macPrototype != null) {
+            byte[] expected = sign(raw, payload);
+            int diff = 0;
+            // 定长比较，耗时与签名内容无关
+            for (int i = 0; i < MAC_LENGTH; i++) {
+                diff |= expected[i] ^ raw[payload + i];
+            }
+            if (diff != 0) {
+                throw invalid(encoded);
+            }
+        }
+        long createTime = getLong(raw, 1);
+        long readVersion = header == VERSIONED_HEADER_LENGTH ? getLong(raw, HEADER_LENGTH) : 0;
+        if (readVersion < 0) {
+            throw invalid(encoded);
+        }
+        if (!numeric) {
+            return new Cursor(createTime, new String(raw, header, payload - header, StandardCharsets.UTF_8), readVersion);
+        }
+        long id = getLong(raw, header);
+        if (id < 0) {
+            throw invalid(encoded);
+        }
+        return new Cursor(createTime, Long.toString(id), readVersion);
+    }
+
+    /**
+     * 旧版游标："createTime,transactionNo" 的 UTF-8 文本。
+     */
+    private Cursor decodeLegacy(byte[] raw, String encoded) {
+        if (!legacyEnabled) {
+            throw invalid(encoded);
+        }
+        int i = raw[0] == '-' ? 1 : 0;
+        if (i == raw.length || raw[i] == ',') {
+            throw invalid(encoded);
+        }
+        long createTime = 0;
+        for (; i < raw.length && raw[i] != ','; i++) {
+            int digit = raw[i] - '0';
+            if (digit < 0 || digit > 9 || createTime > (Long.MAX_VALUE - digit) / 10) {
+                throw invalid(encoded);
+            }
+            createTime = createTime * 10 + digit;
+        }
+        if (i == raw.length) {
+            throw invalid(encoded);
+        }
+        String transactionNo = new String(raw, i + 1, raw.length - i - 1, StandardCharsets.UTF_8);
+        return new Cursor(raw[0] == '-' ? -createTime : createTime, transactionNo);
+    }
+
+    private byte[] sign(byte[] raw, int length) {
+        try {
+            Mac mac = (Mac) macPrototype.clone();
+            mac.update(raw, 0, length);
+            return mac.doFinal();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TransactionException invalid(String encoded) {
+        log.debug("invalid cursor:{}", encoded);
+        return INVALID;
+    }
+
+    /**
+     * 规范的非负十进制数（无前导零、不溢出）返回其值，否则返回 -1，此时交易号按文本保存，保证解码后原样还原。
+     */
+    private static long parseId(String transactionNo) {
+        int length = transactionNo.length();
+        if (length == 0 || (length > 1 && transactionNo.charAt(0) == '0')) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = transactionNo.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || id > (Long.MAX_VALUE - digit) / 10) {
+                return -1;
+            }
+            id = id * 10 + digit;
+        }
+        return id;
+    }
+
+    /**
+     * 直接从字符解码 Base64url，允许末尾填充；含非法字符时返回 null。
+     */
+    private static byte[] decodeBase64(String encoded) {
+        int length = encoded.length();
+        while (length > 0 && encoded.charAt(length - 1) == '=') {
+            length--;
+        }
+        if (length % 4 == 1) {
+            return null;
+        }
+        byte[] raw = new byte[length * 3 / 4];
+        int buffer = 0;
+        int bits = 0;
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            char c = encoded.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0) {
+                return null;
+            }
+            buffer = (buffer << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                raw[position++] = (byte) (buffer >> bits);
+            }
+        }
+        return raw;
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,153 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.entity.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * 单笔查询的热点缓存：按交易号缓存已序列化的响应 JSON 与 ETag，省去重复的 DTO 转换和 Jackson 序列化。
+ * <p>
+ * 缓存项记录生成它的交易视图，读取时与当前交易比较，不一致即作废。因此并发写入与缓存填充交错、
+ * 或集群中其他节点修改了交易，都不会读到旧内容；更新、删除时的主动失效只是尽快释放内存。
+ * <p>
+ * 总字节数超过上限时按 CLOCK 淘汰：命中置访问位，淘汰指针在哈希表上循环，清除访问位、跳过最近访问过的项，
+ * 淘汰一圈内未再访问的项。读取不加锁，淘汰同一时刻只由一个线程进行。
+ */
+@Component
+public class HotTransactionCache {
+    // 每项除 JSON 外的大致开销：交易视图、ETag、哈希表节点
+    private static final int ENTRY_OVERHEAD = 256;
+
+    /**
+     * 缓存内容：响应 JSON 与 ETag，source 为生成它的交易视图，调用方不能修改。
+     */
+    public record Entry(Transaction source, byte[] json, String etag) {
+    }
+
+    private static final class Node {
+        final Entry entry;
+
+        final int size;
+
+        volatile boolean referenced;
+
+        Node(Entry entry, int size) {
+            this.entry = entry;
+            this.size = size;
+        }
+    }
+
+    private final long maxBytes;
+
+    private final ConcurrentHashMap<String, Node> nodes = new ConcurrentHashMap<>();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    // 淘汰指针，持有 evictLock 时使用
+    private Iterator<Map.Entry<String, Node>> hand;
+
+    @Autowired
+    public HotTransactionCache(@Value("${transaction.cache.max-bytes:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 返回与 current 一致的缓存项，没有或已过期时返回 null。
+     */
+    public Entry get(String transactionNo, Transaction current) {
+        Node node = nodes.get(transactionNo);
+        if (node == null) {
+            return null;
+        }
+        if (!node.entry.source().equals(current)) {
+            remove(transactionNo, node);
+            return null;
+        }
+        if (!node.referenced) {
+            node.referenced = true;
+        }
+        return node.entry;
+    }
+
+    /**
+     * 生成缓存项并尝试放入缓存。未启用或单项超过上限的 1/16 时只返回、不缓存。
+     */
+    public Entry put(String transactionNo, Transaction source, byte[] json) {
+        Entry entry = new Entry(source, json, etag(source, json));
+        int size = json.length + ENTRY_OVERHEAD;
+        if (maxBytes <= 0 || size > maxBytes / 16) {
+            return entry;
+        }
+        Node node = new Node(entry, size);
+        Node old = nodes.put(transactionNo, node);
+        if (bytes.addAndGet(old == null ? size : size - old.size) > maxBytes) {
+            evict();
+        }
+        return entry;
+    }
+
+    public void invalidate(String transactionNo) {
+        Node node = nodes.remove(transactionNo);
+        if (node != null) {
+            bytes.addAndGet(-node.size);
+        }
+    }
+
+    public long size() {
+        return nodes.size();
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+
+    private void remove(String transactionNo, Node node) {
+        if (nodes.remove(transactionNo, node)) {
+            bytes.addAndGet(-node.size);
+        }
+    }
+
+    private void evict() {
+        // 已有线程在淘汰时直接返回，总量短暂超过上限不影响正确性
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            while (bytes.get() > maxBytes && !nodes.isEmpty()) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = nodes.entrySet().iterator();
+                    continue;
+                }
+                Map.Entry<String, Node> candidate = hand.next();
+                Node node = candidate.getValue();
+                if (node.referenced) {
+                    node.referenced = false;
+                } else {
+                    remove(candidate.getKey(), node);
+                }
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * 强 ETag：更新时间加响应内容的 CRC32C。更新时间可以由客户端指定且只到毫秒，单独使用可能在内容变化后仍相同。
+     */
+    private static String etag(Transaction source, byte[] json) {
+        CRC32C crc = new CRC32C();
+        crc.update(json);
+        long updateTime = source.getUpdateTime() == null ? 0 : source.getUpdateTime().getTime();
+        return "\"" + Long.toHexString(updateTime) + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+}
@@ -0,0 +1,154 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.service.TransactionServiceImpl.SortKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 时间索引：按交易号哈希分成若干分区，每个分区是一个按 (创建时间, 交易号) 排序的跳表。
+ * <p>
+ * 新交易的创建时间都接近当前时间，单个跳表上的插入全部落在尾部，并发写入在同一段节点上反复 CAS 重试；
+ * 分区后不同分区的写入互不干扰。按时间顺序遍历时对各分区的区间视图做多路归并（小顶堆），
+ * (创建时间, 交易号) 是全序，游标只需记录最后一个索引项，各分区从游标之后继续即可恢复归并，游标格式不变。
+ * 分区数为 1 时直接返回跳表视图。状态、类型、币种索引（{@link AttributeIndex}）每个属性值同样分区，复用这里的归并。
+ */
+@Component
+public class TimeIndex {
+    private final NavigableSet<SortKey>[] partitions;
+
+    // 跳表的 size() 需要遍历，监控读取单独计数
+    private final LongAdder size = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public TimeIndex(@Value("${transaction.index.partitions:0}") int partitions) {
+        int count = partitionCount(partitions);
+        this.partitions = new NavigableSet[count];
+        for (int i = 0; i < count; i++) {
+            this.partitions[i] = new ConcurrentSkipListSet<>();
+        }
+    }
+
+    public boolean add(SortKey sortKey) {
+        if (partition(sortKey).add(sortKey)) {
+            size.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean remove(SortKey sortKey) {
+        if (partition(sortKey).remove(sortKey)) {
+            size.decrement();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean contains(SortKey sortKey) {
+        return partition(sortKey).contains(sortKey);
+    }
+
+    /**
+     * 按顺序遍历 (from, to) 开区间内的索引项，边界为空表示不限；弱一致，遍历期间不阻塞写入。
+     */
+    public Iterator<SortKey> range(SortKey from, SortKey to) {
+        return merge(partitions, from, to);
+    }
+
+    private NavigableSet<SortKey> partition(SortKey sortKey) {
+        return partitions[partitionOf(sortKey, partitions.length)];
+    }
+
+    /**
+     * 按交易号哈希选择分区，属性索引的分区方式相同。
+     */
+    static int partitionOf(SortKey sortKey, int count) {
+        int hash = sortKey.transactionNo().hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), count);
+    }
+
+    /**
+     * 对各分区 (from, to) 开区间内的索引项按顺序多路归并，只有一个分区时直接返回跳表视图。
+     */
+    static Iterator<SortKey> merge(NavigableSet<SortKey>[] partitions, SortKey from, SortKey to) {
+        if (from != null && to != null && from.compareTo(to) >= 0) {
+            return Collections.emptyIterator();
+        }
+        if (partitions.length == 1) {
+            return range(partitions[0], from, to).iterator();
+        }
+        PriorityQueue<Head> heads = new PriorityQueue<>(partitions.length);
+        for (NavigableSet<SortKey> partition : partitions) {
+            Iterator<SortKey> keys = range(partition, from, to).iterator();
+            if (keys.hasNext()) {
+                heads.add(new Head(keys.next(), keys));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public SortKey next() {
+                Head head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                SortKey sortKey = head.key;
+                // 同一个 Head 对象放回堆中，归并过程不再分配
+                if (head.keys.hasNext()) {
+                    head.key = head.keys.next();
+                    heads.add(head);
+                }
+                return sortKey;
+            }
+        };
+    }
+
+    private static NavigableSet<SortKey> range(NavigableSet<SortKey> keys, SortKey from, SortKey to) {
+        NavigableSet<SortKey> tail = from == null ? keys : keys.tailSet(from, false);
+        return to == null ? tail : tail.headSet(to, false);
+    }
+
+    /**
+     * 配置的分区数，0 表示等于 CPU 核数。
+     */
+    static int partitionCount(int partitions) {
+        return partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    public int partitions() {
+        return partitions.length;
+    }
+
+    // 某个分区当前的最小索引项及其后续
+    private static final class Head implements Comparable<Head> {
+        private SortKey key;
+
+        private final Iterator<SortKey> keys;
+
+        private Head(SortKey key, Iterator<SortKey> keys) {
+            this.key = key;
+            this.keys = keys;
+        }
+
+        @Override
+        public int compareTo(Head o) {
+            return key.compareTo(o.key);
+        }
+    }
+}
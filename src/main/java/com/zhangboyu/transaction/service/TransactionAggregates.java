@@ -0,0 +1,199 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.entity.AccountFlow;
+import com.zhangboyu.transaction.entity.CurrencyTotal;
+import com.zhangboyu.transaction.entity.DailyCounts;
+import com.zhangboyu.transaction.store.CurrencyDictionary;
+import com.zhangboyu.transaction.store.TransactionRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.zhangboyu.transaction.store.TransactionRecord.*;
+
+/**
+ * 增量维护的汇总视图：账户 + 币种的转入转出金额与笔数、币种总额与笔数、每天按状态和类型的笔数。
+ * <p>
+ * 随主表在交易锁内同步更新：新建时累加，删除时按旧记录扣减，更新时先扣减旧记录再累加新记录。
+ * 计数单元都是 LongAdder，不同账户、币种、日期的写入互不竞争；读取为各单元当前值之和，与并发写入之间是弱一致的。
+ * 日志重放与快照加载走同一套 apply 路径，重启后汇总与主表一致。空的汇总项不会删除。
+ */
+@Component
+public class TransactionAggregates {
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final class Flow {
+        private final LongAdder inflow = new LongAdder();
+        private final LongAdder outflow = new LongAdder();
+        private final LongAdder inCount = new LongAdder();
+        private final LongAdder outCount = new LongAdder();
+    }
+
+    private static final class Total {
+        private final LongAdder amount = new LongAdder();
+        private final LongAdder count = new LongAdder();
+    }
+
+    private static final class Day {
+        private final LongAdder total = new LongAdder();
+        private final ConcurrentHashMap<Integer, LongAdder> byStatus = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Integer, LongAdder> byType = new ConcurrentHashMap<>();
+    }
+
+    // 账户ID -> 币种编码 -> 资金流向
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Short, Flow>> accounts = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Short, Total> currencies = new ConcurrentHashMap<>();
+
+    // 自 1970-01-01 起的天数 -> 当天计数
+    private final ConcurrentHashMap<Long, Day> days = new ConcurrentHashMap<>();
+
+    private final ZoneId zone;
+
+    // 固定时区偏移（毫秒），时区有夏令时等变化时为 null，按日历换算
+    private final Long fixedOffsetMillis;
+
+    @Autowired
+    public TransactionAggregates(@Value("${transaction.aggregate.zone:}") String zone) {
+        this(StringUtils.hasLength(zone) ? ZoneId.of(zone) : ZoneId.systemDefault());
+    }
+
+    public TransactionAggregates(ZoneId zone) {
+        this.zone = zone;
+        ZoneRules rules = zone.getRules();
+        this.fixedOffsetMillis = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L : null;
+    }
+
+    public void add(TransactionRecord record) {
+        apply(record, 1);
+    }
+
+    /**
+     * 扣减一条记录的贡献，record 必须是此前累加过的版本。
+     */
+    public void remove(TransactionRecord record) {
+        apply(record, -1);
+    }
+
+    private void apply(TransactionRecord record, int sign) {
+        long amount = record.isNull(NULL_AMOUNT) ? 0 : sign * record.amount();
+        // 没有币种的交易无法按币种汇总金额，只计入每日笔数
+        if (!record.isNull(NULL_CURRENCY)) {
+            short currency = record.currencyCode();
+            if (!record.isNull(NULL_FROM)) {
+                Flow flow = flow(record.fromAccountId(), currency);
+                flow.outflow.add(amount);
+                flow.outCount.add(sign);
+            }
+            if (!record.isNull(NULL_TO)) {
+                Flow flow = flow(record.toAccountId(), currency);
+                flow.inflow.add(amount);
+                flow.inCount.add(sign);
+            }
+            Total total = currencies.computeIfAbsent(currency, c -> new Total());
+            total.amount.add(amount);
+            total.count.add(sign);
+        }
+        if (!record.isNull(NULL_CREATE_TIME)) {
+            Day day = days.computeIfAbsent(epochDay(record.createTime()), d -> new Day());
+            day.total.add(sign);
+            if (!record.isNull(NULL_STATUS)) {
+                day.byStatus.computeIfAbsent(record.status(), s -> new LongAdder()).add(sign);
+            }
+            if (!record.isNull(NULL_TYPE)) {
+                day.byType.computeIfAbsent(record.type(), t -> new LongAdder()).add(sign);
+            }
+        }
+    }
+
+    private Flow flow(long accountId, short currency) {
+        ConcurrentHashMap<Short, Flow> flows = accounts.get(accountId);
+        if (flows == null) {
+            flows = accounts.computeIfAbsent(accountId, id -> new ConcurrentHashMap<>());
+        }
+        Flow flow = flows.get(currency);
+        return flow != null ? flow : flows.computeIfAbsent(currency, c -> new Flow());
+    }
+
+    private long epochDay(long millis) {
+        if (fixedOffsetMillis != null) {
+            return Math.floorDiv(millis + fixedOffsetMillis, DAY_MILLIS);
+        }
+        return Instant.ofEpochMilli(millis).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * 账户在各币种下的资金流向，currency 不为空时只返回该币种。
+     */
+    public List<AccountFlow> accountFlows(long accountId, String currency) {
+        Map<Short, Flow> flows = accounts.get(accountId);
+        if (flows == null) {
+            return List.of();
+        }
+        List<AccountFlow> result = new ArrayList<>();
+        for (Map.Entry<Short, Flow> entry : flows.entrySet()) {
+            String name = CurrencyDictionary.name(entry.getKey());
+            if (currency != null && !currency.equals(name)) {
+                continue;
+            }
+            Flow flow = entry.getValue();
+            AccountFlow accountFlow = new AccountFlow();
+            accountFlow.setAccountId(accountId);
+            accountFlow.setCurrency(name);
+            accountFlow.setInflow(flow.inflow.sum());
+            accountFlow.setOutflow(flow.outflow.sum());
+            accountFlow.setNet(accountFlow.getInflow() - accountFlow.getOutflow());
+            accountFlow.setInCount(flow.inCount.sum());
+            accountFlow.setOutCount(flow.outCount.sum());
+            result.add(accountFlow);
+        }
+        result.sort(Comparator.comparing(AccountFlow::getCurrency));
+        return result;
+    }
+
+    public List<CurrencyTotal> currencyTotals() {
+        List<CurrencyTotal> result = new ArrayList<>();
+        currencies.forEach((code, total) -> {
+            CurrencyTotal currencyTotal = new CurrencyTotal();
+            currencyTotal.setCurrency(CurrencyDictionary.name(code));
+            currencyTotal.setAmount(total.amount.sum());
+            currencyTotal.setCount(total.count.sum());
+            result.add(currencyTotal);
+        });
+        result.sort(Comparator.comparing(CurrencyTotal::getCurrency));
+        return result;
+    }
+
+    /**
+     * 某天（按 transaction.aggregate.zone 时区划分）创建的交易笔数，没有交易时各项为 0。
+     */
+    public DailyCounts dailyCounts(LocalDate date) {
+        Day day = days.get(date.toEpochDay());
+        DailyCounts counts = new DailyCounts();
+        counts.setDate(date.toString());
+        counts.setTotal(day == null ? 0 : day.total.sum());
+        counts.setByStatus(day == null ? Map.of() : sums(day.byStatus));
+        counts.setByType(day == null ? Map.of() : sums(day.byType));
+        return counts;
+    }
+
+    private static Map<Integer, Long> sums(Map<Integer, LongAdder> counters) {
+        Map<Integer, Long> result = new TreeMap<>();
+        counters.forEach((key, counter) -> {
+            long sum = counter.sum();
+            if (sum != 0) {
+                result.put(key, sum);
+            }
+        });
+        return result;
+    }
+}
@@ -1,262 +1,882 @@
 package com.zhangboyu.transaction.service;
 
+import com.zhangboyu.transaction.entity.BatchCreateItem;
+import com.zhangboyu.transaction.entity.ChangeEvent;
 import com.zhangboyu.transaction.entity.Cursor;
 import com.zhangboyu.transaction.entity.CursorPageResult;
 import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.entity.TransactionQuery;
+import com.zhangboyu.transaction.enums.ChangeType;
 import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.lock.StripedLock;
+import com.zhangboyu.transaction.persistence.SnapshotStore;
+import com.zhangboyu.transaction.persistence.WalRecord;
+import com.zhangboyu.transaction.persistence.WalRecordType;
+import com.zhangboyu.transaction.persistence.WriteAheadLog;
+import com.zhangboyu.transaction.replication.ReplicationState;
 import com.zhangboyu.transaction.repo.IdRepo;
 import com.zhangboyu.transaction.service.iface.TransactionService;
+import com.zhangboyu.transaction.store.CurrencyDictionary;
+import com.zhangboyu.transaction.store.TransactionRecord;
+import com.zhangboyu.transaction.store.TransactionStore;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 
 import static com.zhangboyu.transaction.enums.ErrorEnum.*;
+import static com.zhangboyu.transaction.store.TransactionRecord.*;
 
 @Service
 @Slf4j
 public class TransactionServiceImpl implements TransactionService {
+    // 对外方法统一计时，按 method 与 exception 标签区分
+    private static final String TIMER = "transaction.service";
+
     @Autowired
     private IdRepo idRepo;
-    public record SortKey(Date createdAt, String transactionNo) implements Comparable<SortKey> {
+
+    // 过滤查询中的一个属性条件：属性索引与取值
+    private record AttributeFilter(AttributeIndex index, long value) {
+    }
+
+    public record SortKey(long createdAt, String transactionNo) implements Comparable<SortKey> {
+        public static SortKey of(TransactionRecord record) {
+            return new SortKey(record.createTime(), record.transactionNo());
+        }
+
         @Override
         public int compareTo(SortKey o) {
-            int timeCompare = this.createdAt.compareTo(o.createdAt);
+            int timeCompare = Long.compare(this.createdAt, o.createdAt);
             return timeCompare != 0 ? timeCompare : this.transactionNo.compareTo(o.transactionNo);
         }
     }
-    private ConcurrentHashMap<String, Transaction> transactionConcurrentHashMap = new ConcurrentHashMap<>();
+    // 主表只保存紧凑的不可变记录，索引中只有 (创建时间, 交易号) 键，交易号字符串全程共用一个实例
+    @Autowired
+    private TransactionStore transactionStore;
+
+    // 时间索引按交易号哈希分区，列表按时间顺序多路归并
+    @Autowired
+    private TimeIndex timeIndex;
+
+    // 账户二级索引，与时间索引同步维护
+    private AccountIndex fromAccountIndex = new AccountIndex();
+
+    private AccountIndex toAccountIndex = new AccountIndex();
+
+    // 状态、类型、币种索引，过滤查询从中选取最小的一个驱动遍历，其余按索引项探测；分区数与时间索引相同
+    private AttributeIndex statusIndex = new AttributeIndex(0);
 
-    private ConcurrentSkipListMap<SortKey, Transaction> timeIndex = new ConcurrentSkipListMap<>();
+    private AttributeIndex typeIndex = new AttributeIndex(0);
 
-    // 细粒度锁（按交易ID）
-    private ConcurrentMap<String, ReentrantLock> keyLocks = new ConcurrentHashMap<>();
+    private AttributeIndex currencyIndex = new AttributeIndex(0);
 
-    // 全局读写锁（用于索引维护）
-    private ReentrantReadWriteLock globalLock = new ReentrantReadWriteLock();
+    // 细粒度分段锁（按交易ID哈希），同一交易的主表与索引只由持锁线程维护
+    @Autowired
+    private StripedLock keyLocks;
+
+    @Autowired
+    private WriteAheadLog writeAheadLog;
+
+    @Autowired
+    private SnapshotStore snapshotStore;
+
+    @Autowired
+    private CursorCodec cursorCodec;
+
+    // 多版本：写入领取版本号并登记旧版本，全量列表按游标中的读版本读取快照
+    @Autowired
+    private VersionManager versions;
 
+    // 汇总视图，随主表在交易锁内同步更新
+    @Autowired
+    private TransactionAggregates aggregates;
 
+    // 变更流，只发布在线写入，重放不发布
+    @Autowired
+    private ChangeLog changeLog;
+
+    // 单笔查询的响应缓存，更新、删除时失效
+    @Autowired
+    private HotTransactionCache hotTransactions;
+
+    // 复制角色：副本拒绝对外写入，只应用主节点的变更
+    @Autowired
+    private ReplicationState replication;
+
+    /**
+     * 启动恢复：先加载最新快照，再只重放快照之后的日志段。
+     * 启用日志时以快照和日志为准，存储中残留的内容（如堆外存储的文件）先清空；
+     * 未启用日志时沿用存储中已有的数据，重建索引并推进 ID 计数器，但重启前的流水号映射不会保留。
+     */
+    @PostConstruct
+    public void recover() {
+        long start = System.currentTimeMillis();
+        // 属性索引按配置的时间索引分区数重建，此时尚未写入
+        statusIndex = new AttributeIndex(timeIndex.partitions());
+        typeIndex = new AttributeIndex(timeIndex.partitions());
+        currencyIndex = new AttributeIndex(timeIndex.partitions());
+        if (writeAheadLog.isEnabled()) {
+            transactionStore.clear();
+        } else {
+            for (TransactionRecord record : transactionStore.records()) {
+                idRepo.restoreTransactionNo(record.transactionNo());
+                SortKey sortKey = SortKey.of(record);
+                timeIndex.add(sortKey);
+                addAccountIndex(record, sortKey);
+                addAttributeIndex(record, sortKey);
+                aggregates.add(record);
+            }
+        }
+        long fromSegment = snapshotStore.load(this::upsert, idRepo::restore, idRepo::restoreCounter);
+        long count = writeAheadLog.recover(fromSegment, this::replay);
+        if (transactionStore.size() > 0) {
+            log.info("recovered, walRecords:{}, transactions:{}, cost:{}ms", count, transactionStore.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 时间索引的条目数，监控采样用。
+     */
+    public long timeIndexSize() {
+        return timeIndex.size();
+    }
+
+    /**
+     * 状态、类型、币种索引的条目数，监控采样用。
+     */
+    public long statusIndexSize() {
+        return statusIndex.entries();
+    }
+
+    public long typeIndexSize() {
+        return typeIndex.entries();
+    }
+
+    public long currencyIndexSize() {
+        return currencyIndex.entries();
+    }
+
+    /**
+     * 供快照遍历的弱一致视图，遍历期间不阻塞写入。
+     */
+    public Iterable<TransactionRecord> records() {
+        return transactionStore.records();
+    }
 
     @Override
+    @Timed(TIMER)
     public String createTransaction(String serialNumber, Transaction transaction) {
         if (!StringUtils.hasLength(serialNumber)) {
             return null;
         }
-        transaction.setTransactionNo(createTransactionNo(serialNumber));
-        ReentrantLock reentrantLock = keyLocks.computeIfAbsent(transaction.getTransactionNo(), a -> new ReentrantLock());
-        boolean locked = false;
-        boolean globalLocked = false;
+        if (!createTransactionIfAbsent(serialNumber, transaction)) {
+            throw new TransactionException(CONCURRENCY_EXCEPTION);
+        }
+        return transaction.getTransactionNo();
+    }
+
+    /**
+     * 按流水号创建：一次流水号查询同时完成判重和交易号分配，再在交易锁内确认主表中不存在后写日志并插入。
+     * 交易已存在时回填已有交易号并返回 false。流水号登记后交易号即固定，创建失败（如加锁超时）后重试沿用同一交易号，不会再消耗新的 ID。
+     */
+    @Override
+    @Timed(TIMER)
+    public boolean createTransactionIfAbsent(String serialNumber, Transaction transaction) {
+        if (!StringUtils.hasLength(serialNumber)) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        replication.checkWritable();
+        writeAheadLog.checkWritable();
+        String transactionNo = idRepo.createTransactionNo(serialNumber);
+        transaction.setTransactionNo(transactionNo);
+        // 重复请求在加锁前直接返回
+        if (transactionStore.contains(transactionNo)) {
+            return false;
+        }
+        TransactionRecord record = TransactionRecord.of(transaction);
+        CompletableFuture<Void> durable;
+        ReentrantLock reentrantLock = keyLocks.lock(transactionNo);
         try {
-            locked = reentrantLock.tryLock();
-            if (!locked) {
-                throw new TransactionException(CONCURRENCY_EXCEPTION);
-            }
-            if (transactionConcurrentHashMap.containsKey(transaction.getTransactionNo())) {
-                throw new TransactionException(CONCURRENCY_EXCEPTION);
+            if (transactionStore.contains(transactionNo)) {
+                return false;
             }
-            transactionConcurrentHashMap.put(transaction.getTransactionNo(), transaction);
-            globalLocked = globalLock.writeLock().tryLock(1, TimeUnit.SECONDS);
-            if (!globalLocked) {
-                throw new TransactionException(CONCURRENCY_EXCEPTION);
+            long version = versions.begin();
+            try {
+                durable = writeAheadLog.append(WalRecord.create(serialNumber, record));
+                applyCreate(serialNumber, record, version);
+            } finally {
+                versions.commit(version);
             }
-            timeIndex.put(new SortKey(transaction.getCreateTime(), transaction.getTransactionNo()), transaction);
-        } catch (InterruptedException e) {
-            log.error("createTransaction error, transactionNo:{}", transaction.getTransactionNo(), e);
-            throw new TransactionException(SYSTEM_EXCEPTION);
         } finally {
-            if (globalLocked) {
-                globalLock.writeLock().unlock();
-            } else if (locked) {
-                transactionConcurrentHashMap.remove(transaction.getTransactionNo());
+            reentrantLock.unlock();
+        }
+        writeAheadLog.awaitDurable(durable);
+        return true;
+    }
+
+    /**
+     * 批量创建：交易号一次性分配，按交易锁分段分组后每段只加一次锁，段内逐条判重、写日志并插入主表和索引，
+     * 最后统一等待整批日志落盘（组提交下通常只需一两次 fsync）。
+     * 流水号已存在（或在本批次中重复出现）的项标记为重复并回填已有交易号，不影响其他项。
+     * 中途某段加锁超时会抛出并发异常，此前已处理的段已生效，调用方按流水号幂等重试即可。返回新创建的条数。
+     */
+    @Override
+    @Timed(TIMER)
+    public int createTransactions(List<BatchCreateItem> items) {
+        replication.checkWritable();
+        writeAheadLog.checkWritable();
+        String[] transactionNos = idRepo.createTransactionNos(items.stream().map(BatchCreateItem::getSerialNumber).toList());
+        Map<Integer, List<Integer>> stripes = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (transactionNos[i] != null) {
+                stripes.computeIfAbsent(keyLocks.indexFor(transactionNos[i]), k -> new ArrayList<>()).add(i);
             }
-            if (locked) {
+        }
+        List<CompletableFuture<Void>> durables = new ArrayList<>();
+        int created = 0;
+        for (Map.Entry<Integer, List<Integer>> stripe : stripes.entrySet()) {
+            ReentrantLock reentrantLock = keyLocks.lockStripe(stripe.getKey());
+            try {
+                // 段内按请求顺序处理，同一批次中重复的流水号只有第一次出现的会被创建
+                for (int i : stripe.getValue()) {
+                    BatchCreateItem item = items.get(i);
+                    item.setTransactionNo(transactionNos[i]);
+                    if (transactionStore.contains(transactionNos[i])) {
+                        item.setDuplicate(true);
+                        continue;
+                    }
+                    item.getTransaction().setTransactionNo(transactionNos[i]);
+                    TransactionRecord record = TransactionRecord.of(item.getTransaction());
+                    long version = versions.begin();
+                    try {
+                        CompletableFuture<Void> durable = writeAheadLog.append(WalRecord.create(item.getSerialNumber(), record));
+                        if (durable != null) {
+                            durables.add(durable);
+                        }
+                        applyCreate(item.getSerialNumber(), record, version);
+                    } finally {
+                        versions.commit(version);
+                    }
+                    created++;
+                }
+            } finally {
                 reentrantLock.unlock();
             }
         }
-        return transaction.getTransactionNo();
+        if (!durables.isEmpty()) {
+            writeAheadLog.awaitDurable(CompletableFuture.allOf(durables.toArray(new CompletableFuture[0])));
+        }
+        return created;
     }
 
     @Override
+    @Timed(TIMER)
     public void deleteTransaction(String transactionNo) {
         if (!StringUtils.hasLength(transactionNo)) {
             return;
         }
-        ReentrantLock reentrantLock = keyLocks.computeIfAbsent(transactionNo, a -> new ReentrantLock());
-        boolean locked = false;
-        boolean globalLocked = false;
-        Transaction removed = null;
-        boolean allRemove = false;
+        replication.checkWritable();
+        writeAheadLog.checkWritable();
+        CompletableFuture<Void> durable;
+        ReentrantLock reentrantLock = keyLocks.lock(transactionNo);
         try {
-            locked = reentrantLock.tryLock();
-            if (!locked) {
-                throw new TransactionException(CONCURRENCY_EXCEPTION);
-            }
-            if (!transactionConcurrentHashMap.containsKey(transactionNo)) {
-                keyLocks.remove(transactionNo, reentrantLock);
+            if (!transactionStore.contains(transactionNo)) {
                 throw new TransactionException(TRANSACTION_NOT_EXISTS_EXCEPTION);
             }
-            removed = transactionConcurrentHashMap.remove(transactionNo);
-            globalLocked = globalLock.writeLock().tryLock(1, TimeUnit.SECONDS);
-            if (!globalLocked) {
-                throw new TransactionException(CONCURRENCY_EXCEPTION);
+            long version = versions.begin();
+            try {
+                durable = writeAheadLog.append(WalRecord.delete(transactionNo));
+                applyDelete(transactionNo, version);
+            } finally {
+                versions.commit(version);
             }
-            timeIndex.remove(new SortKey(removed.getCreateTime(), removed.getTransactionNo()));
-            allRemove = true;
-        } catch (InterruptedException e) {
-            log.error("deleteTransaction error, transactionNo:{}", transactionNo, e);
-            throw new TransactionException(SYSTEM_EXCEPTION);
         } finally {
-            if (globalLocked) {
-                globalLock.writeLock().unlock();
-            } else if (locked && removed != null) {
-                transactionConcurrentHashMap.put(transactionNo, removed);
+            reentrantLock.unlock();
+        }
+        writeAheadLog.awaitDurable(durable);
+    }
+
+    @Override
+    @Timed(TIMER)
+    public void updateTransaction(Transaction transaction) {
+        replication.checkWritable();
+        writeAheadLog.checkWritable();
+        CompletableFuture<Void> durable;
+        ReentrantLock reentrantLock = keyLocks.lock(transaction.getTransactionNo());
+        try {
+            TransactionRecord oldRecord = transactionStore.get(transaction.getTransactionNo());
+            if (oldRecord == null) {
+                throw new TransactionException(TRANSACTION_NOT_EXISTS_EXCEPTION);
             }
-            if (locked) {
-                if (allRemove) {
-                    keyLocks.remove(transactionNo, reentrantLock);
+            // 沿用已存储的交易号实例，更新后主表键与索引键仍共用同一个字符串
+            transaction.setTransactionNo(oldRecord.transactionNo());
+            TransactionRecord record = TransactionRecord.of(transaction);
+            long version = versions.begin();
+            try {
+                durable = writeAheadLog.append(WalRecord.update(record));
+                applyUpdate(oldRecord, record, version);
+            } finally {
+                versions.commit(version);
+            }
+        } finally {
+            reentrantLock.unlock();
+        }
+        writeAheadLog.awaitDurable(durable);
+    }
+
+    /**
+     * 副本应用主节点的变更：按主节点的交易号直接覆盖或删除，不分配交易号，也不做写入检查。
+     * 创建和更新都携带完整交易内容，统一按“存在则覆盖、不存在则新建”处理，重复应用同一变更结果不变；删除不存在的交易直接跳过。
+     * 与在线写入一样领取版本、写日志并发布到本节点的变更流，整批写完后统一等待落盘。
+     */
+    public void applyReplicated(List<ChangeEvent> events) {
+        List<CompletableFuture<Void>> durables = new ArrayList<>();
+        for (ChangeEvent event : events) {
+            CompletableFuture<Void> durable;
+            ReentrantLock reentrantLock = keyLocks.lock(event.getTransactionNo());
+            try {
+                TransactionRecord oldRecord = transactionStore.get(event.getTransactionNo());
+                if (event.getType() == ChangeType.DELETE) {
+                    if (oldRecord == null) {
+                        continue;
+                    }
+                    long version = versions.begin();
+                    try {
+                        durable = writeAheadLog.append(WalRecord.delete(oldRecord.transactionNo()));
+                        applyDelete(oldRecord.transactionNo(), version);
+                    } finally {
+                        versions.commit(version);
+                    }
+                } else {
+                    Transaction transaction = event.getAfter();
+                    transaction.setTransactionNo(oldRecord == null ? event.getTransactionNo() : oldRecord.transactionNo());
+                    TransactionRecord record = TransactionRecord.of(transaction);
+                    String serialNumber = event.getSerialNumber();
+                    // 提升为主节点后按流水号判重，且不会再分配已用过的交易号
+                    if (StringUtils.hasLength(serialNumber)) {
+                        idRepo.restore(serialNumber, record.transactionNo());
+                    } else {
+                        idRepo.restoreTransactionNo(record.transactionNo());
+                    }
+                    long version = versions.begin();
+                    try {
+                        durable = writeAheadLog.append(StringUtils.hasLength(serialNumber) ? WalRecord.create(serialNumber, record) : WalRecord.update(record));
+                        if (oldRecord == null) {
+                            applyCreate(serialNumber, record, version);
+                        } else {
+                            applyUpdate(oldRecord, record, version);
+                        }
+                    } finally {
+                        versions.commit(version);
+                    }
                 }
+            } finally {
                 reentrantLock.unlock();
             }
+            if (durable != null) {
+                durables.add(durable);
+            }
+        }
+        if (!durables.isEmpty()) {
+            writeAheadLog.awaitDurable(CompletableFuture.allOf(durables.toArray(new CompletableFuture[0])));
         }
     }
 
-    @Override
-    public void updateTransaction(Transaction transaction) {
-        ReentrantLock reentrantLock = keyLocks.computeIfAbsent(transaction.getTransactionNo(), a -> new ReentrantLock());
-        boolean locked = false;
-        boolean globalLocked = false;
-        Transaction oldTransaction = null;
-        boolean diffSortKey = false;
-        try {
-            locked = reentrantLock.tryLock();
-            if (!locked) {
-                throw new TransactionException(CONCURRENCY_EXCEPTION);
+    /**
+     * 日志重放：创建和更新记录携带完整交易内容，统一按“存在则覆盖、不存在则新建”处理。
+     */
+    private void replay(WalRecord record) {
+        switch (record.type()) {
+            case CREATE, UPDATE -> {
+                if (record.type() == WalRecordType.CREATE) {
+                    idRepo.restore(record.serialNumber(), record.transactionNo());
+                }
+                upsert(record.transaction());
             }
-            oldTransaction = transactionConcurrentHashMap.get(transaction.getTransactionNo());
-            if (oldTransaction == null) {
-                keyLocks.remove(transaction.getTransactionNo(), reentrantLock);
-                throw new TransactionException(TRANSACTION_NOT_EXISTS_EXCEPTION);
+            case DELETE -> applyDelete(record.transactionNo(), 0);
+        }
+    }
+
+    private void upsert(TransactionRecord record) {
+        TransactionRecord oldRecord = transactionStore.get(record.transactionNo());
+        if (oldRecord == null) {
+            applyCreate(null, record, 0);
+        } else {
+            applyUpdate(oldRecord, record, 0);
+        }
+    }
+
+    // 以下 apply 方法只维护内存结构，调用方需持有交易锁（重放阶段除外）。
+    // version 为本次写入的版本号：先登记旧版本再修改主表，旧版本在时间索引中的位置留到回收时删除；
+    // 重放阶段传 0，没有进行中的快照读，直接删除旧索引项
+
+    private void applyCreate(String serialNumber, TransactionRecord record, long version) {
+        if (version > 0) {
+            versions.supersede(record.transactionNo(), version, null, false);
+        }
+        // 先写主表再写索引：索引项出现时主表一定已可见
+        transactionStore.put(record);
+        aggregates.add(record);
+        SortKey sortKey = SortKey.of(record);
+        timeIndex.add(sortKey);
+        addAccountIndex(record, sortKey);
+        addAttributeIndex(record, sortKey);
+        if (version > 0) {
+            changeLog.publish(version, ChangeType.CREATE, serialNumber, null, record);
+        }
+    }
+
+    private void applyUpdate(TransactionRecord oldRecord, TransactionRecord record, long version) {
+        boolean diffSortKey = record.createTime() != oldRecord.createTime();
+        // 空值在记录里存为 0，需同时比较空值标记
+        boolean diffFrom = record.isNull(NULL_FROM) != oldRecord.isNull(NULL_FROM) || record.fromAccountId() != oldRecord.fromAccountId();
+        boolean diffTo = record.isNull(NULL_TO) != oldRecord.isNull(NULL_TO) || record.toAccountId() != oldRecord.toAccountId();
+        boolean diffAttributes = record.isNull(NULL_STATUS) != oldRecord.isNull(NULL_STATUS) || record.status() != oldRecord.status()
+                || record.isNull(NULL_TYPE) != oldRecord.isNull(NULL_TYPE) || record.type() != oldRecord.type()
+                || record.isNull(NULL_CURRENCY) != oldRecord.isNull(NULL_CURRENCY) || record.currencyCode() != oldRecord.currencyCode();
+        SortKey sortKey = SortKey.of(record);
+        SortKey oldSortKey = SortKey.of(oldRecord);
+        // 新索引项 -> 主表 -> 删除旧索引项，任一时刻主表中的版本都能在索引里找到对应位置
+        timeIndex.add(sortKey);
+        addAccountIndex(record, sortKey);
+        addAttributeIndex(record, sortKey);
+        if (version > 0) {
+            versions.supersede(record.transactionNo(), version, oldRecord, diffSortKey || diffAttributes);
+        }
+        transactionStore.put(record);
+        hotTransactions.invalidate(record.transactionNo());
+        // 汇总按旧记录扣减、新记录累加
+        aggregates.remove(oldRecord);
+        aggregates.add(record);
+        if ((diffSortKey || diffAttributes) && version == 0) {
+            retireIndexes(oldRecord, List.of(record));
+        }
+        if ((diffSortKey || diffFrom) && !oldRecord.isNull(NULL_FROM)) {
+            fromAccountIndex.remove(oldRecord.fromAccountId(), oldSortKey);
+        }
+        if ((diffSortKey || diffTo) && !oldRecord.isNull(NULL_TO)) {
+            toAccountIndex.remove(oldRecord.toAccountId(), oldSortKey);
+        }
+        if (version > 0) {
+            changeLog.publish(version, ChangeType.UPDATE, null, oldRecord, record);
+        }
+    }
+
+    private void applyDelete(String transactionNo, long version) {
+        // 先删主表再删索引：残留的索引项会在列表扫描时被主表校验过滤
+        TransactionRecord removed = transactionStore.get(transactionNo);
+        if (removed != null) {
+            SortKey sortKey = SortKey.of(removed);
+            if (version > 0) {
+                versions.supersede(transactionNo, version, removed, true);
             }
-            transactionConcurrentHashMap.put(transaction.getTransactionNo(), transaction);
-            diffSortKey = !transaction.getTransactionNo().equals(oldTransaction.getTransactionNo()) || transaction.getCreateTime().compareTo(oldTransaction.getCreateTime()) != 0;
-            globalLocked = globalLock.writeLock().tryLock(1, TimeUnit.SECONDS);
-            if (!globalLocked) {
-                throw new TransactionException(CONCURRENCY_EXCEPTION);
+            transactionStore.remove(transactionNo);
+            hotTransactions.invalidate(transactionNo);
+            aggregates.remove(removed);
+            if (version == 0) {
+                retireIndexes(removed, List.of());
             }
-            if (diffSortKey) {
-                timeIndex.remove(new SortKey(oldTransaction.getCreateTime(), oldTransaction.getTransactionNo()));
+            if (!removed.isNull(NULL_FROM)) {
+                fromAccountIndex.remove(removed.fromAccountId(), sortKey);
             }
-            timeIndex.put(new SortKey(transaction.getCreateTime(), transaction.getTransactionNo()), transaction);
-        } catch (InterruptedException e) {
-            log.error("updateTransaction error, transactionNo:{}", transaction.getTransactionNo(), e);
-            throw new TransactionException(SYSTEM_EXCEPTION);
-        } finally {
-            if (globalLocked) {
-                globalLock.writeLock().unlock();
-            } else if (locked && Objects.nonNull(oldTransaction)) {
-                transactionConcurrentHashMap.put(transaction.getTransactionNo(), oldTransaction);
+            if (!removed.isNull(NULL_TO)) {
+                toAccountIndex.remove(removed.toAccountId(), sortKey);
             }
-            if (locked) {
-                reentrantLock.unlock();
+            if (version > 0) {
+                changeLog.publish(version, ChangeType.DELETE, null, removed, null);
             }
         }
     }
 
-    @Override
-    public CursorPageResult<Transaction> listAllTransaction(Cursor cursor, int pageSize) {
-        boolean lock = false;
+    /**
+     * 回收不再被任何快照读需要的旧版本，并删除其遗留的时间索引和属性索引项，由 {@link VersionReclaimer} 定期调用。
+     */
+    public void reclaimVersions() {
+        versions.reclaim(this::retireVersion);
+    }
+
+    /**
+     * 旧版本的索引项可能又被当前版本（如改回原值、删除后重建）或尚未回收的旧版本使用，持锁确认后才删除。
+     */
+    private void retireVersion(VersionManager.Retired retired) {
+        ReentrantLock reentrantLock = keyLocks.getLock(retired.transactionNo());
+        reentrantLock.lock();
         try {
-            lock = globalLock.readLock().tryLock();
-            if (!lock) {
-                throw new TransactionException(CONCURRENCY_EXCEPTION);
+            List<TransactionRecord> inUse = versions.retained(retired.transactionNo());
+            TransactionRecord current = transactionStore.get(retired.transactionNo());
+            if (current != null) {
+                inUse.add(current);
             }
-            NavigableMap<SortKey, Transaction> subMap;
+            retireIndexes(retired.previous(), inUse);
+        } finally {
+            reentrantLock.unlock();
+        }
+    }
+
+    /**
+     * 删除旧版本在时间索引和属性索引中的索引项，inUse 中仍有版本使用同一索引项（创建时间和属性值都相同）的保留。
+     */
+    private void retireIndexes(TransactionRecord previous, List<TransactionRecord> inUse) {
+        SortKey sortKey = SortKey.of(previous);
+        if (unused(previous, inUse, record -> true)) {
+            timeIndex.remove(sortKey);
+        }
+        if (!previous.isNull(NULL_STATUS)
+                && unused(previous, inUse, record -> !record.isNull(NULL_STATUS) && record.status() == previous.status())) {
+            statusIndex.remove(previous.status(), sortKey);
+        }
+        if (!previous.isNull(NULL_TYPE)
+                && unused(previous, inUse, record -> !record.isNull(NULL_TYPE) && record.type() == previous.type())) {
+            typeIndex.remove(previous.type(), sortKey);
+        }
+        if (!previous.isNull(NULL_CURRENCY)
+                && unused(previous, inUse, record -> !record.isNull(NULL_CURRENCY) && record.currencyCode() == previous.currencyCode())) {
+            currencyIndex.remove(previous.currencyCode(), sortKey);
+        }
+    }
 
-            if (cursor == null) {
-                subMap = timeIndex;
-            } else {
-                subMap = timeIndex.tailMap(new SortKey(new Date(cursor.getDate()), cursor.getTransactionNo()), false);
+    private static boolean unused(TransactionRecord previous, List<TransactionRecord> inUse, Predicate<TransactionRecord> sameValue) {
+        for (TransactionRecord record : inUse) {
+            if (record.createTime() == previous.createTime() && sameValue.test(record)) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            List<Transaction> transactions = new ArrayList<>(pageSize);
+    private void addAttributeIndex(TransactionRecord record, SortKey sortKey) {
+        if (!record.isNull(NULL_STATUS)) {
+            statusIndex.add(record.status(), sortKey);
+        }
+        if (!record.isNull(NULL_TYPE)) {
+            typeIndex.add(record.type(), sortKey);
+        }
+        if (!record.isNull(NULL_CURRENCY)) {
+            currencyIndex.add(record.currencyCode(), sortKey);
+        }
+    }
+
+    private void addAccountIndex(TransactionRecord record, SortKey sortKey) {
+        if (!record.isNull(NULL_FROM)) {
+            fromAccountIndex.add(record.fromAccountId(), sortKey);
+        }
+        if (!record.isNull(NULL_TO)) {
+            toAccountIndex.add(record.toAccountId(), sortKey);
+        }
+    }
 
-            for (Map.Entry<SortKey, Transaction> entry : subMap.entrySet()) {
-                if (transactions.size() > pageSize) {
-                    break;
+    /**
+     * 读取主表当前版本，不加锁。
+     */
+    @Override
+    @Timed(TIMER)
+    public Transaction getTransaction(String transactionNo) {
+        TransactionRecord record = StringUtils.hasLength(transactionNo) ? transactionStore.get(transactionNo) : null;
+        if (record == null) {
+            throw new TransactionException(TRANSACTION_NOT_EXISTS_EXCEPTION);
+        }
+        return record.toTransaction();
+    }
+
+    /**
+     * 列表不加锁，直接归并遍历各分区的跳表。首页固定当前可见版本作为读版本，写入下一页游标，后续各页都按该版本读取：
+     * 每个索引项以该版本下的可见版本为准，翻页期间的新增、更新和删除都不可见，整个遍历是同一个快照，且不阻塞写入。
+     * 读版本租约过期被回收后，游标改用当前可见版本继续。
+     */
+    @Override
+    @Timed(TIMER)
+    public CursorPageResult<Transaction> listAllTransaction(Cursor cursor, int pageSize) {
+        Iterator<SortKey> keys = timeIndex.range(cursor == null ? null : toSortKey(cursor), null);
+        long readVersion = versions.pin(cursor == null ? 0 : cursor.getReadVersion());
+        return pinnedPage(keys, pageSize, record -> true, readVersion);
+    }
+
+    /**
+     * 按账户查询（转出或转入），合并两个账户索引后按时间顺序分页，只访问当前页附近的索引项。
+     * 读取主表当前版本（不固定快照），另外要求当前版本仍属于该账户。
+     */
+    @Override
+    @Timed(TIMER)
+    public CursorPageResult<Transaction> listTransactionByAccount(long accountId, Cursor cursor, int pageSize) {
+        SortKey from = cursor == null ? null : toSortKey(cursor);
+        Iterator<SortKey> keys = AccountIndex.union(fromAccountIndex.tail(accountId, from), toAccountIndex.tail(accountId, from));
+        return page(keys, pageSize, record -> (!record.isNull(NULL_FROM) && record.fromAccountId() == accountId)
+                || (!record.isNull(NULL_TO) && record.toAccountId() == accountId), 0);
+    }
+
+    /**
+     * 过滤查询：创建时间范围直接作为索引上下界；状态、类型、币种条件取索引项最少的一个属性索引按时间顺序驱动遍历，
+     * 其余属性条件先按索引项探测对应属性索引，只有都命中的才读取主表，最后对可见版本校验全部条件（含金额范围，金额不建索引）。
+     * 指定账户时由账户索引驱动，读取当前版本；否则与全量列表相同，固定读版本读取快照。
+     */
+    @Override
+    @Timed(TIMER)
+    public CursorPageResult<Transaction> queryTransactions(TransactionQuery query, Cursor cursor, int pageSize) {
+        return query(query, cursor, pageSize, true);
+    }
+
+    /**
+     * 集群分散查询在本节点的一页：条件与 {@link #queryTransactions} 相同，但始终读取主表当前版本，不登记读版本、不保留租约。
+     * 集群游标不带读版本，各节点的页之间本就没有快照一致性，固定读版本只会让旧版本多保留一个租约期。
+     */
+    @Timed(TIMER)
+    public CursorPageResult<Transaction> queryLatestTransactions(TransactionQuery query, Cursor cursor, int pageSize) {
+        return query(query, cursor, pageSize, false);
+    }
+
+    private CursorPageResult<Transaction> query(TransactionQuery query, Cursor cursor, int pageSize, boolean snapshot) {
+        Long startTime = query.getStartTime();
+        Long endTime = query.getEndTime();
+        if ((startTime != null && endTime != null && startTime > endTime)
+                || (query.getMinAmount() != null && query.getMaxAmount() != null && query.getMinAmount() > query.getMaxAmount())) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        SortKey from = cursor == null ? null : toSortKey(cursor);
+        if (startTime != null && (from == null || from.compareTo(new SortKey(startTime, "")) < 0)) {
+            from = new SortKey(startTime, "");
+        }
+        SortKey to = endTime == null ? null : new SortKey(endTime, "");
+        // 未出现过的币种不会有任何交易
+        short currencyCode = query.getCurrency() == null ? 0 : CurrencyDictionary.find(query.getCurrency());
+        boolean empty = (from != null && to != null && from.compareTo(to) >= 0) || currencyCode < 0;
+        Predicate<TransactionRecord> filter = record -> matches(query, currencyCode, record);
+
+        if (query.getAccountId() != null) {
+            long accountId = query.getAccountId();
+            Iterator<SortKey> keys = empty ? Collections.emptyIterator()
+                    : AccountIndex.union(headSet(fromAccountIndex.tail(accountId, from), to), headSet(toAccountIndex.tail(accountId, from), to));
+            return page(keys, pageSize, filter, 0);
+        }
+        long readVersion = snapshot ? versions.pin(cursor == null ? 0 : cursor.getReadVersion()) : 0;
+        List<AttributeFilter> attributes = new ArrayList<>(3);
+        if (query.getStatus() != null) {
+            attributes.add(new AttributeFilter(statusIndex, query.getStatus()));
+        }
+        if (query.getType() != null) {
+            attributes.add(new AttributeFilter(typeIndex, query.getType()));
+        }
+        if (query.getCurrency() != null) {
+            attributes.add(new AttributeFilter(currencyIndex, currencyCode));
+        }
+        Iterator<SortKey> keys;
+        if (empty) {
+            keys = Collections.emptyIterator();
+        } else if (attributes.isEmpty()) {
+            keys = timeIndex.range(from, to);
+        } else {
+            AttributeFilter driver = Collections.min(attributes, Comparator.comparingLong(attribute -> attribute.index().size(attribute.value())));
+            attributes.remove(driver);
+            keys = probe(driver.index().range(driver.value(), from, to), attributes);
+        }
+        return snapshot ? pinnedPage(keys, pageSize, filter, readVersion) : page(keys, pageSize, filter, 0);
+    }
+
+    private static NavigableSet<SortKey> headSet(NavigableSet<SortKey> keys, SortKey to) {
+        return to == null ? keys : keys.headSet(to, false);
+    }
+
+    /**
+     * 只保留在其余属性索引中都存在的索引项。
+     */
+    private static Iterator<SortKey> probe(Iterator<SortKey> keys, List<AttributeFilter> attributes) {
+        if (attributes.isEmpty()) {
+            return keys;
+        }
+        return new Iterator<>() {
+            private SortKey next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && keys.hasNext()) {
+                    SortKey sortKey = keys.next();
+                    if (attributes.stream().allMatch(attribute -> attribute.index().contains(attribute.value(), sortKey))) {
+                        next = sortKey;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public SortKey next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
-                Transaction tx = entry.getValue();
-                transactions.add(tx);
+                SortKey sortKey = next;
+                next = null;
+                return sortKey;
+            }
+        };
+    }
+
+    private static boolean matches(TransactionQuery query, short currencyCode, TransactionRecord record) {
+        return (query.getStatus() == null || (!record.isNull(NULL_STATUS) && record.status() == query.getStatus()))
+                && (query.getType() == null || (!record.isNull(NULL_TYPE) && record.type() == query.getType()))
+                && (query.getCurrency() == null || (!record.isNull(NULL_CURRENCY) && record.currencyCode() == currencyCode))
+                && (query.getMinAmount() == null || (!record.isNull(NULL_AMOUNT) && record.amount() >= query.getMinAmount()))
+                && (query.getMaxAmount() == null || (!record.isNull(NULL_AMOUNT) && record.amount() <= query.getMaxAmount()))
+                && (query.getAccountId() == null
+                || (!record.isNull(NULL_FROM) && record.fromAccountId() == query.getAccountId())
+                || (!record.isNull(NULL_TO) && record.toAccountId() == query.getAccountId()));
+    }
+
+    /**
+     * 按时间顺序导出游标之后、创建时间在 [startTime, endTime) 内的交易，边界均可为空。
+     * 返回惰性迭代器：只在遍历时逐条读取时间索引和主表，内存占用与导出总量无关；读取主表当前版本，不固定快照。
+     */
+    @Override
+    @Timed(TIMER)
+    public Iterator<Transaction> exportTransactions(Cursor cursor, Long startTime, Long endTime) {
+        if (startTime != null && endTime != null && startTime > endTime) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        // 交易号不为空，(time, "") 排在同一毫秒的所有索引项之前，作为开区间边界即可表示“从该毫秒起”和“到该毫秒前”
+        SortKey from = cursor == null ? null : toSortKey(cursor);
+        if (startTime != null && (from == null || from.compareTo(new SortKey(startTime, "")) < 0)) {
+            from = new SortKey(startTime, "");
+        }
+        Iterator<SortKey> keys = timeIndex.range(from, endTime == null ? null : new SortKey(endTime, ""));
+        Iterator<TransactionRecord> records = live(keys, record -> true, 0);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
             }
-            CursorPageResult<Transaction> result = new CursorPageResult<>();
-            List<Transaction> items = transactions.subList(0, Math.min(transactions.size(), pageSize));
-            result.setItems(items);
-            boolean hasNext = transactions.size() > pageSize;
-            result.setHasNext(hasNext);
-            if (hasNext) {
-                result.setNextCursor(encodeCursor(items.getLast()));
+
+            @Override
+            public Transaction next() {
+                return records.next().toTransaction();
             }
+        };
+    }
+
+    private SortKey toSortKey(Cursor cursor) {
+        return new SortKey(cursor.getDate(), cursor.getTransactionNo());
+    }
+
+    /**
+     * 按已登记的读版本分页，读完撤销登记；只有还有下一页、游标带出读版本时才保留租约。
+     */
+    private CursorPageResult<Transaction> pinnedPage(Iterator<SortKey> keys, int pageSize, Predicate<TransactionRecord> filter, long readVersion) {
+        boolean lease = false;
+        try {
+            CursorPageResult<Transaction> result = page(keys, pageSize, filter, readVersion);
+            lease = result.isHasNext();
             return result;
         } finally {
-            if (lock) {
-                globalLock.readLock().unlock();
-            }
+            versions.unpin(readVersion, lease);
         }
     }
 
+    private CursorPageResult<Transaction> page(Iterator<SortKey> keys, int pageSize, Predicate<TransactionRecord> filter, long readVersion) {
+        List<Transaction> transactions = new ArrayList<>(pageSize + 1);
+        Iterator<TransactionRecord> records = live(keys, filter, readVersion);
+
+        while (records.hasNext() && transactions.size() <= pageSize) {
+            // 只为返回的这一页生成对外的 Transaction 视图
+            transactions.add(records.next().toTransaction());
+        }
+        CursorPageResult<Transaction> result = new CursorPageResult<>();
+        List<Transaction> items = transactions.subList(0, Math.min(transactions.size(), pageSize));
+        result.setItems(items);
+        boolean hasNext = transactions.size() > pageSize;
+        result.setHasNext(hasNext);
+        result.setReadVersion(readVersion);
+        if (hasNext) {
+            Transaction last = items.getLast();
+            result.setNextCursor(cursorCodec.encode(last.getCreateTime().getTime(), last.getTransactionNo(), readVersion));
+        }
+        return result;
+    }
+
+    /**
+     * 把索引项迭代器转换为可见版本的迭代器：readVersion 为 0 时取主表当前版本，否则取该读版本下的可见版本；
+     * 已删除、已迁移（创建时间变化）或不满足条件的索引项被跳过。
+     */
+    private Iterator<TransactionRecord> live(Iterator<SortKey> keys, Predicate<TransactionRecord> filter, long readVersion) {
+        return new Iterator<>() {
+            private TransactionRecord next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && keys.hasNext()) {
+                    SortKey sortKey = keys.next();
+                    // 先读主表再查版本链，与写入方“先登记旧版本再改主表”的顺序对应
+                    TransactionRecord record = transactionStore.get(sortKey.transactionNo());
+                    if (readVersion > 0) {
+                        record = versions.resolve(sortKey.transactionNo(), readVersion, record);
+                    }
+                    if (record != null && record.createTime() == sortKey.createdAt() && filter.test(record)) {
+                        next = record;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public TransactionRecord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                TransactionRecord record = next;
+                next = null;
+                return record;
+            }
+        };
+    }
+
     @Override
+    @Timed(TIMER)
     public String createTransactionNo(String serialNumber) {
         if (!StringUtils.hasLength(serialNumber)) {
             return null;
         }
+        replication.checkWritable();
         return idRepo.createTransactionNo(serialNumber);
     }
 
     @Override
+    @Timed(TIMER)
     public boolean existBySerialNo(String serialNo) {
         if (!StringUtils.hasLength(serialNo)) {
             return false;
         }
-        return transactionConcurrentHashMap.containsKey(idRepo.createTransactionNo(serialNo));
+        // 只查询不登记，避免探测请求占用幂等窗口
+        String transactionNo = idRepo.findTransactionNo(serialNo);
+        return transactionNo != null && transactionStore.contains(transactionNo);
     }
 
     @Override
+    @Timed(TIMER)
     public boolean existByTransactionNo(String transactionNo) {
         if (!StringUtils.hasLength(transactionNo)) {
             return false;
         }
-        return transactionConcurrentHashMap.containsKey(transactionNo);
+        return transactionStore.contains(transactionNo);
     }
 
     @Override
+    @Timed(TIMER)
     public Cursor decodeCursor(String encoded) {
         if (!StringUtils.hasLength(encoded)) {
             return Cursor.initial();
         }
-        try {
-            String decode = new String(Base64.getUrlDecoder().decode(encoded));
-            String[] ss = decode.split(",");
-            return new Cursor(Long.parseLong(ss[0]), ss[1]);
-        } catch (Exception e) {
-            log.warn("decodeCursor error, encoded:{}", encoded, e);
-            throw new TransactionException(CURSOR_EXCEPTION);
-        }
+        return cursorCodec.decode(encoded);
     }
 
     @Override
+    @Timed(TIMER)
     public String encodeCursor(Transaction lastItem) {
         if (lastItem == null) {
             return null;
         }
-        Cursor cursor = new Cursor(lastItem.getCreateTime().getTime(), lastItem.getTransactionNo());
-        String s = String.format("%d,%s", cursor.getDate(), cursor.getTransactionNo());
-        return Base64.getUrlEncoder().encodeToString(s.getBytes());
+        return cursorCodec.encode(lastItem.getCreateTime().getTime(), lastItem.getTransactionNo());
     }
 }
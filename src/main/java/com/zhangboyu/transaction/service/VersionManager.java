@@ -0,0 +1,315 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.store.TransactionRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.CONCURRENCY_EXCEPTION;
+
+/**
+ * 多版本并发控制：每次写入在交易锁内领取一个单调递增的版本号，写完后提交；
+ * 小于等于可见水位的版本都已完整写入，分页查询以水位作为读版本（编码在游标中），所有页看到同一个快照。
+ * <p>
+ * 主表只保存最新版本，被覆盖或删除的旧版本按交易号挂在版本链上，记录其失效版本（覆盖它的那次写入）。
+ * 读版本 P 下某交易的可见版本是版本链中第一个失效版本大于 P 的旧版本，没有则为主表当前版本。
+ * 写入方先登记旧版本再修改主表，读取方先读主表再读版本链，因此不会看到 P 之后写入的内容。
+ * <p>
+ * 读取期间登记读版本，读完撤销；只有发出了带读版本的下一页游标时才以租约方式保留，每次翻页续期，超过租约未使用即失效，
+ * 只有一页的查询不会拖住回收。失效版本不大于所有登记中读版本（无登记时为水位）的旧版本不再被任何快照需要，
+ * 由定时任务回收；失效的游标再次使用时改用当前水位继续翻页。
+ * <p>
+ * 版本号同时作为变更流的序号。起始版本取启动时间（毫秒）左移 10 位，只要平均每秒写入不超过约一百万次，
+ * 重启后的版本号总是大于重启前的，按旧序号续读的消费方能据此发现中间的变更已丢失；
+ * 版本号保持在 2^53 以内，JSON 消费方按双精度数解析也不会丢失精度。
+ */
+@Component
+@Slf4j
+public class VersionManager {
+    // 提交环大小，同时在途（已领取未提交）的写入不能超过该数量，写入都在分段锁内，实际在途数不超过锁段数
+    static final int RING_SIZE = 1 << 16;
+
+    private static final int RING_MASK = RING_SIZE - 1;
+
+    /**
+     * 待回收的旧版本：version 为其失效版本，previous 不为空时表示该版本的索引项（时间索引、属性索引）已不再被当前版本使用，回收时一并检查删除。
+     */
+    public record Retired(String transactionNo, long version, TransactionRecord previous) {
+    }
+
+    private record Version(long version, TransactionRecord record) {
+    }
+
+    private static final int EPOCH_SHIFT = 10;
+
+    // 提交环已满时领取版本的最长等待，超时说明有写入领取版本后长时间未提交
+    private static final long BEGIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long initialVersion;
+
+    private final AtomicLong clock;
+
+    private final AtomicLong watermark;
+
+    private final AtomicLongArray committed = new AtomicLongArray(RING_SIZE);
+
+    // 交易号 -> 旧版本（按失效版本升序，不可变数组整体替换）；null 记录表示该交易在此版本之前不存在
+    private final Map<String, Version[]> chains = new ConcurrentHashMap<>();
+
+    private final Queue<Retired> retired = new ConcurrentLinkedQueue<>();
+
+    // 读版本 -> 租约最近一次续期时间，只登记已发出下一页游标的读版本
+    private final ConcurrentSkipListMap<Long, Long> pins = new ConcurrentSkipListMap<>();
+
+    // 读版本 -> 正在读取的请求数，同时在途的读版本不多，回收时遍历求最小值
+    private final ConcurrentHashMap<Long, Integer> readers = new ConcurrentHashMap<>();
+
+    // 已回收到的版本，小于它的读版本不能再使用
+    private volatile long reclaimed;
+
+    private final ReentrantLock reclaimLock = new ReentrantLock();
+
+    private final long leaseMillis;
+
+    private final LongSupplier currentTimeMillis;
+
+    @Autowired
+    public VersionManager(@Value("${transaction.mvcc.cursor-lease-ms:60000}") long leaseMillis) {
+        this(leaseMillis, System::currentTimeMillis);
+    }
+
+    VersionManager(long leaseMillis, LongSupplier currentTimeMillis) {
+        this.leaseMillis = leaseMillis;
+        this.currentTimeMillis = currentTimeMillis;
+        this.initialVersion = Math.max(1, currentTimeMillis.getAsLong() << EPOCH_SHIFT);
+        this.clock = new AtomicLong(initialVersion);
+        this.watermark = new AtomicLong(initialVersion);
+        committed.set((int) (initialVersion & RING_MASK), initialVersion);
+    }
+
+    /**
+     * 领取写入版本号，调用方需持有交易锁，并在写入完成（或失败）后调用 {@link #commit(long)}。
+     * 提交环已满时先自旋、再逐步加长休眠等待水位推进，超时仍未推进抛出并发异常，此时没有领取任何版本。
+     */
+    public long begin() {
+        long deadline = 0;
+        long backoff = 0;
+        while (true) {
+            long current = clock.get();
+            if (current + 1 - watermark.get() < RING_SIZE) {
+                // 水位只增不减，领取成功后该版本在环中的位置不会再被占用
+                if (clock.compareAndSet(current, current + 1)) {
+                    return current + 1;
+                }
+                continue;
+            }
+            if (backoff == 0) {
+                deadline = System.nanoTime() + BEGIN_TIMEOUT_NANOS;
+                backoff = 1_000;
+                Thread.onSpinWait();
+                continue;
+            }
+            if (System.nanoTime() - deadline > 0) {
+                log.error("mvcc commit ring full, watermark:{}, clock:{}", watermark.get(), current);
+                throw new TransactionException(CONCURRENCY_EXCEPTION);
+            }
+            LockSupport.parkNanos(backoff);
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+        }
+    }
+
+    /**
+     * 提交版本并尽量推进可见水位：水位只越过连续已提交的版本。
+     */
+    public void commit(long version) {
+        committed.set((int) (version & RING_MASK), version);
+        long current;
+        while ((current = watermark.get()) < clock.get()) {
+            long next = current + 1;
+            if (committed.get((int) (next & RING_MASK)) != next) {
+                return;
+            }
+            watermark.compareAndSet(current, next);
+        }
+    }
+
+    /**
+     * 可见水位：小于等于该版本的写入都已完成。
+     */
+    public long visibleVersion() {
+        return watermark.get();
+    }
+
+    /**
+     * 本次启动的起始版本，大于它的版本才是本次启动后的写入。
+     */
+    public long initialVersion() {
+        return initialVersion;
+    }
+
+    /**
+     * 登记读取中的读版本，读完后必须调用 {@link #unpin}。requested 为游标中的读版本，为 0、已被回收或超出水位时改用当前水位。
+     */
+    public long pin(long requested) {
+        if (requested > 0 && requested <= watermark.get()) {
+            readers.merge(requested, 1, Integer::sum);
+            // 先登记再检查回收进度，与回收任务“先发布进度再复查登记”配合，保证登记成功的版本不会被回收
+            if (requested >= reclaimed) {
+                return requested;
+            }
+            // 已回收的读版本对任何游标都不再可用
+            release(requested);
+        }
+        while (true) {
+            long version = watermark.get();
+            readers.merge(version, 1, Integer::sum);
+            if (version >= reclaimed) {
+                return version;
+            }
+            release(version);
+        }
+    }
+
+    /**
+     * 读取结束。lease 为 true 表示发出了带该读版本的下一页游标，登记或续期租约；否则只撤销读取登记。
+     */
+    public void unpin(long version, boolean lease) {
+        if (lease) {
+            // 先登记租约再撤销读取登记，中间不会出现未登记的间隙
+            pins.put(version, currentTimeMillis.getAsLong());
+        }
+        release(version);
+    }
+
+    private void release(long version) {
+        readers.computeIfPresent(version, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * 登记被覆盖或删除的旧版本，必须在修改主表之前调用。previous 为空表示交易在该版本新建；
+     * retireIndexes 表示旧版本有索引项需要在回收时删除。
+     */
+    public void supersede(String transactionNo, long version, TransactionRecord previous, boolean retireIndexes) {
+        Version entry = new Version(version, previous);
+        chains.compute(transactionNo, (key, chain) -> {
+            if (chain == null) {
+                return new Version[]{entry};
+            }
+            Version[] appended = Arrays.copyOf(chain, chain.length + 1);
+            appended[chain.length] = entry;
+            return appended;
+        });
+        retired.add(new Retired(transactionNo, version, retireIndexes ? previous : null));
+    }
+
+    /**
+     * 读版本下的可见版本，current 为调用前从主表读到的当前版本，不存在时返回 null。
+     */
+    public TransactionRecord resolve(String transactionNo, long readVersion, TransactionRecord current) {
+        Version[] chain = chains.get(transactionNo);
+        if (chain != null) {
+            for (Version version : chain) {
+                if (version.version() > readVersion) {
+                    return version.record();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 尚未回收的旧版本（不含新建标记），回收索引项前用于确认索引项是否仍被使用。
+     */
+    public List<TransactionRecord> retained(String transactionNo) {
+        Version[] chain = chains.get(transactionNo);
+        List<TransactionRecord> records = new ArrayList<>(chain == null ? 0 : chain.length);
+        if (chain != null) {
+            for (Version version : chain) {
+                if (version.record() != null) {
+                    records.add(version.record());
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 清理过期的读版本，回收不再被任何读版本需要的旧版本；带有索引项的回收项交给 retireIndexes 处理。
+     * 同一时刻只有一个线程执行回收。
+     */
+    public void reclaim(Consumer<Retired> retireIndexes) {
+        if (!reclaimLock.tryLock()) {
+            return;
+        }
+        try {
+            long expireBefore = currentTimeMillis.getAsLong() - leaseMillis;
+            pins.entrySet().removeIf(pin -> pin.getValue() < expireBefore);
+            long threshold = Math.min(oldestPin(), watermark.get());
+            if (threshold > reclaimed) {
+                reclaimed = threshold;
+            }
+            // 发布进度后复查：期间登记的读版本要么在此被看到，要么登记方看到新的进度后放弃
+            threshold = Math.min(threshold, oldestPin());
+            Retired head;
+            while ((head = retired.peek()) != null && head.version() <= threshold) {
+                retired.poll();
+                long limit = threshold;
+                chains.computeIfPresent(head.transactionNo(), (key, chain) -> {
+                    int dropped = 0;
+                    while (dropped < chain.length && chain[dropped].version() <= limit) {
+                        dropped++;
+                    }
+                    return dropped == chain.length ? null : Arrays.copyOfRange(chain, dropped, chain.length);
+                });
+                if (head.previous() != null) {
+                    retireIndexes.accept(head);
+                }
+            }
+        } finally {
+            reclaimLock.unlock();
+        }
+    }
+
+    private long oldestPin() {
+        Map.Entry<Long, Long> oldest = pins.firstEntry();
+        long version = oldest == null ? Long.MAX_VALUE : oldest.getKey();
+        for (Long reading : readers.keySet()) {
+            version = Math.min(version, reading);
+        }
+        return version;
+    }
+
+    /**
+     * 挂有旧版本的交易数，监控采样用。
+     */
+    public int chainCount() {
+        return chains.size();
+    }
+
+    /**
+     * 租约内和读取中的读版本数，监控采样用。
+     */
+    public int pinCount() {
+        return pins.size() + readers.size();
+    }
+}
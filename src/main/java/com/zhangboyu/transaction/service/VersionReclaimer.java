@@ -0,0 +1,53 @@
+package com.zhangboyu.transaction.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 旧版本回收使用独立线程，不与定时快照共用 Spring 的单线程调度器：大数据量下一次快照可能持续数秒，
+ * 期间回收停顿会让版本链和遗留索引项持续增长。
+ */
+@Component
+@Slf4j
+public class VersionReclaimer {
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    private final long intervalMillis;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().daemon().name("mvcc-reclaimer").unstarted(runnable));
+
+    @Autowired
+    public VersionReclaimer(@Value("${transaction.mvcc.reclaim-interval-ms:100}") long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::reclaim, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void reclaim() {
+        // 异常会终止周期任务，记录后继续下一轮
+        try {
+            transactionService.reclaimVersions();
+        } catch (Exception e) {
+            log.error("mvcc reclaim error", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+}
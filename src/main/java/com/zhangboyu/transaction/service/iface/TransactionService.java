@@ -1,18 +1,44 @@
 package com.zhangboyu.transaction.service.iface;
 
+import com.zhangboyu.transaction.entity.BatchCreateItem;
 import com.zhangboyu.transaction.entity.Cursor;
 import com.zhangboyu.transaction.entity.CursorPageResult;
 import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.entity.TransactionQuery;
+
+import java.util.Iterator;
+import java.util.List;
 
 public interface TransactionService {
     String createTransaction(String serialNo, Transaction transaction);
 
+    /**
+     * 流水号对应的交易不存在时创建并返回 true，已存在时返回 false；两种情况都会回填交易号。
+     */
+    boolean createTransactionIfAbsent(String serialNo, Transaction transaction);
+
+    int createTransactions(List<BatchCreateItem> items);
+
     void deleteTransaction(String transaction);
 
      void updateTransaction(Transaction transaction);
 
+    /**
+     * 按交易号查询单笔交易，不存在时抛出交易不存在异常。
+     */
+    Transaction getTransaction(String transactionNo);
+
     CursorPageResult<Transaction> listAllTransaction(Cursor cursor, int pageSize);
 
+    CursorPageResult<Transaction> listTransactionByAccount(long accountId, Cursor cursor, int pageSize);
+
+    /**
+     * 按过滤条件分页查询，条件中为空的字段不限制；翻页时需带上相同的条件。
+     */
+    CursorPageResult<Transaction> queryTransactions(TransactionQuery query, Cursor cursor, int pageSize);
+
+    Iterator<Transaction> exportTransactions(Cursor cursor, Long startTime, Long endTime);
+
      String createTransactionNo(String serialNumber);
 
      boolean existBySerialNo(String serialNo);
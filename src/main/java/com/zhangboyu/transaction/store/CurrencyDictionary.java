@@ -0,0 +1,54 @@
+package com.zhangboyu.transaction.store;
+
+import com.zhangboyu.transaction.exception.TransactionException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.ARGUMENT_EXCEPTION;
+
+/**
+ * 进程内币种字典：币种字符串 -> short 编码，每条交易只保存 2 字节编码，同一币种的字符串全局只有一份。
+ * 编码只在本进程内有效，落盘格式各自维护映射。编码登记后不回收，请求中的币种先经 ISO 4217 白名单校验（{@code @IsoCurrency}）再进入字典。
+ */
+public final class CurrencyDictionary {
+    private static final int CAPACITY = Short.MAX_VALUE;
+
+    private static final ConcurrentHashMap<String, Short> CODES = new ConcurrentHashMap<>();
+
+    private static final AtomicReferenceArray<String> NAMES = new AtomicReferenceArray<>(CAPACITY);
+
+    private static final AtomicInteger NEXT = new AtomicInteger();
+
+    private CurrencyDictionary() {
+    }
+
+    public static short code(String currency) {
+        Short code = CODES.get(currency);
+        if (code != null) {
+            return code;
+        }
+        return CODES.computeIfAbsent(currency, c -> {
+            int next = NEXT.getAndIncrement();
+            if (next >= CAPACITY) {
+                throw new TransactionException(ARGUMENT_EXCEPTION);
+            }
+            // 先登记名称再返回编码，拿到编码的线程一定能查到名称
+            NAMES.set(next, c);
+            return (short) next;
+        });
+    }
+
+    /**
+     * 只查询不登记，未出现过的币种返回 -1。
+     */
+    public static short find(String currency) {
+        Short code = CODES.get(currency);
+        return code == null ? -1 : code;
+    }
+
+    public static String name(short code) {
+        return NAMES.get(code);
+    }
+}
@@ -0,0 +1,50 @@
+package com.zhangboyu.transaction.store;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 堆内存储，记录本身即为紧凑的 {@link TransactionRecord}，键直接复用记录中的交易号字符串。
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.store.type", havingValue = "heap", matchIfMissing = true)
+public class HeapTransactionStore implements TransactionStore {
+    private final ConcurrentHashMap<String, TransactionRecord> records = new ConcurrentHashMap<>();
+
+    @Override
+    public TransactionRecord get(String transactionNo) {
+        return records.get(transactionNo);
+    }
+
+    @Override
+    public boolean contains(String transactionNo) {
+        return records.containsKey(transactionNo);
+    }
+
+    @Override
+    public void put(TransactionRecord record) {
+        records.put(record.transactionNo(), record);
+    }
+
+    @Override
+    public TransactionRecord remove(String transactionNo) {
+        return records.remove(transactionNo);
+    }
+
+    @Override
+    public Iterable<TransactionRecord> records() {
+        return records.values();
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+
+    @Override
+    public void clear() {
+        records.clear();
+    }
+}
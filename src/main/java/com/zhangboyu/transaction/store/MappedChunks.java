@@ -0,0 +1,94 @@
+package com.zhangboyu.transaction.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按固定大小分块映射的文件：第 i 块对应文件区间 [i * chunkSize, (i + 1) * chunkSize)。
+ * 文件只增不减，已映射的块不会重新映射，读线程拿到的块引用始终有效。
+ */
+final class MappedChunks implements Closeable {
+    private final FileChannel channel;
+
+    private final int chunkSize;
+
+    private final ReentrantLock growLock = new ReentrantLock();
+
+    private volatile MappedByteBuffer[] chunks;
+
+    MappedChunks(Path file, int chunkSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.chunkSize = chunkSize;
+        this.chunks = new MappedByteBuffer[0];
+        long size = channel.size();
+        if (size > 0) {
+            ensure(size);
+        }
+    }
+
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 已映射的字节数。
+     */
+    long capacity() {
+        return (long) chunks.length * chunkSize;
+    }
+
+    MappedByteBuffer chunk(long offset) {
+        return chunks[(int) (offset / chunkSize)];
+    }
+
+    int position(long offset) {
+        return (int) (offset % chunkSize);
+    }
+
+    /**
+     * 保证 [0, end) 已映射，不足时按块扩展文件。
+     */
+    void ensure(long end) {
+        int required = (int) ((end + chunkSize - 1) / chunkSize);
+        if (required <= chunks.length) {
+            return;
+        }
+        growLock.lock();
+        try {
+            MappedByteBuffer[] current = chunks;
+            if (required <= current.length) {
+                return;
+            }
+            MappedByteBuffer[] grown = Arrays.copyOf(current, required);
+            for (int i = current.length; i < required; i++) {
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * chunkSize, chunkSize);
+                grown[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            chunks = grown;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
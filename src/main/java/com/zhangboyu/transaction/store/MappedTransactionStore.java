@@ -0,0 +1,556 @@
+package com.zhangboyu.transaction.store;
+
+import com.zhangboyu.transaction.exception.TransactionException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.zhangboyu.transaction.enums.ErrorEnum.ARGUMENT_EXCEPTION;
+import static com.zhangboyu.transaction.store.TransactionRecord.NULL_REMARK;
+
+/**
+ * 堆外存储：交易以定长槽位保存在内存映射文件 slots.dat 中，交易号和备注等变长字符串追加写入 arena.dat，
+ * 堆内只保留交易号到槽位的开放寻址哈希索引（每条约 16 字节）。
+ * <p>
+ * 槽位布局（小端）：
+ * <pre>
+ *  0 int 版本号（顺序锁，奇数表示正在写）   4 byte 状态（0 空闲 / 1 有效）   6 short 空值位图
+ *  8 long 转出账户  16 long 转入账户  24 long 金额  32 long 创建时间  40 long 更新时间
+ * 48 long 创建人    56 long 更新人    64 int 类型   68 int 状态
+ * 72 long 交易号在 arena 中的偏移     80 long 备注偏移（-1 为 null）   88 byte 币种长度 + 15 字节币种
+ * </pre>
+ * 读不加锁：按版本号做顺序锁校验，读到写了一半的槽位时重试，因此删除后的槽位可以立即复用。
+ * 同一交易号的写操作由调用方的交易锁串行化；不同交易号并发写入时，槽位分配无锁，哈希索引按段加锁。
+ * <p>
+ * 文件随进程退出保留，启动时扫描槽位重建哈希索引。arena 只追加，更新备注留下的旧字符串不回收。
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.store.type", havingValue = "mapped")
+@Slf4j
+public class MappedTransactionStore implements TransactionStore {
+    static final int SLOT_BYTES = 104;
+
+    // 每块 2^20 个槽位（约 104MB），槽位不跨块；arena 每块 64MB
+    private static final int SLOTS_PER_CHUNK = 1 << 20;
+
+    private static final int ARENA_CHUNK_BYTES = 1 << 26;
+
+    private static final int MAX_CURRENCY_BYTES = 15;
+
+    private static final byte FREE = 0;
+
+    private static final byte LIVE = 1;
+
+    private static final VarHandle VERSION = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int SEGMENT_BITS = 6;
+
+    // 索引项：高 32 位为哈希，低 32 位为槽位号 + 1；0 为空位，墓碑的低 32 位为 0，不会与有效项冲突
+    private static final long TOMBSTONE = Long.MIN_VALUE;
+
+    private final MappedChunks slots;
+
+    private final MappedChunks arena;
+
+    private final AtomicInteger highWater = new AtomicInteger();
+
+    private final AtomicLong arenaEnd = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<Integer> freeSlots = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    private static final class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+
+        volatile AtomicLongArray table = new AtomicLongArray(16);
+
+        // 有效项 + 墓碑，只在持锁时访问
+        int used;
+    }
+
+    @Autowired
+    public MappedTransactionStore(@Value("${transaction.store.dir:data/store}") String dir) {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+        try {
+            Path path = Paths.get(dir);
+            Files.createDirectories(path);
+            this.slots = new MappedChunks(path.resolve("slots.dat"), SLOTS_PER_CHUNK * SLOT_BYTES);
+            this.arena = new MappedChunks(path.resolve("arena.dat"), ARENA_CHUNK_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("open mapped store failed, dir:" + dir, e);
+        }
+        open();
+    }
+
+    /**
+     * 扫描槽位：有效槽位重建索引，其余槽位进入空闲队列；异常退出时写了一半的槽位（版本号为奇数）按空闲处理。
+     */
+    private void open() {
+        long start = System.currentTimeMillis();
+        int capacity = (int) (slots.capacity() / SLOT_BYTES);
+        int last = -1;
+        long arenaUsed = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            ByteBuffer chunk = chunkOf(slot);
+            int base = baseOf(slot);
+            int version = (int) VERSION.get(chunk, base);
+            if ((version & 1) != 0) {
+                chunk.put(base + 4, FREE);
+                VERSION.set(chunk, base, version + 1);
+            }
+            if (chunk.get(base + 4) != LIVE) {
+                continue;
+            }
+            last = slot;
+            long noRef = chunk.getLong(base + 72);
+            long remarkRef = chunk.getLong(base + 80);
+            arenaUsed = Math.max(arenaUsed, arenaEntryEnd(noRef));
+            if (remarkRef >= 0) {
+                arenaUsed = Math.max(arenaUsed, arenaEntryEnd(remarkRef));
+            }
+            String transactionNo = readString(noRef);
+            insert(transactionNo.hashCode(), slot);
+            size.incrementAndGet();
+        }
+        for (int slot = 0; slot < last; slot++) {
+            if (chunkOf(slot).get(baseOf(slot) + 4) != LIVE) {
+                freeSlots.add(slot);
+            }
+        }
+        highWater.set(last + 1);
+        arenaEnd.set(arenaUsed);
+        if (size.get() > 0) {
+            log.info("mapped store opened, transactions:{}, cost:{}ms", size.get(), System.currentTimeMillis() - start);
+        }
+    }
+
+    @Override
+    public TransactionRecord get(String transactionNo) {
+        byte[] key = transactionNo.getBytes(StandardCharsets.UTF_8);
+        int hash = spread(transactionNo.hashCode());
+        AtomicLongArray table = segmentFor(hash).table;
+        int mask = table.length() - 1;
+        for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long entry = table.get(i);
+            if (entry == 0) {
+                return null;
+            }
+            if (entry != TOMBSTONE && (int) (entry >>> 32) == hash) {
+                TransactionRecord record = read((int) entry - 1, key);
+                if (record != null) {
+                    return record;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean contains(String transactionNo) {
+        return get(transactionNo) != null;
+    }
+
+    @Override
+    public void put(TransactionRecord record) {
+        byte[] key = record.transactionNo().getBytes(StandardCharsets.UTF_8);
+        byte[] currency = currencyBytes(record);
+        int slot = find(record.transactionNo(), key);
+        if (slot >= 0) {
+            // 已存在：原位更新，沿用交易号；备注未变化时沿用原偏移
+            ByteBuffer chunk = chunkOf(slot);
+            int base = baseOf(slot);
+            long noRef = chunk.getLong(base + 72);
+            long remarkRef = chunk.getLong(base + 80);
+            if (remarkRef < 0 ? record.remark() != null : !readString(remarkRef).equals(record.remark())) {
+                remarkRef = record.remark() == null ? -1 : append(record.remark().getBytes(StandardCharsets.UTF_8));
+            }
+            write(slot, record, noRef, remarkRef, currency);
+            return;
+        }
+        long noRef = append(key);
+        long remarkRef = record.remark() == null ? -1 : append(record.remark().getBytes(StandardCharsets.UTF_8));
+        slot = allocate();
+        write(slot, record, noRef, remarkRef, currency);
+        insert(record.transactionNo().hashCode(), slot);
+        size.incrementAndGet();
+    }
+
+    @Override
+    public TransactionRecord remove(String transactionNo) {
+        byte[] key = transactionNo.getBytes(StandardCharsets.UTF_8);
+        int hash = spread(transactionNo.hashCode());
+        Segment segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            AtomicLongArray table = segment.table;
+            int mask = table.length() - 1;
+            for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                long entry = table.get(i);
+                if (entry == 0) {
+                    return null;
+                }
+                if (entry == TOMBSTONE || (int) (entry >>> 32) != hash) {
+                    continue;
+                }
+                int slot = (int) entry - 1;
+                TransactionRecord record = read(slot, key);
+                if (record != null) {
+                    table.set(i, TOMBSTONE);
+                    free(slot);
+                    size.decrementAndGet();
+                    return record;
+                }
+            }
+            return null;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public Iterable<TransactionRecord> records() {
+        return () -> new Iterator<>() {
+            private int slot = -1;
+
+            private TransactionRecord next = advance();
+
+            private TransactionRecord advance() {
+                while (++slot < highWater.get()) {
+                    TransactionRecord record = read(slot, null);
+                    if (record != null) {
+                        return record;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public TransactionRecord next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                TransactionRecord current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * 丢弃全部数据（启动恢复前调用，此时没有并发访问）。
+     */
+    @Override
+    public void clear() {
+        for (int slot = 0; slot < highWater.get(); slot++) {
+            ByteBuffer chunk = chunkOf(slot);
+            int base = baseOf(slot);
+            if (chunk.get(base + 4) == LIVE) {
+                free(slot);
+            }
+        }
+        for (Segment segment : segments) {
+            segment.table = new AtomicLongArray(16);
+            segment.used = 0;
+        }
+        freeSlots.clear();
+        highWater.set(0);
+        arenaEnd.set(0);
+        size.set(0);
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            slots.close();
+            arena.close();
+        } catch (IOException e) {
+            log.error("close mapped store error", e);
+        }
+    }
+
+    private int find(String transactionNo, byte[] key) {
+        int hash = spread(transactionNo.hashCode());
+        AtomicLongArray table = segmentFor(hash).table;
+        int mask = table.length() - 1;
+        for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long entry = table.get(i);
+            if (entry == 0) {
+                return -1;
+            }
+            if (entry != TOMBSTONE && (int) (entry >>> 32) == hash && read((int) entry - 1, key) != null) {
+                return (int) entry - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int rawHash, int slot) {
+        int hash = spread(rawHash);
+        Segment segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            AtomicLongArray table = segment.table;
+            if ((segment.used + 1) * 2 > table.length()) {
+                table = rehash(segment);
+            }
+            int mask = table.length() - 1;
+            int i = hash & mask;
+            while (table.get(i) != 0 && table.get(i) != TOMBSTONE) {
+                i = (i + 1) & mask;
+            }
+            if (table.get(i) == 0) {
+                segment.used++;
+            }
+            table.set(i, ((long) hash << 32) | (slot + 1L));
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * 扩容并清除墓碑。旧表内容保持不变，仍在旧表上查找的读线程不受影响。
+     */
+    private AtomicLongArray rehash(Segment segment) {
+        AtomicLongArray old = segment.table;
+        int live = 0;
+        for (int i = 0; i < old.length(); i++) {
+            long entry = old.get(i);
+            if (entry != 0 && entry != TOMBSTONE) {
+                live++;
+            }
+        }
+        int capacity = old.length();
+        while ((live + 1) * 2 > capacity / 2) {
+            capacity <<= 1;
+        }
+        AtomicLongArray table = new AtomicLongArray(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.length(); i++) {
+            long entry = old.get(i);
+            if (entry == 0 || entry == TOMBSTONE) {
+                continue;
+            }
+            int j = (int) (entry >>> 32) & mask;
+            while (table.get(j) != 0) {
+                j = (j + 1) & mask;
+            }
+            table.set(j, entry);
+        }
+        segment.table = table;
+        segment.used = live;
+        return table;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> (32 - SEGMENT_BITS)];
+    }
+
+    private static int spread(int hash) {
+        return hash * 0x9E3779B9;
+    }
+
+    private int allocate() {
+        Integer free = freeSlots.poll();
+        int slot = free != null ? free : highWater.getAndIncrement();
+        slots.ensure((long) (slot + 1) * SLOT_BYTES);
+        return slot;
+    }
+
+    private void free(int slot) {
+        ByteBuffer chunk = chunkOf(slot);
+        int base = baseOf(slot);
+        int version = (int) VERSION.get(chunk, base);
+        VERSION.setOpaque(chunk, base, version + 1);
+        VarHandle.storeStoreFence();
+        chunk.put(base + 4, FREE);
+        VERSION.setRelease(chunk, base, version + 2);
+        freeSlots.add(slot);
+    }
+
+    private void write(int slot, TransactionRecord record, long noRef, long remarkRef, byte[] currency) {
+        ByteBuffer chunk = chunkOf(slot);
+        int base = baseOf(slot);
+        int version = (int) VERSION.get(chunk, base);
+        VERSION.setOpaque(chunk, base, version + 1);
+        VarHandle.storeStoreFence();
+        chunk.put(base + 4, LIVE);
+        chunk.putShort(base + 6, record.nulls());
+        chunk.putLong(base + 8, record.fromAccountId());
+        chunk.putLong(base + 16, record.toAccountId());
+        chunk.putLong(base + 24, record.amount());
+        chunk.putLong(base + 32, record.createTime());
+        chunk.putLong(base + 40, record.updateTime());
+        chunk.putLong(base + 48, record.creator());
+        chunk.putLong(base + 56, record.updater());
+        chunk.putInt(base + 64, record.type());
+        chunk.putInt(base + 68, record.status());
+        chunk.putLong(base + 72, noRef);
+        chunk.putLong(base + 80, remarkRef);
+        chunk.put(base + 88, (byte) currency.length);
+        chunk.put(base + 89, currency);
+        VERSION.setRelease(chunk, base, version + 2);
+    }
+
+    /**
+     * 顺序锁读取槽位。key 不为空时只返回交易号与之相同的有效记录。
+     */
+    private TransactionRecord read(int slot, byte[] key) {
+        ByteBuffer chunk = chunkOf(slot);
+        int base = baseOf(slot);
+        while (true) {
+            int version = (int) VERSION.getAcquire(chunk, base);
+            if ((version & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            TransactionRecord record = null;
+            try {
+                record = readSlot(chunk, base, key);
+            } catch (RuntimeException e) {
+                // 并发写入时可能读到不一致的偏移，版本号校验失败后重试
+                if ((int) VERSION.getAcquire(chunk, base) == version) {
+                    throw e;
+                }
+            }
+            VarHandle.loadLoadFence();
+            if ((int) VERSION.getOpaque(chunk, base) == version) {
+                return record;
+            }
+        }
+    }
+
+    private TransactionRecord readSlot(ByteBuffer chunk, int base, byte[] key) {
+        if (chunk.get(base + 4) != LIVE) {
+            return null;
+        }
+        long noRef = chunk.getLong(base + 72);
+        if (key != null && !matches(noRef, key)) {
+            return null;
+        }
+        long remarkRef = chunk.getLong(base + 80);
+        short nulls = chunk.getShort(base + 6);
+        int currencyLength = chunk.get(base + 88);
+        short currencyCode = 0;
+        if ((nulls & TransactionRecord.NULL_CURRENCY) == 0) {
+            byte[] currency = new byte[currencyLength];
+            chunk.get(base + 89, currency);
+            currencyCode = CurrencyDictionary.code(new String(currency, StandardCharsets.UTF_8));
+        }
+        return new TransactionRecord(readString(noRef),
+                chunk.getLong(base + 8),
+                chunk.getLong(base + 16),
+                chunk.getLong(base + 24),
+                chunk.getLong(base + 32),
+                chunk.getLong(base + 40),
+                chunk.getLong(base + 48),
+                chunk.getLong(base + 56),
+                chunk.getInt(base + 64),
+                chunk.getInt(base + 68),
+                currencyCode,
+                nulls,
+                (nulls & NULL_REMARK) != 0 || remarkRef < 0 ? null : readString(remarkRef));
+    }
+
+    private static byte[] currencyBytes(TransactionRecord record) {
+        String currency = record.currency();
+        byte[] bytes = currency == null ? new byte[0] : currency.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_CURRENCY_BYTES) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        return bytes;
+    }
+
+    /**
+     * 追加一个 [int 长度][字节] 项并返回偏移；项不跨块，块尾放不下时从下一块开始。
+     */
+    private long append(byte[] bytes) {
+        int length = 4 + bytes.length;
+        if (length > arena.chunkSize()) {
+            throw new TransactionException(ARGUMENT_EXCEPTION);
+        }
+        long offset;
+        while (true) {
+            long end = arenaEnd.get();
+            offset = arena.position(end) + length > arena.chunkSize() ? end - arena.position(end) + arena.chunkSize() : end;
+            if (arenaEnd.compareAndSet(end, offset + length)) {
+                break;
+            }
+        }
+        arena.ensure(offset + length);
+        ByteBuffer chunk = arena.chunk(offset);
+        int position = arena.position(offset);
+        chunk.putInt(position, bytes.length);
+        chunk.put(position + 4, bytes);
+        return offset;
+    }
+
+    private String readString(long offset) {
+        ByteBuffer chunk = arena.chunk(offset);
+        int position = arena.position(offset);
+        byte[] bytes = new byte[chunk.getInt(position)];
+        chunk.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean matches(long offset, byte[] key) {
+        ByteBuffer chunk = arena.chunk(offset);
+        int position = arena.position(offset);
+        if (chunk.getInt(position) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (chunk.get(position + 4 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long arenaEntryEnd(long offset) {
+        return offset + 4 + arena.chunk(offset).getInt(arena.position(offset));
+    }
+
+    private ByteBuffer chunkOf(int slot) {
+        return slots.chunk((long) slot * SLOT_BYTES);
+    }
+
+    private int baseOf(int slot) {
+        return slots.position((long) slot * SLOT_BYTES);
+    }
+}
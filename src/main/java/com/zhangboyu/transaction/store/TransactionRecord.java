@@ -0,0 +1,92 @@
+package com.zhangboyu.transaction.store;
+
+import com.zhangboyu.transaction.entity.Transaction;
+
+import java.util.Date;
+
+/**
+ * 存储层的交易记录：不可变、字段均为原始类型，时间为毫秒时间戳，币种为 {@link CurrencyDictionary} 编码。
+ * 可空字段通过 nulls 位图标记，对应位置的原始值为 0。
+ * <p>
+ * 相比 {@link Transaction}（装箱 Long/Integer、两个 Date、每条一个币种字符串），每条记录只有一个对象头，
+ * 交易号字符串与主表键、索引键共用同一个实例。对外接口仍返回 {@link Transaction}，由 {@link #toTransaction()} 临时生成。
+ */
+public record TransactionRecord(String transactionNo,
+                                long fromAccountId,
+                                long toAccountId,
+                                long amount,
+                                long createTime,
+                                long updateTime,
+                                long creator,
+                                long updater,
+                                int type,
+                                int status,
+                                short currencyCode,
+                                short nulls,
+                                String remark) {
+    // 可空字段位图
+    public static final int NULL_FROM = 1;
+    public static final int NULL_TO = 1 << 1;
+    public static final int NULL_AMOUNT = 1 << 2;
+    public static final int NULL_CURRENCY = 1 << 3;
+    public static final int NULL_REMARK = 1 << 4;
+    public static final int NULL_TYPE = 1 << 5;
+    public static final int NULL_STATUS = 1 << 6;
+    public static final int NULL_CREATE_TIME = 1 << 7;
+    public static final int NULL_CREATOR = 1 << 8;
+    public static final int NULL_UPDATE_TIME = 1 << 9;
+    public static final int NULL_UPDATER = 1 << 10;
+
+    public static TransactionRecord of(Transaction tx) {
+        int nulls = 0;
+        nulls |= tx.getFromAccountId() == null ? NULL_FROM : 0;
+        nulls |= tx.getToAccountId() == null ? NULL_TO : 0;
+        nulls |= tx.getAmount() == null ? NULL_AMOUNT : 0;
+        nulls |= tx.getCurrency() == null ? NULL_CURRENCY : 0;
+        nulls |= tx.getRemark() == null ? NULL_REMARK : 0;
+        nulls |= tx.getType() == null ? NULL_TYPE : 0;
+        nulls |= tx.getStatus() == null ? NULL_STATUS : 0;
+        nulls |= tx.getCreateTime() == null ? NULL_CREATE_TIME : 0;
+        nulls |= tx.getCreator() == null ? NULL_CREATOR : 0;
+        nulls |= tx.getUpdateTime() == null ? NULL_UPDATE_TIME : 0;
+        nulls |= tx.getUpdater() == null ? NULL_UPDATER : 0;
+        return new TransactionRecord(tx.getTransactionNo(),
+                tx.getFromAccountId() == null ? 0 : tx.getFromAccountId(),
+                tx.getToAccountId() == null ? 0 : tx.getToAccountId(),
+                tx.getAmount() == null ? 0 : tx.getAmount(),
+                tx.getCreateTime() == null ? 0 : tx.getCreateTime().getTime(),
+                tx.getUpdateTime() == null ? 0 : tx.getUpdateTime().getTime(),
+                tx.getCreator() == null ? 0 : tx.getCreator(),
+                tx.getUpdater() == null ? 0 : tx.getUpdater(),
+                tx.getType() == null ? 0 : tx.getType(),
+                tx.getStatus() == null ? 0 : tx.getStatus(),
+                tx.getCurrency() == null ? 0 : CurrencyDictionary.code(tx.getCurrency()),
+                (short) nulls,
+                tx.getRemark());
+    }
+
+    public Transaction toTransaction() {
+        Transaction tx = new Transaction();
+        tx.setTransactionNo(transactionNo);
+        tx.setFromAccountId(isNull(NULL_FROM) ? null : fromAccountId);
+        tx.setToAccountId(isNull(NULL_TO) ? null : toAccountId);
+        tx.setAmount(isNull(NULL_AMOUNT) ? null : amount);
+        tx.setCurrency(currency());
+        tx.setRemark(remark);
+        tx.setType(isNull(NULL_TYPE) ? null : type);
+        tx.setStatus(isNull(NULL_STATUS) ? null : status);
+        tx.setCreateTime(isNull(NULL_CREATE_TIME) ? null : new Date(createTime));
+        tx.setCreator(isNull(NULL_CREATOR) ? null : creator);
+        tx.setUpdateTime(isNull(NULL_UPDATE_TIME) ? null : new Date(updateTime));
+        tx.setUpdater(isNull(NULL_UPDATER) ? null : updater);
+        return tx;
+    }
+
+    public String currency() {
+        return isNull(NULL_CURRENCY) ? null : CurrencyDictionary.name(currencyCode);
+    }
+
+    public boolean isNull(int field) {
+        return (nulls & field) != 0;
+    }
+}
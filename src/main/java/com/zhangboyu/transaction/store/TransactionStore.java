@@ -0,0 +1,28 @@
+package com.zhangboyu.transaction.store;
+
+/**
+ * 交易主表存储：交易号 -> 记录。
+ * <p>
+ * 实现需保证单个交易号上的读写线程安全、读操作不加锁；同一交易号的写操作由调用方通过交易锁串行化。
+ */
+public interface TransactionStore {
+    TransactionRecord get(String transactionNo);
+
+    boolean contains(String transactionNo);
+
+    void put(TransactionRecord record);
+
+    TransactionRecord remove(String transactionNo);
+
+    /**
+     * 弱一致遍历，遍历期间不阻塞写入。
+     */
+    Iterable<TransactionRecord> records();
+
+    int size();
+
+    /**
+     * 清空全部数据，只在启动恢复前调用。
+     */
+    void clear();
+}
@@ -0,0 +1,25 @@
+package com.zhangboyu.transaction.validator;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 币种必须是 ISO 4217 代码（如 CNY、USD），null 视为合法，非空由 @NotBlank 约束。
+ * 币种会登记进进程内的 {@link com.zhangboyu.transaction.store.CurrencyDictionary}，编码不回收，
+ * 只接受已知代码，避免客户端用任意字符串占满字典后合法币种也无法写入。
+ */
+@Target({ElementType.FIELD, ElementType.PARAMETER, ElementType.RECORD_COMPONENT})
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = IsoCurrencyValidator.class)
+public @interface IsoCurrency {
+    String message() default "must be an ISO 4217 currency code";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,20 @@
+package com.zhangboyu.transaction.validator;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+import java.util.Currency;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class IsoCurrencyValidator implements ConstraintValidator<IsoCurrency, String> {
+    // JDK 内置的 ISO 4217 币种表，数量固定（约 300 个），字典编码不会因客户端输入增长
+    private static final Set<String> CODES = Currency.getAvailableCurrencies().stream()
+            .map(Currency::getCurrencyCode)
+            .collect(Collectors.toUnmodifiableSet());
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        return value == null || CODES.contains(value);
+    }
+}
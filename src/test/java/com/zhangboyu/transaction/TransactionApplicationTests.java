@@ -3,7 +3,7 @@ package com.zhangboyu.transaction;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = {"transaction.wal.enabled=false", "transaction.snapshot.enabled=false", "transaction.id.high-water-file="})
 class TransactionApplicationTests {
 
 	@Test
@@ -0,0 +1,41 @@
+package com.zhangboyu.transaction.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+    @Test
+    void owner_IsDeterministicAndBalanced() {
+        HashRing ring = new HashRing(List.of("n1", "n2", "n3"), 128);
+        // 节点列表顺序不影响归属
+        HashRing reordered = new HashRing(List.of("n3", "n1", "n2"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30_000; i++) {
+            String key = Long.toString(1000 + i);
+            assertEquals(ring.owner(key), reordered.owner(key));
+            counts.merge(ring.owner(key), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 7_000 && count < 13_000, counts.toString()));
+    }
+
+    @Test
+    void owner_AddingNodeOnlyMovesKeysToIt() {
+        HashRing before = new HashRing(List.of("n1", "n2", "n3"), 128);
+        HashRing after = new HashRing(List.of("n1", "n2", "n3", "n4"), 128);
+        int moved = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String key = "SN" + i;
+            if (!before.owner(key).equals(after.owner(key))) {
+                assertEquals("n4", after.owner(key));
+                moved++;
+            }
+        }
+        assertTrue(moved > 1_500 && moved < 3_500, "moved:" + moved);
+    }
+}
@@ -0,0 +1,62 @@
+package com.zhangboyu.transaction.controller;
+
+import com.zhangboyu.transaction.entity.AccountFlow;
+import com.zhangboyu.transaction.entity.DailyCounts;
+import com.zhangboyu.transaction.enums.ErrorEnum;
+import com.zhangboyu.transaction.replication.ReplicationState;
+import com.zhangboyu.transaction.service.TransactionAggregates;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(AggregateController.class)
+class AggregateControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private TransactionAggregates transactionAggregates;
+
+    // 对外接口经过副本陈旧读检查，默认为主节点
+    @MockitoBean
+    private ReplicationState replicationState;
+
+    @Test
+    void getAccountFlows() throws Exception {
+        AccountFlow flow = new AccountFlow();
+        flow.setAccountId(7);
+        flow.setCurrency("CNY");
+        flow.setNet(-70);
+        Mockito.when(transactionAggregates.accountFlows(7, "CNY")).thenReturn(List.of(flow));
+
+        mockMvc.perform(get("/api/v1/aggregates/accounts/7").param("currency", "CNY"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].net").value(-70));
+    }
+
+    @Test
+    void getDailyCounts() throws Exception {
+        DailyCounts counts = new DailyCounts();
+        counts.setDate("2025-02-18");
+        counts.setTotal(3);
+        counts.setByStatus(Map.of(1, 3L));
+        Mockito.when(transactionAggregates.dailyCounts(LocalDate.of(2025, 2, 18))).thenReturn(counts);
+
+        mockMvc.perform(get("/api/v1/aggregates/days/2025-02-18"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.byStatus.1").value(3));
+        mockMvc.perform(get("/api/v1/aggregates/days/2025-2-18"))
+                .andExpect(jsonPath("$.code").value(ErrorEnum.ARGUMENT_EXCEPTION.getCode()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.zhangboyu.transaction.controller;
+
+import com.zhangboyu.transaction.converter.TransactionConverter;
+import com.zhangboyu.transaction.entity.ChangeBatch;
+import com.zhangboyu.transaction.entity.ChangeEvent;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.enums.ChangeType;
+import com.zhangboyu.transaction.enums.ErrorEnum;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.replication.ReplicationState;
+import com.zhangboyu.transaction.service.ChangeLog;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ChangeController.class)
+@Import(TransactionConverter.class)
+class ChangeControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ChangeLog changeLog;
+
+    // 对外接口经过副本陈旧读检查，默认为主节点
+    @MockitoBean
+    private ReplicationState replicationState;
+
+    @Test
+    void pollChanges_WaitsForNextChange() throws Exception {
+        Transaction transaction = TransactionUtils.createTransaction();
+        transaction.setTransactionNo("TX1");
+        ChangeEvent event = new ChangeEvent(11, ChangeType.CREATE, "TX1", "SN1", null, transaction);
+        Mockito.when(changeLog.read(10, 100))
+                .thenReturn(new ChangeBatch(List.of(), 10))
+                .thenReturn(new ChangeBatch(List.of(event), 11));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/changes").param("after", "10").param("waitMs", "5000")).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.lastSequence").value(11))
+                .andExpect(jsonPath("$.data.events[0].type").value("CREATE"))
+                .andExpect(jsonPath("$.data.events[0].after.transactionNo").value("TX1"));
+    }
+
+    @Test
+    void pollChanges_ExpiredSequence() throws Exception {
+        Mockito.when(changeLog.read(1, 100)).thenThrow(new TransactionException(ErrorEnum.CHANGE_EXPIRED_EXCEPTION));
+
+        mockMvc.perform(get("/api/v1/changes").param("after", "1"))
+                .andExpect(jsonPath("$.code").value(ErrorEnum.CHANGE_EXPIRED_EXCEPTION.getCode()));
+        mockMvc.perform(get("/api/v1/changes").param("limit", "0"))
+                .andExpect(jsonPath("$.code").value(ErrorEnum.ARGUMENT_EXCEPTION.getCode()));
+    }
+}
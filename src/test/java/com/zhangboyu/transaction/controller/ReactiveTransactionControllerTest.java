@@ -0,0 +1,149 @@
+package com.zhangboyu.transaction.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zhangboyu.transaction.converter.TransactionConverter;
+import com.zhangboyu.transaction.dto.dto.ExportRowDTO;
+import com.zhangboyu.transaction.dto.dto.TransactionDTO;
+import com.zhangboyu.transaction.entity.Cursor;
+import com.zhangboyu.transaction.entity.CursorPageResult;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.replication.ReplicationState;
+import com.zhangboyu.transaction.service.iface.TransactionService;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ReactiveTransactionController.class, properties = {
+        "transaction.reactive.enabled=true", "transaction.reactive.page-size=2"})
+public class ReactiveTransactionControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ReactiveTransactionController reactiveTransactionController;
+    @MockitoBean
+    private TransactionService transactionService;
+
+    // 对外接口经过副本陈旧读检查，默认为主节点
+    @MockitoBean
+    private ReplicationState replicationState;
+    @MockitoBean
+    private TransactionConverter transactionConverter;
+
+    private Transaction transaction(long createTime, String transactionNo) {
+        Transaction transaction = TransactionUtils.createTransaction();
+        transaction.setCreateTime(new Date(createTime));
+        transaction.setTransactionNo(transactionNo);
+        TransactionDTO dto = new TransactionDTO();
+        dto.setTransactionNo(transactionNo);
+        Mockito.when(transactionConverter.toTransactionDTO(transaction)).thenReturn(dto);
+        return transaction;
+    }
+
+    private CursorPageResult<Transaction> page(boolean hasNext, Transaction... items) {
+        CursorPageResult<Transaction> page = new CursorPageResult<>();
+        page.setItems(List.of(items));
+        page.setHasNext(hasNext);
+        return page;
+    }
+
+    @Test
+    void listTransactions_StreamsAllPages() throws Exception {
+        Cursor start = Cursor.initial();
+        CursorPageResult<Transaction> firstPage = page(true, transaction(1L, "TX1"), transaction(2L, "TX2"));
+        CursorPageResult<Transaction> lastPage = page(false, transaction(3L, "TX3"));
+        Mockito.when(transactionService.decodeCursor(null)).thenReturn(start);
+        Mockito.when(transactionService.listAllTransaction(start, 2)).thenReturn(firstPage);
+        Mockito.when(transactionService.listAllTransaction(new Cursor(2L, "TX2"), 2)).thenReturn(lastPage);
+
+        MvcResult result = mockMvc.perform(get("/api/v1/reactive/transactions").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> transactionNos = body.lines()
+                .map(this::readTransactionNo)
+                .toList();
+        assertEquals(List.of("TX1", "TX2", "TX3"), transactionNos);
+    }
+
+    @Test
+    void listTransactions_ReadsNextPageOnlyOnDemand() throws Exception {
+        Cursor start = Cursor.initial();
+        Mockito.when(transactionService.decodeCursor(null)).thenReturn(start);
+        CursorPageResult<Transaction> firstPage = page(true, transaction(1L, "TX1"), transaction(2L, "TX2"));
+        Mockito.when(transactionService.listAllTransaction(Mockito.any(), Mockito.eq(2))).thenReturn(firstPage);
+        CountDownLatch received = new CountDownLatch(2);
+
+        BaseSubscriber<TransactionDTO> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                subscription.request(2);
+            }
+
+            @Override
+            protected void hookOnNext(TransactionDTO value) {
+                received.countDown();
+            }
+        };
+        reactiveTransactionController.listTransactions(null, null).subscribe(subscriber);
+
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        TimeUnit.MILLISECONDS.sleep(200);
+        // 下游只请求了一页的量，后续页不会被提前读取
+        Mockito.verify(transactionService, Mockito.times(1)).listAllTransaction(Mockito.any(), Mockito.eq(2));
+        subscriber.dispose();
+    }
+
+    @Test
+    void exportTransactions() throws Exception {
+        Cursor start = Cursor.initial();
+        Transaction first = transaction(1L, "TX1");
+        Mockito.when(transactionService.decodeCursor(null)).thenReturn(start);
+        Mockito.when(transactionService.exportTransactions(start, 1L, 5L)).thenReturn(List.of(first).iterator());
+        Mockito.when(transactionService.encodeCursor(first)).thenReturn("C1");
+
+        MvcResult result = mockMvc.perform(get("/api/v1/reactive/transactions/export")
+                        .param("startTime", "1")
+                        .param("endTime", "5")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("TX1", readTransactionNo(body.trim()));
+        assertEquals("C1", objectMapper.readValue(body.trim(), ExportRowDTO.class).getCursor());
+    }
+
+    private String readTransactionNo(String line) {
+        try {
+            return objectMapper.readValue(line, TransactionDTO.class).getTransactionNo();
+        } catch (Exception e) {
+            throw new IllegalStateException(line, e);
+        }
+    }
+}
@@ -2,34 +2,49 @@ package com.zhangboyu.transaction.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zhangboyu.transaction.converter.TransactionConverter;
+import com.zhangboyu.transaction.dto.dto.ExportRowDTO;
 import com.zhangboyu.transaction.dto.dto.PaginationDTO;
 import com.zhangboyu.transaction.dto.dto.TransactionDTO;
+import com.zhangboyu.transaction.dto.request.TransactionBatchCreateRequest;
 import com.zhangboyu.transaction.dto.request.TransactionCreateRequest;
 import com.zhangboyu.transaction.dto.request.TransactionUpdateRequest;
 import com.zhangboyu.transaction.dto.response.PageData;
+import com.zhangboyu.transaction.dto.response.TransactionBatchCreateData;
+import com.zhangboyu.transaction.entity.BatchCreateItem;
 import com.zhangboyu.transaction.entity.Cursor;
 import com.zhangboyu.transaction.entity.CursorPageResult;
 import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.entity.TransactionQuery;
+import com.zhangboyu.transaction.enums.ErrorEnum;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.replication.ReplicationState;
+import com.zhangboyu.transaction.service.HotTransactionCache;
 import com.zhangboyu.transaction.service.iface.TransactionService;
 import com.zhangboyu.transaction.utils.TransactionUtils;
 import com.zhangboyu.transaction.validator.TransactionValidator;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Date;
 import java.util.List;
 
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 
 @WebMvcTest(TransactionController.class)
+@Import(HotTransactionCache.class)
 public class TransactionControllerTest {
     @Autowired
     private MockMvc mockMvc;
@@ -38,6 +53,10 @@ public class TransactionControllerTest {
     @MockitoBean
     private TransactionService transactionService;
 
+    // 对外接口经过副本陈旧读检查，默认为主节点
+    @MockitoBean
+    private ReplicationState replicationState;
+
     @MockitoBean
     private TransactionConverter transactionConverter;
 
@@ -56,9 +75,8 @@ public class TransactionControllerTest {
 
         transactionDTO.setTransactionNo(transactionNo);
         // 模拟依赖行为
-        Mockito.doNothing().when(transactionValidator).validate(request);
         Mockito.when(transactionConverter.toTransaction(request)).thenReturn(transaction);
-        Mockito.when(transactionService.createTransaction(request.serialNumber(), transaction)).thenReturn(transactionNo);
+        Mockito.when(transactionService.createTransactionIfAbsent(request.serialNumber(), transaction)).thenReturn(true);
         Mockito.when(transactionConverter.toTransactionDTO(transaction)).thenReturn(transactionDTO);
 
         // 执行请求并验证
@@ -69,9 +87,77 @@ public class TransactionControllerTest {
                 .andExpect(header().string("Location", "/transactions/" + transactionNo))
                 .andExpect(jsonPath("$.data.transaction.transactionNo").value(transactionNo));
 
-        // 验证依赖调用
-        Mockito.verify(transactionValidator).validate(request);
-        Mockito.verify(transactionService).createTransaction(serialNum, transaction);
+        // 验证依赖调用：创建接口不再单独判重
+        Mockito.verify(transactionService).createTransactionIfAbsent(serialNum, transaction);
+        Mockito.verify(transactionService, Mockito.never()).existBySerialNo(Mockito.anyString());
+        Mockito.verifyNoInteractions(transactionValidator);
+    }
+
+    @Test
+    void createTransaction_Duplicate() throws Exception {
+        TransactionCreateRequest request = TransactionUtils.createRequest("1");
+        Transaction transaction = TransactionUtils.createTransaction();
+        Mockito.when(transactionConverter.toTransaction(request)).thenReturn(transaction);
+        Mockito.when(transactionService.createTransactionIfAbsent("1", transaction)).thenReturn(false);
+
+        mockMvc.perform(post("/api/v1/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(jsonPath("$.code").value(ErrorEnum.CREATE_DUPLICATE_EXCEPTION.getCode()));
+        Mockito.verify(transactionConverter, Mockito.never()).toTransactionDTO(Mockito.any());
+    }
+
+    @Test
+    void createTransaction_UnknownCurrency() throws Exception {
+        // 非 ISO 4217 币种在进入币种字典之前被拒绝
+        for (String currency : List.of("XYZ", "cny", "A")) {
+            TransactionCreateRequest request = new TransactionCreateRequest(1L, 2L, 100L, currency, null,
+                    1, 1, 1L, null, 1L, null, "1");
+            mockMvc.perform(post("/api/v1/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.details.currency").exists());
+        }
+        Mockito.verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void createTransactions() throws Exception {
+        TransactionBatchCreateRequest request = new TransactionBatchCreateRequest(
+                List.of(TransactionUtils.createRequest("1"), TransactionUtils.createRequest("2")));
+        TransactionBatchCreateData data = new TransactionBatchCreateData();
+        data.setSucceeded(1);
+        data.setDuplicated(1);
+        Mockito.when(transactionConverter.toBatchCreateData(Mockito.anyList())).thenReturn(data);
+
+        mockMvc.perform(post("/api/v1/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.succeeded").value(1))
+                .andExpect(jsonPath("$.data.duplicated").value(1));
+
+        ArgumentCaptor<List<BatchCreateItem>> captor = ArgumentCaptor.captor();
+        Mockito.verify(transactionService).createTransactions(captor.capture());
+        assertEquals(List.of("1", "2"), captor.getValue().stream().map(BatchCreateItem::getSerialNumber).toList());
+        // 批量接口不逐条调用校验器，重复由服务层按项返回
+        Mockito.verifyNoInteractions(transactionValidator);
+    }
+
+    @Test
+    void createTransactions_InvalidItem() throws Exception {
+        TransactionCreateRequest invalid = new TransactionCreateRequest(1L, 2L, -1L, "CNY", null,
+                1, 1, 1L, null, 1L, null, "2");
+        TransactionBatchCreateRequest request = new TransactionBatchCreateRequest(
+                List.of(TransactionUtils.createRequest("1"), invalid));
+
+        mockMvc.perform(post("/api/v1/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details['transactions[1].amount']").exists());
+        Mockito.verifyNoInteractions(transactionService);
     }
 
     @Test
@@ -132,6 +218,124 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.data.pagination.nextCursor").value(nextCursorString));
     }
 
+    @Test
+    void getTransaction_CachedWithConditionalRequests() throws Exception {
+        Transaction transaction = TransactionUtils.createTransaction();
+        String transactionNo = transaction.getTransactionNo();
+        TransactionDTO transactionDTO = TransactionUtils.createTransactionDTO();
+        Mockito.when(transactionService.getTransaction(transactionNo)).thenReturn(transaction);
+        Mockito.when(transactionConverter.toTransactionDTO(transaction)).thenReturn(transactionDTO);
+
+        MvcResult result = mockMvc.perform(get("/api/v1/transactions/{transactionNo}", transactionNo))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(jsonPath("$.data.transactionNo").value(transactionDTO.getTransactionNo()))
+                .andReturn();
+        String etag = result.getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/v1/transactions/{transactionNo}", transactionNo).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        // 第二次命中缓存，不再转换
+        Mockito.verify(transactionConverter, Mockito.times(1)).toTransactionDTO(transaction);
+
+        // 交易变化后缓存不再命中，ETag 随之变化
+        Transaction updated = TransactionUtils.createTransaction();
+        updated.setTransactionNo(transactionNo);
+        updated.setAmount(transaction.getAmount() + 1);
+        Mockito.when(transactionService.getTransaction(transactionNo)).thenReturn(updated);
+        MvcResult changed = mockMvc.perform(get("/api/v1/transactions/{transactionNo}", transactionNo).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+    }
+
+    @Test
+    void getAllTransactions_StaleReplica() throws Exception {
+        Mockito.when(replicationState.isFollower()).thenReturn(true);
+        Mockito.when(replicationState.lagMillis()).thenReturn(5000L);
+        Mockito.doThrow(new TransactionException(ErrorEnum.REPLICA_STALE_EXCEPTION)).when(replicationState).checkStaleness(1000L);
+
+        mockMvc.perform(get("/api/v1/transactions")
+                        .header("X-Max-Staleness-Ms", "1000"))
+                .andExpect(header().string("X-Replication-Lag-Ms", "5000"))
+                .andExpect(jsonPath("$.code").value(ErrorEnum.REPLICA_STALE_EXCEPTION.getCode()));
+        Mockito.verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void getTransactionsByAccount() throws Exception {
+        Cursor cursor = Cursor.initial();
+        CursorPageResult<Transaction> pageResult = new CursorPageResult<>();
+        pageResult.setItems(List.of(TransactionUtils.createTransaction()));
+        PageData<TransactionDTO> pageData = new PageData<>();
+        pageData.setItems(List.of(TransactionUtils.createTransactionDTO()));
+        Mockito.when(transactionService.decodeCursor(null)).thenReturn(cursor);
+        Mockito.when(transactionService.listTransactionByAccount(7L, cursor, 20)).thenReturn(pageResult);
+        Mockito.when(transactionConverter.toTransactionDTOPageData(pageResult)).thenReturn(pageData);
+
+        mockMvc.perform(get("/api/v1/transactions")
+                        .param("accountId", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items.length()").value(1));
+        Mockito.verify(transactionService, Mockito.never()).listAllTransaction(Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    void getTransactionsWithFilters() throws Exception {
+        Cursor cursor = Cursor.initial();
+        CursorPageResult<Transaction> pageResult = new CursorPageResult<>();
+        pageResult.setItems(List.of(TransactionUtils.createTransaction()));
+        PageData<TransactionDTO> pageData = new PageData<>();
+        pageData.setItems(List.of(TransactionUtils.createTransactionDTO()));
+        TransactionQuery query = new TransactionQuery();
+        query.setStartTime(1000L);
+        query.setEndTime(2000L);
+        query.setStatus(1);
+        query.setCurrency("CNY");
+        query.setMinAmount(100L);
+        Mockito.when(transactionService.decodeCursor(null)).thenReturn(cursor);
+        Mockito.when(transactionService.queryTransactions(query, cursor, 20)).thenReturn(pageResult);
+        Mockito.when(transactionConverter.toTransactionDTOPageData(pageResult)).thenReturn(pageData);
+
+        mockMvc.perform(get("/api/v1/transactions")
+                        .param("startTime", "1000")
+                        .param("endTime", "2000")
+                        .param("status", "1")
+                        .param("currency", "CNY")
+                        .param("minAmount", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items.length()").value(1));
+        Mockito.verify(transactionService, Mockito.never()).listAllTransaction(Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    void exportTransactions() throws Exception {
+        Cursor cursor = Cursor.initial();
+        Transaction first = TransactionUtils.createTransaction();
+        Transaction second = TransactionUtils.createTransaction();
+        TransactionDTO firstDTO = TransactionUtils.createTransactionDTO();
+        TransactionDTO secondDTO = TransactionUtils.createTransactionDTO();
+        Mockito.when(transactionService.decodeCursor(null)).thenReturn(cursor);
+        Mockito.when(transactionService.exportTransactions(cursor, 1000L, null)).thenReturn(List.of(first, second).iterator());
+        Mockito.when(transactionConverter.toTransactionDTO(first)).thenReturn(firstDTO);
+        Mockito.when(transactionConverter.toTransactionDTO(second)).thenReturn(secondDTO);
+        Mockito.when(transactionService.encodeCursor(first)).thenReturn("C1");
+        Mockito.when(transactionService.encodeCursor(second)).thenReturn("C2");
+
+        MvcResult result = mockMvc.perform(get("/api/v1/transactions/export").param("startTime", "1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(new ExportRowDTO(firstDTO, "C1"), objectMapper.readValue(lines[0], ExportRowDTO.class));
+        assertEquals(new ExportRowDTO(secondDTO, "C2"), objectMapper.readValue(lines[1], ExportRowDTO.class));
+    }
+
     @Test
     void deleteTransaction() throws Exception {
         String transactionNo = "TX1001";
@@ -0,0 +1,78 @@
+package com.zhangboyu.transaction.lock;
+
+import com.zhangboyu.transaction.enums.ErrorEnum;
+import com.zhangboyu.transaction.exception.TransactionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedLockTest {
+
+    @Test
+    void stripes_RoundUpToPowerOfTwo() {
+        assertEquals(16, new StripedLock(16, 10).stripes());
+        assertEquals(32, new StripedLock(17, 10).stripes());
+        assertEquals(1, new StripedLock(1, 10).stripes());
+        assertTrue(new StripedLock(0, 10).stripes() >= Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    void lock_SameKey_SameStripe() {
+        StripedLock stripedLock = new StripedLock(8, 10);
+        assertSame(stripedLock.getLock("TX1001"), stripedLock.getLock(new String("TX1001")));
+    }
+
+    @Test
+    void lock_WaitsForShortHolder() throws Exception {
+        StripedLock stripedLock = new StripedLock(8, 1000);
+        ReentrantLock held = stripedLock.lock("TX1001");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Boolean> future = executor.submit(() -> {
+            ReentrantLock lock = stripedLock.lock("TX1001");
+            lock.unlock();
+            return true;
+        });
+        // 持有者在等待窗口内释放，等待方应成功拿到锁而不是直接失败
+        Thread.sleep(50);
+        held.unlock();
+        assertTrue(future.get(2, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    void lock_TimeoutThrowsConcurrencyException() throws Exception {
+        StripedLock stripedLock = new StripedLock(8, 20);
+        ReentrantLock held = stripedLock.lock("TX1001");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(() -> stripedLock.lock("TX1001"));
+        ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+        TransactionException cause = (TransactionException) exception.getCause();
+        assertEquals(ErrorEnum.CONCURRENCY_EXCEPTION.getCode(), cause.getCode());
+        held.unlock();
+        executor.shutdown();
+    }
+
+    @Test
+    void lock_RecordsWaitAndTimeoutMetrics() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StripedLock stripedLock = new StripedLock(8, 20, registry);
+        ReentrantLock held = stripedLock.lock("TX1001");
+        assertEquals(1, stripedLock.heldStripes());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(() -> stripedLock.lock("TX1001"));
+        assertThrows(ExecutionException.class, future::get);
+        held.unlock();
+        executor.shutdown();
+        stripedLock.barrier();
+
+        assertEquals(2, registry.get("transaction.lock.wait").tag("lock", "key").timer().count());
+        assertEquals(1, registry.get("transaction.lock.timeout").tag("lock", "key").counter().count());
+        assertEquals(0, registry.get("transaction.lock.timeout").tag("lock", "stripe").counter().count());
+        assertEquals(1, registry.get("transaction.lock.wait").tag("lock", "barrier").timer().count());
+        assertEquals(0, stripedLock.heldStripes());
+    }
+}
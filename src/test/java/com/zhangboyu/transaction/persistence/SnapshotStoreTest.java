@@ -0,0 +1,122 @@
+package com.zhangboyu.transaction.persistence;
+
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.repo.SerialIndex;
+import com.zhangboyu.transaction.store.TransactionRecord;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeThenLoad_RoundTrip() throws Exception {
+        SnapshotStore store = new SnapshotStore(true, dir.toString());
+        List<TransactionRecord> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Transaction tx = TransactionUtils.createTransaction();
+            tx.setCurrency(i % 2 == 0 ? "CNY" : "USD");
+            if (i == 0) {
+                tx.setRemark(null);
+            }
+            if (i == 99) {
+                tx.setUpdater(null);
+            }
+            transactions.add(TransactionRecord.of(tx));
+        }
+        List<SerialIndex.Entry> serials = List.of(new SerialIndex.Entry(SerialIndex.fingerprint("SN1"), 1001),
+                new SerialIndex.Entry(SerialIndex.fingerprint("SN2"), 1002));
+
+        store.write(5, transactions, serials, 1002);
+        store.write(9, transactions, serials, 1002);
+
+        List<TransactionRecord> loaded = new ArrayList<>();
+        List<SerialIndex.Entry> loadedSerials = new ArrayList<>();
+        AtomicLong counter = new AtomicLong();
+        long segment = store.load(loaded::add, loadedSerials::add, counter::set);
+
+        assertEquals(9, segment);
+        assertEquals(transactions, loaded);
+        assertEquals(serials, loadedSerials);
+        assertEquals(1002, counter.get());
+        // 旧快照在新快照写入后被删除
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void load_NoSnapshot() {
+        SnapshotStore store = new SnapshotStore(true, dir.toString());
+        assertEquals(0, store.load(tx -> fail(), entry -> fail(), id -> fail()));
+    }
+
+    @Test
+    void load_CorruptedSnapshotFails() throws Exception {
+        SnapshotStore store = new SnapshotStore(true, dir.toString());
+        store.write(3, List.of(TransactionRecord.of(TransactionUtils.createTransaction())), List.of(), 1001);
+        Path snapshot;
+        try (Stream<Path> files = Files.list(dir)) {
+            snapshot = files.findFirst().orElseThrow();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            file.seek(30);
+            file.write(file.read() ^ 0xFF);
+        }
+        assertThrows(UncheckedIOException.class, () -> store.load(tx -> {
+        }, entry -> {
+        }, id -> {
+        }));
+    }
+
+    @Test
+    void load_Version1SerialRecordsAsFingerprints() throws Exception {
+        // 手工构造版本 1 快照：一条 SERIAL 记录（流水号原文）+ END
+        Path snapshot = dir.resolve("snapshot-0000000000000004.bin");
+        CRC32C crc = new CRC32C();
+        try (FileOutputStream file = new FileOutputStream(snapshot.toFile());
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, crc))) {
+            out.writeInt(0x54585331);
+            out.writeByte(1);
+            out.writeLong(4);
+            byte[] serial = "SN1".getBytes(StandardCharsets.UTF_8);
+            byte[] transactionNo = "1001".getBytes(StandardCharsets.UTF_8);
+            out.writeInt(8 + serial.length + transactionNo.length);
+            out.writeByte(3);
+            out.writeInt(serial.length);
+            out.write(serial);
+            out.writeInt(transactionNo.length);
+            out.write(transactionNo);
+            out.writeInt(16);
+            out.writeByte(0);
+            out.writeLong(1001);
+            out.writeLong(0);
+            out.flush();
+            out.writeInt((int) crc.getValue());
+        }
+        SnapshotStore store = new SnapshotStore(true, dir.toString());
+        List<SerialIndex.Entry> loadedSerials = new ArrayList<>();
+
+        assertEquals(4, store.load(tx -> fail(), loadedSerials::add, id -> {
+        }));
+        assertEquals(List.of(new SerialIndex.Entry(SerialIndex.fingerprint("SN1"), 1001)), loadedSerials);
+    }
+}
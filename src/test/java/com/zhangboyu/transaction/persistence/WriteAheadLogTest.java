@@ -0,0 +1,319 @@
+package com.zhangboyu.transaction.persistence;
+
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.enums.ErrorEnum;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.store.TransactionRecord;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+    @TempDir
+    Path dir;
+
+    private WriteAheadLog open(List<WalRecord> replayed) {
+        return open(0, replayed);
+    }
+
+    private WriteAheadLog open(long fromSegment, List<WalRecord> replayed) {
+        WriteAheadLog wal = new WriteAheadLog(true, dir.toString(), 1, true);
+        wal.recover(fromSegment, replayed::add);
+        return wal;
+    }
+
+    @Test
+    void codec_RoundTrip() {
+        Transaction tx = TransactionUtils.createTransaction();
+        tx.setRemark(null);
+        WalRecord decoded = WalCodec.decode(WalCodec.encode(WalRecord.create("SN1", TransactionRecord.of(tx))));
+        assertEquals(WalRecordType.CREATE, decoded.type());
+        assertEquals("SN1", decoded.serialNumber());
+        assertEquals(TransactionRecord.of(tx), decoded.transaction());
+
+        WalRecord delete = WalCodec.decode(WalCodec.encode(WalRecord.delete("TX1")));
+        assertEquals(WalRecord.delete("TX1"), delete);
+    }
+
+    @Test
+    void append_ConcurrentWriters_ReplayAfterRestart() throws Exception {
+        WriteAheadLog wal = open(new ArrayList<>());
+        int threadCount = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int base = t * perThread;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    Transaction tx = TransactionUtils.createTransaction();
+                    tx.setTransactionNo(String.valueOf(base + i));
+                    wal.awaitDurable(wal.append(WalRecord.create("SN" + (base + i), TransactionRecord.of(tx))));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        wal.close();
+
+        List<WalRecord> replayed = new ArrayList<>();
+        WriteAheadLog reopened = open(replayed);
+        assertEquals(threadCount * perThread, replayed.size());
+        assertEquals(threadCount * perThread, replayed.stream().map(WalRecord::transactionNo).distinct().count());
+        reopened.close();
+    }
+
+    @Test
+    void recover_TruncatesTornTail() throws Exception {
+        WriteAheadLog wal = open(new ArrayList<>());
+        Transaction tx = TransactionUtils.createTransaction();
+        wal.awaitDurable(wal.append(WalRecord.create("SN1", TransactionRecord.of(tx))));
+        wal.awaitDurable(wal.append(WalRecord.delete(tx.getTransactionNo())));
+        wal.close();
+
+        // 模拟写到一半时进程退出：最后一个段末尾只写入了半条记录
+        Path last = lastSegment();
+        ByteBuffer partial = WalCodec.encode(WalRecord.update(TransactionRecord.of(tx)));
+        partial.limit(partial.limit() / 2);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.APPEND)) {
+            channel.write(partial);
+        }
+        long tornSize = Files.size(last);
+
+        List<WalRecord> replayed = new ArrayList<>();
+        WriteAheadLog reopened = open(replayed);
+        assertEquals(2, replayed.size());
+        assertTrue(Files.size(last) < tornSize);
+        reopened.close();
+    }
+
+    @Test
+    void rollSegment_RecoverFromSnapshotSegmentOnly() {
+        WriteAheadLog wal = open(new ArrayList<>());
+        Transaction before = TransactionUtils.createTransaction();
+        wal.awaitDurable(wal.append(WalRecord.create("SN1", TransactionRecord.of(before))));
+        long segment = wal.rollSegment();
+        Transaction after = TransactionUtils.createTransaction();
+        wal.awaitDurable(wal.append(WalRecord.create("SN2", TransactionRecord.of(after))));
+        wal.deleteSegmentsBefore(segment);
+        wal.close();
+
+        List<WalRecord> replayed = new ArrayList<>();
+        WriteAheadLog reopened = open(segment, replayed);
+        assertEquals(List.of(WalRecord.create("SN2", TransactionRecord.of(after)).transactionNo()),
+                replayed.stream().map(WalRecord::transactionNo).toList());
+        reopened.close();
+    }
+
+    @Test
+    void append_PartialWriteFailure_WalUnavailableUntilRestart() {
+        AtomicBoolean failWrite = new AtomicBoolean();
+        WriteAheadLog wal = new WriteAheadLog(true, dir.toString(), 1, true) {
+            @Override
+            FileChannel openChannel(Path path) throws IOException {
+                return new FailingChannel(super.openChannel(path), failWrite);
+            }
+        };
+        wal.recover(0, record -> {
+        });
+        Transaction tx = TransactionUtils.createTransaction();
+        tx.setTransactionNo("TX2");
+        wal.awaitDurable(wal.append(WalRecord.delete("TX1")));
+        // 这一批只写入一半就失败，日志进入不可用状态
+        failWrite.set(true);
+        TransactionException e = assertThrows(TransactionException.class,
+                () -> wal.awaitDurable(wal.append(WalRecord.create("SN2", TransactionRecord.of(tx)))));
+        assertEquals(ErrorEnum.WAL_UNAVAILABLE_EXCEPTION.getCode(), e.getCode());
+        assertTrue(wal.isFailed());
+        // 按流水号重试同样被拒绝，不会当作已写入
+        e = assertThrows(TransactionException.class, wal::checkWritable);
+        assertEquals(ErrorEnum.WAL_UNAVAILABLE_EXCEPTION.getCode(), e.getCode());
+        e = assertThrows(TransactionException.class, () -> wal.append(WalRecord.create("SN2", TransactionRecord.of(tx))));
+        assertEquals(ErrorEnum.WAL_UNAVAILABLE_EXCEPTION.getCode(), e.getCode());
+        wal.close();
+
+        // 重启后失败批次写入的半条记录已截掉，日志恢复可写，重试的创建正常落盘
+        List<WalRecord> replayed = new ArrayList<>();
+        WriteAheadLog reopened = open(replayed);
+        assertEquals(List.of("TX1"), replayed.stream().map(WalRecord::transactionNo).toList());
+        assertFalse(reopened.isFailed());
+        reopened.awaitDurable(reopened.append(WalRecord.create("SN2", TransactionRecord.of(tx))));
+        reopened.close();
+
+        replayed.clear();
+        open(replayed).close();
+        assertEquals(List.of("TX1", "TX2"), replayed.stream().map(WalRecord::transactionNo).toList());
+    }
+
+    @Test
+    void rollSegment_OpenFailure_WalUnavailableWithoutBlockingWriters() {
+        AtomicBoolean failOpen = new AtomicBoolean();
+        WriteAheadLog wal = new WriteAheadLog(true, dir.toString(), 1, true) {
+            @Override
+            FileChannel openChannel(Path path) throws IOException {
+                if (failOpen.get()) {
+                    throw new IOException("injected open failure");
+                }
+                return super.openChannel(path);
+            }
+        };
+        wal.recover(0, record -> {
+        });
+        wal.awaitDurable(wal.append(WalRecord.delete("TX1")));
+        CompletableFuture<Void> queued = wal.append(WalRecord.delete("TX2"));
+        failOpen.set(true);
+        assertThrows(TransactionException.class, wal::rollSegment);
+        assertTrue(wal.isFailed());
+        TransactionException e = assertThrows(TransactionException.class,
+                () -> wal.awaitDurable(wal.append(WalRecord.delete("TX3"))));
+        assertEquals(ErrorEnum.WAL_UNAVAILABLE_EXCEPTION.getCode(), e.getCode());
+        // 切换前已入队的写入照常落盘
+        wal.awaitDurable(queued);
+        wal.close();
+
+        List<WalRecord> replayed = new ArrayList<>();
+        open(replayed).close();
+        assertEquals(List.of("TX1", "TX2"), replayed.stream().map(WalRecord::transactionNo).toList());
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> Files.isRegularFile(p)).sorted()
+                    .filter(p -> {
+                        try {
+                            return Files.size(p) > 0;
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    })
+                    .reduce((a, b) -> b).orElseThrow();
+        }
+    }
+
+    /**
+     * 开启 fail 后下一次写入只写出一半就抛出 IOException，模拟磁盘满等写到一半的失败。
+     */
+    private static class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+
+        private final AtomicBoolean fail;
+
+        FailingChannel(FileChannel delegate, AtomicBoolean fail) {
+            this.delegate = delegate;
+            this.fail = fail;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            if (fail.compareAndSet(true, false)) {
+                ByteBuffer half = srcs[offset].duplicate();
+                half.limit(half.position() + half.remaining() / 2);
+                delegate.write(half);
+                throw new IOException("injected write failure");
+            }
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.zhangboyu.transaction.repo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void sequence_ConcurrentThreadsNeverDuplicate() throws Exception {
+        SequenceIdGenerator generator = new SequenceIdGenerator(1000, 7, 4, HighWaterMark.none());
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int perThread = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                long[] batch = new long[3];
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(generator.next());
+                    if (i % 100 == 0) {
+                        generator.next(batch);
+                        for (long id : batch) {
+                            ids.add(id);
+                        }
+                    }
+                }
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(threads * (perThread + perThread / 100 * 3), ids.size());
+        assertTrue(ids.stream().allMatch(id -> id > 1000 && id <= generator.current()));
+    }
+
+    @Test
+    void sequence_RestartContinuesAboveHighWater() throws Exception {
+        String file = dir.resolve("high-water").toString();
+        long last;
+        try (HighWaterMark highWater = HighWaterMark.open(file, 50)) {
+            SequenceIdGenerator generator = new SequenceIdGenerator(1000, 10, 2, highWater);
+            assertEquals(1001, generator.next());
+            for (int i = 0; i < 200; i++) {
+                generator.next();
+            }
+            last = generator.next();
+        }
+
+        // 重启后不恢复快照和日志，仍然不会分配已用过的 ID
+        try (HighWaterMark highWater = HighWaterMark.open(file, 50)) {
+            SequenceIdGenerator generator = new SequenceIdGenerator(1000, 10, 2, highWater);
+            assertTrue(generator.next() > last);
+        }
+    }
+
+    @Test
+    void sequence_AdvanceToDropsIssuedBlocks() {
+        SequenceIdGenerator generator = new SequenceIdGenerator(1000, 100, 1, HighWaterMark.none());
+        assertEquals(1001, generator.next());
+
+        generator.advanceTo(5000);
+
+        assertEquals(5001, generator.next());
+    }
+
+    @Test
+    void sequence_AdvanceToConcurrentWithNext() throws Exception {
+        SequenceIdGenerator generator = new SequenceIdGenerator(0, 50, 4, HighWaterMark.none());
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    ids.add(generator.next());
+                }
+                latch.countDown();
+            });
+        }
+        // 模拟副本应用复制来的交易号：推进返回后分配的 ID 都大于它
+        for (long restored = 1000; restored <= 20_000; restored += 1000) {
+            generator.advanceTo(restored);
+            assertTrue(generator.next() > restored);
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(threads * 5000, ids.size());
+    }
+
+    @Test
+    void snowflake_MonotonicWithNodeBits() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, HighWaterMark.none());
+        long previous = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.next();
+            assertTrue(id > previous);
+            assertEquals(5, (id >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_NODE_ID);
+            previous = id;
+        }
+        long[] batch = new long[5000];
+        generator.next(batch);
+        for (long id : batch) {
+            assertTrue(id > previous);
+            previous = id;
+        }
+        long millis = (previous >>> (SnowflakeIdGenerator.NODE_BITS + SnowflakeIdGenerator.SEQUENCE_BITS)) + SnowflakeIdGenerator.EPOCH;
+        assertTrue(Math.abs(millis - System.currentTimeMillis()) < 60_000);
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1024, HighWaterMark.none()));
+    }
+
+    @Test
+    void snowflake_RestartWithClockBehindHighWater() throws Exception {
+        String file = dir.resolve("snowflake").toString();
+        long last;
+        try (HighWaterMark highWater = HighWaterMark.open(file, SnowflakeIdGenerator.LEASE)) {
+            SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, highWater);
+            // 模拟上次运行时时钟比现在快一小时
+            generator.advanceTo(generator.next() + (3_600_000L << (SnowflakeIdGenerator.NODE_BITS + SnowflakeIdGenerator.SEQUENCE_BITS)));
+            last = generator.next();
+        }
+
+        try (HighWaterMark highWater = HighWaterMark.open(file, SnowflakeIdGenerator.LEASE)) {
+            assertTrue(new SnowflakeIdGenerator(1, highWater).next() > last);
+        }
+    }
+}
@@ -41,6 +41,24 @@ class IdRepoTest {
         assertNotEquals(id1, id2);
     }
 
+    @Test
+    public void createTransactionNos_ReusesExistingAndReservesBlock() {
+        IdRepo idRepo = new IdRepo();
+        String existing = idRepo.createTransactionNo("SN1");
+
+        String[] transactionNos = idRepo.createTransactionNos(List.of("SN1", "SN2", "SN3", "SN2"));
+
+        assertEquals(existing, transactionNos[0]);
+        assertNotEquals(transactionNos[1], transactionNos[2]);
+        // 同一批次内重复的流水号得到同一个交易号
+        assertEquals(transactionNos[1], transactionNos[3]);
+        assertEquals(transactionNos[2], idRepo.createTransactionNo("SN3"));
+        // 批量领取的 ID 与分段号段互不重叠
+        String single = idRepo.createTransactionNo("SN4");
+        assertFalse(List.of(transactionNos).contains(single));
+        assertNotEquals(existing, single);
+    }
+
     @Test
     public void createTransactionNo_ConcurrentAccess_SameSerialNumber() throws InterruptedException {
         IdRepo idRepo = new IdRepo();
@@ -92,4 +110,15 @@ class IdRepoTest {
         executor.shutdown();
         assertFalse(duplicate.get());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void createTransactionNos_RestrictedToOwnedIds() {
+        IdRepo idRepo = new IdRepo();
+        idRepo.restrictTo(id -> id % 3 == 0);
+        assertEquals(0, Long.parseLong(idRepo.createTransactionNo("SN1")) % 3);
+        for (String transactionNo : idRepo.createTransactionNos(List.of("SN2", "SN3", "SN4", "SN1"))) {
+            assertEquals(0, Long.parseLong(transactionNo) % 3);
+        }
+        assertEquals(idRepo.createTransactionNo("SN1"), idRepo.createTransactionNos(List.of("SN1"))[0]);
+    }
+}
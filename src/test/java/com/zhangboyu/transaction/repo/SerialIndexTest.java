@@ -0,0 +1,107 @@
+package com.zhangboyu.transaction.repo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialIndexTest {
+
+    @Test
+    void getOrAssign_SameFingerprintAssignedOnce() {
+        SerialIndex index = new SerialIndex(60_000, 1_000_000);
+        AtomicLong ids = new AtomicLong(1000);
+        long fingerprint = SerialIndex.fingerprint("SN1");
+
+        assertEquals(0, index.get(fingerprint));
+        assertEquals(1001, index.getOrAssign(fingerprint, ids::incrementAndGet));
+        assertEquals(1001, index.getOrAssign(fingerprint, ids::incrementAndGet));
+        assertEquals(1001, index.get(fingerprint));
+        assertEquals(1001, ids.get());
+    }
+
+    @Test
+    void put_GrowsAndKeepsAllEntries() {
+        SerialIndex index = new SerialIndex(60_000, 1_000_000);
+        for (int i = 1; i <= 50_000; i++) {
+            index.put(SerialIndex.fingerprint("SN" + i), i);
+        }
+        for (int i = 1; i <= 50_000; i++) {
+            assertEquals(i, index.get(SerialIndex.fingerprint("SN" + i)));
+        }
+        assertEquals(0, index.get(SerialIndex.fingerprint("SN0")));
+        assertEquals(50_000, index.size());
+
+        Set<Long> transactionNos = new HashSet<>();
+        index.entries().forEach(entry -> transactionNos.add(entry.transactionNo()));
+        assertEquals(50_000, transactionNos.size());
+    }
+
+    @Test
+    void capacity_EvictsOldestGenerations() {
+        // 64 个分片 * 4 代，每代 1 条
+        SerialIndex index = new SerialIndex(Long.MAX_VALUE / 2, 256);
+        for (int i = 1; i <= 10_000; i++) {
+            index.put(SerialIndex.fingerprint("SN" + i), i);
+        }
+        assertTrue(index.size() <= 256, "size:" + index.size());
+        // 最近写入的流水号仍在窗口内
+        assertEquals(10_000, index.get(SerialIndex.fingerprint("SN10000")));
+        assertEquals(0, index.get(SerialIndex.fingerprint("SN1")));
+    }
+
+    @Test
+    void ttl_ExpiresOldEntries() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        SerialIndex index = new SerialIndex(1000, 1_000_000, now::get);
+        long old = SerialIndex.fingerprint("SN1");
+        index.put(old, 1001);
+
+        now.addAndGet(500);
+        long recent = SerialIndex.fingerprint("SN2");
+        index.put(recent, 1002);
+        assertEquals(1001, index.get(old));
+
+        now.addAndGet(700);
+        assertEquals(0, index.get(old));
+        assertEquals(1002, index.get(recent));
+
+        now.addAndGet(1000);
+        assertEquals(0, index.get(recent));
+        assertFalse(index.entries().iterator().hasNext());
+    }
+
+    @Test
+    void getOrAssign_ConcurrentWithGrowth() throws Exception {
+        SerialIndex index = new SerialIndex(60_000, 10_000_000);
+        AtomicLong ids = new AtomicLong();
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            // 所有线程登记同一批流水号，每个流水号只能分配到一个交易号
+            futures.add(executor.submit(() -> {
+                long[] assigned = new long[perThread];
+                for (int i = 0; i < perThread; i++) {
+                    long fingerprint = SerialIndex.fingerprint("SN" + i);
+                    long transactionNo = index.get(fingerprint);
+                    assigned[i] = transactionNo != 0 ? transactionNo : index.getOrAssign(fingerprint, ids::incrementAndGet);
+                }
+                return assigned;
+            }));
+        }
+        long[] expected = futures.getFirst().get(30, TimeUnit.SECONDS);
+        for (Future<long[]> future : futures) {
+            assertArrayEquals(expected, future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(perThread, ids.get());
+    }
+}
@@ -0,0 +1,49 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.service.TransactionServiceImpl.SortKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttributeIndexTest {
+    private static List<SortKey> collect(Iterator<SortKey> keys) {
+        List<SortKey> result = new ArrayList<>();
+        keys.forEachRemaining(result::add);
+        return result;
+    }
+
+    @Test
+    void range_MergesPartitionsOfValueInOrder() {
+        AttributeIndex index = new AttributeIndex(8);
+        List<SortKey> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            SortKey sortKey = new SortKey(i / 3, "TX" + i);
+            // 偶数落在属性值 1，奇数落在属性值 2
+            index.add(i % 2 + 1, sortKey);
+            if (i % 2 == 0) {
+                expected.add(sortKey);
+            }
+        }
+        expected.sort(null);
+
+        assertEquals(100, index.size(1));
+        assertEquals(200, index.entries());
+        assertEquals(expected, collect(index.range(1, null, null)));
+        SortKey cursor = expected.get(10);
+        SortKey to = new SortKey(50, "");
+        assertEquals(expected.stream().filter(key -> key.compareTo(cursor) > 0 && key.compareTo(to) < 0).toList(),
+                collect(index.range(1, cursor, to)));
+        assertFalse(index.range(3, null, null).hasNext());
+
+        assertTrue(index.contains(1, cursor));
+        assertFalse(index.contains(2, cursor));
+        index.remove(1, cursor);
+        assertFalse(index.contains(1, cursor));
+        assertEquals(99, index.size(1));
+        assertEquals(199, index.entries());
+    }
+}
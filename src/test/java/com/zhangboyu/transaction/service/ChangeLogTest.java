@@ -0,0 +1,70 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.entity.ChangeBatch;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.enums.ChangeType;
+import com.zhangboyu.transaction.enums.ErrorEnum;
+import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.store.TransactionRecord;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeLogTest {
+    private final VersionManager versions = new VersionManager(60_000);
+
+    private final ChangeLog changeLog = new ChangeLog(versions, 0);
+
+    private long write(ChangeType type, TransactionRecord before, TransactionRecord after) {
+        long version = versions.begin();
+        try {
+            changeLog.publish(version, type, type == ChangeType.CREATE ? "SN1" : null, before, after);
+        } finally {
+            versions.commit(version);
+        }
+        return version;
+    }
+
+    private static TransactionRecord record(String transactionNo) {
+        Transaction transaction = TransactionUtils.createTransaction();
+        transaction.setTransactionNo(transactionNo);
+        return TransactionRecord.of(transaction);
+    }
+
+    @Test
+    void read_SkipsFailedWritesAndResumesAfterSequence() {
+        long start = changeLog.latestSequence();
+        long created = write(ChangeType.CREATE, null, record("TX1"));
+        // 写入失败：领取了版本但没有发布事件
+        versions.commit(versions.begin());
+        long deleted = write(ChangeType.DELETE, record("TX1"), null);
+
+        ChangeBatch first = changeLog.read(start, 1);
+        assertEquals(1, first.getEvents().size());
+        assertEquals(created, first.getLastSequence());
+        assertEquals("TX1", first.getEvents().getFirst().getTransactionNo());
+        assertEquals("SN1", first.getEvents().getFirst().getSerialNumber());
+
+        ChangeBatch rest = changeLog.read(first.getLastSequence(), 10);
+        assertEquals(1, rest.getEvents().size());
+        assertEquals(deleted, rest.getEvents().getFirst().getSequence());
+        assertEquals(deleted, rest.getLastSequence());
+        assertTrue(changeLog.read(deleted, 10).getEvents().isEmpty());
+    }
+
+    @Test
+    void read_ExpiredSequenceRequiresResync() {
+        long start = changeLog.latestSequence();
+        TransactionRecord record = record("TX1");
+        for (int i = 0; i <= VersionManager.RING_SIZE; i++) {
+            write(ChangeType.UPDATE, record, record);
+        }
+        TransactionException lapped = assertThrows(TransactionException.class, () -> changeLog.read(start, 10));
+        assertEquals(ErrorEnum.CHANGE_EXPIRED_EXCEPTION.getCode(), lapped.getCode());
+        // 早于本次启动或超出最新序号
+        assertThrows(TransactionException.class, () -> changeLog.read(versions.initialVersion() - 1, 10));
+        assertThrows(TransactionException.class, () -> changeLog.read(changeLog.latestSequence() + 1, 10));
+        assertEquals(10, changeLog.read(start + 1, 10).getEvents().size());
+    }
+}
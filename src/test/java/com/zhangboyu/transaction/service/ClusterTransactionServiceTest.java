@@ -0,0 +1,106 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.cluster.ClusterClient;
+import com.zhangboyu.transaction.cluster.ClusterNodes;
+import com.zhangboyu.transaction.cluster.ClusterPageRequest;
+import com.zhangboyu.transaction.cluster.CreateResult;
+import com.zhangboyu.transaction.entity.Cursor;
+import com.zhangboyu.transaction.entity.CursorPageResult;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.repo.IdRepo;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ClusterTransactionServiceTest {
+    @Mock
+    private TransactionServiceImpl local;
+
+    @Mock
+    private ClusterClient client;
+
+    @Mock
+    private IdRepo idRepo;
+
+    @InjectMocks
+    private ClusterTransactionService clusterService;
+
+    private ClusterNodes nodes;
+
+    private final CursorCodec cursorCodec = new CursorCodec("", true);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        nodes = new ClusterNodes("n1", "n1=http://127.0.0.1:8081,n2=http://127.0.0.1:8082", 16);
+        resetPrivateField("nodes", nodes);
+        resetPrivateField("cursorCodec", cursorCodec);
+        when(client.async(any())).thenAnswer(invocation -> CompletableFuture.completedFuture(((Supplier<Object>) invocation.getArgument(0)).get()));
+    }
+
+    private void resetPrivateField(String fieldName, Object value) throws Exception {
+        Field field = ClusterTransactionService.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(clusterService, value);
+    }
+
+    private static Transaction transaction(String transactionNo, long createTime) {
+        Transaction transaction = TransactionUtils.createTransaction();
+        transaction.setTransactionNo(transactionNo);
+        transaction.setCreateTime(new Date(createTime));
+        return transaction;
+    }
+
+    // 第一个归属 owner 的键
+    private String keyOwnedBy(String owner) {
+        for (int i = 0; ; i++) {
+            if (nodes.owner("SN" + i).equals(owner)) {
+                return "SN" + i;
+            }
+        }
+    }
+
+    @Test
+    void createTransactionIfAbsent_RoutesBySerialNumber() {
+        String localSerial = keyOwnedBy("n1");
+        String remoteSerial = keyOwnedBy("n2");
+        Transaction transaction = TransactionUtils.createTransaction();
+        when(local.createTransactionIfAbsent(localSerial, transaction)).thenReturn(true);
+        when(client.create("n2", remoteSerial, transaction)).thenReturn(new CreateResult("2001", false));
+
+        assertTrue(clusterService.createTransactionIfAbsent(localSerial, transaction));
+        assertFalse(clusterService.createTransactionIfAbsent(remoteSerial, transaction));
+        assertEquals("2001", transaction.getTransactionNo());
+    }
+
+    @Test
+    void listAllTransaction_MergesNodePagesInOrder() {
+        // 本节点：时间 1、3、5；n2：时间 2、4 且还有后续
+        Iterator<Transaction> localItems = List.of(transaction("11", 1), transaction("13", 3), transaction("15", 5)).iterator();
+        when(local.exportTransactions(any(Cursor.class), eq(null), eq(null))).thenReturn(localItems);
+        CursorPageResult<Transaction> remote = new CursorPageResult<>();
+        remote.setItems(List.of(transaction("22", 2), transaction("24", 4)));
+        remote.setHasNext(true);
+        when(client.page(eq("n2"), any(ClusterPageRequest.class))).thenReturn(remote);
+
+        CursorPageResult<Transaction> page = clusterService.listAllTransaction(Cursor.initial(), 3);
+
+        assertEquals(List.of("11", "22", "13"), page.getItems().stream().map(Transaction::getTransactionNo).toList());
+        assertTrue(page.isHasNext());
+        assertEquals(new Cursor(3L, "13"), cursorCodec.decode(page.getNextCursor()));
+    }
+}
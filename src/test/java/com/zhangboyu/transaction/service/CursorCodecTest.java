@@ -0,0 +1,87 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.entity.Cursor;
+import com.zhangboyu.transaction.enums.ErrorEnum;
+import com.zhangboyu.transaction.exception.TransactionException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorCodecTest {
+
+    private static String legacy(long createTime, String transactionNo) {
+        return Base64.getUrlEncoder().encodeToString((createTime + "," + transactionNo).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void encode_NumericTransactionNo_FixedLength() {
+        CursorCodec codec = new CursorCodec("", true);
+        String encoded = codec.encode(1739875669376L, "101101");
+
+        // 1 字节版本 + 2 个 long，无填充 Base64url 为 23 个字符
+        assertEquals(23, encoded.length());
+        assertEquals(new Cursor(1739875669376L, "101101"), codec.decode(encoded));
+        assertEquals(new Cursor(1L, Long.toString(Long.MAX_VALUE)), codec.decode(codec.encode(1L, Long.toString(Long.MAX_VALUE))));
+    }
+
+    @Test
+    void encode_NonCanonicalTransactionNo_KeptAsText() {
+        CursorCodec codec = new CursorCodec("", true);
+        for (String transactionNo : new String[]{"TX1001", "0123", "交易-1", "99999999999999999999", ""}) {
+            assertEquals(new Cursor(5L, transactionNo), codec.decode(codec.encode(5L, transactionNo)));
+        }
+    }
+
+    @Test
+    void encode_WithReadVersion() {
+        CursorCodec codec = new CursorCodec("secret", true);
+        assertEquals(new Cursor(5L, "101101", 42L), codec.decode(codec.encode(5L, "101101", 42L)));
+        assertEquals(new Cursor(5L, "TX1001", 42L), codec.decode(codec.encode(5L, "TX1001", 42L)));
+        // 读版本为 0 时与不带读版本的游标相同
+        assertEquals(codec.encode(5L, "101101"), codec.encode(5L, "101101", 0L));
+    }
+
+    @Test
+    void decode_LegacyFormat() {
+        CursorCodec codec = new CursorCodec("", true);
+        assertEquals(new Cursor(1739875669376L, "ada2e44d-761b-4b2e-86e1-5122cddb4bc3"),
+                codec.decode(legacy(1739875669376L, "ada2e44d-761b-4b2e-86e1-5122cddb4bc3")));
+        assertEquals(new Cursor(-1L, "1001"), codec.decode(legacy(-1L, "1001")));
+
+        CursorCodec strict = new CursorCodec("", false);
+        assertThrows(TransactionException.class, () -> strict.decode(legacy(1L, "1001")));
+        // 旧版游标不带签名，配置了密钥时即使开启兼容也拒绝
+        CursorCodec signed = new CursorCodec("secret", true);
+        assertThrows(TransactionException.class, () -> signed.decode(legacy(1L, "1001")));
+    }
+
+    @Test
+    void decode_SignedCursorRejectsTampering() {
+        CursorCodec codec = new CursorCodec("secret", false);
+        String encoded = codec.encode(100L, "1001");
+        assertEquals(34, encoded.length());
+        assertEquals(new Cursor(100L, "1001"), codec.decode(encoded));
+
+        // 篡改时间、换用其他密钥或去掉签名都无法通过校验
+        CursorCodec unsigned = new CursorCodec("", true);
+        String forged = new CursorCodec("other", false).encode(100L, "1001");
+        String tampered = codec.encode(200L, "1001").substring(0, 12) + encoded.substring(12);
+        for (String cursor : new String[]{forged, tampered, unsigned.encode(100L, "1001")}) {
+            TransactionException e = assertThrows(TransactionException.class, () -> codec.decode(cursor));
+            assertEquals(ErrorEnum.CURSOR_EXCEPTION.getCode(), e.getCode());
+        }
+    }
+
+    @Test
+    void decode_InvalidCursorThrowsWithoutStackTrace() {
+        CursorCodec codec = new CursorCodec("", true);
+        for (String cursor : new String[]{"afadsfjla", "A", "!!!!", legacy(1L, "").substring(0, 2), "AAAA"}) {
+            TransactionException e = assertThrows(TransactionException.class, () -> codec.decode(cursor), cursor);
+            assertEquals(ErrorEnum.CURSOR_EXCEPTION.getCode(), e.getCode());
+            assertEquals(0, e.getStackTrace().length);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotTransactionCacheTest {
+    private static Transaction transaction(String transactionNo) {
+        Transaction transaction = TransactionUtils.createTransaction();
+        transaction.setTransactionNo(transactionNo);
+        // 固定时间，两次构造的交易内容相同
+        transaction.setCreateTime(new Date(1000L));
+        transaction.setUpdateTime(new Date(1000L));
+        return transaction;
+    }
+
+    @Test
+    void get_DropsEntryWhenTransactionChanged() {
+        HotTransactionCache cache = new HotTransactionCache(1 << 20);
+        Transaction transaction = transaction("TX1");
+        HotTransactionCache.Entry entry = cache.put("TX1", transaction, "{\"a\":1}".getBytes());
+
+        assertSame(entry, cache.get("TX1", transaction(transaction.getTransactionNo())));
+
+        Transaction updated = transaction("TX1");
+        updated.setAmount(transaction.getAmount() + 1);
+        assertNull(cache.get("TX1", updated));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+        // 内容不同 ETag 不同
+        assertNotEquals(entry.etag(), cache.put("TX1", updated, "{\"a\":2}".getBytes()).etag());
+    }
+
+    @Test
+    void put_EvictsUnreferencedEntriesOverLimit() {
+        byte[] json = new byte[768];
+        // 每项 1KB（含固定开销），上限 16 项
+        HotTransactionCache cache = new HotTransactionCache(16 * 1024);
+        Transaction hot = transaction("HOT");
+        cache.put("HOT", hot, json);
+        for (int i = 0; i < 100; i++) {
+            // 热点交易持续被访问，每一圈都保留
+            assertNotNull(cache.get("HOT", hot));
+            cache.put("TX" + i, transaction("TX" + i), json);
+            assertTrue(cache.bytes() <= 16 * 1024);
+        }
+        assertNotNull(cache.get("HOT", hot));
+        assertTrue(cache.size() <= 16);
+    }
+
+    @Test
+    void put_SkipsWhenDisabledOrTooLarge() {
+        HotTransactionCache disabled = new HotTransactionCache(0);
+        Transaction transaction = transaction("TX1");
+        assertNotNull(disabled.put("TX1", transaction, new byte[16]).etag());
+        assertNull(disabled.get("TX1", transaction));
+
+        HotTransactionCache small = new HotTransactionCache(16 * 1024);
+        small.put("TX1", transaction, new byte[2048]);
+        assertEquals(0, small.size());
+    }
+}
@@ -0,0 +1,46 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.service.TransactionServiceImpl.SortKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeIndexTest {
+    private static List<SortKey> collect(Iterator<SortKey> keys) {
+        List<SortKey> result = new ArrayList<>();
+        keys.forEachRemaining(result::add);
+        return result;
+    }
+
+    @Test
+    void range_MergesPartitionsInOrder() {
+        TimeIndex timeIndex = new TimeIndex(8);
+        List<SortKey> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // 同一毫秒内多条，按交易号排序
+            expected.add(new SortKey(i / 3, "TX" + i));
+        }
+        for (int i = expected.size() - 1; i >= 0; i--) {
+            assertTrue(timeIndex.add(expected.get(i)));
+        }
+        assertFalse(timeIndex.add(expected.getFirst()));
+        expected.sort(null);
+
+        assertEquals(200, timeIndex.size());
+        assertEquals(expected, collect(timeIndex.range(null, null)));
+        // 从游标之后继续，到上界之前结束
+        SortKey cursor = expected.get(10);
+        SortKey to = new SortKey(50, "");
+        assertEquals(expected.stream().filter(key -> key.compareTo(cursor) > 0 && key.compareTo(to) < 0).toList(),
+                collect(timeIndex.range(cursor, to)));
+        assertTrue(collect(timeIndex.range(to, cursor)).isEmpty());
+
+        assertTrue(timeIndex.remove(cursor));
+        assertFalse(timeIndex.contains(cursor));
+        assertEquals(199, timeIndex.size());
+    }
+}
@@ -0,0 +1,95 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.entity.AccountFlow;
+import com.zhangboyu.transaction.entity.DailyCounts;
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.store.TransactionRecord;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionAggregatesTest {
+
+    private static TransactionRecord record(long from, long to, long amount, String currency, long createTime) {
+        Transaction transaction = TransactionUtils.createTransaction();
+        transaction.setFromAccountId(from);
+        transaction.setToAccountId(to);
+        transaction.setAmount(amount);
+        transaction.setCurrency(currency);
+        transaction.setCreateTime(new Date(createTime));
+        return TransactionRecord.of(transaction);
+    }
+
+    @Test
+    void add_SumsFlowsPerAccountAndCurrency() {
+        TransactionAggregates aggregates = new TransactionAggregates(ZoneOffset.UTC);
+        aggregates.add(record(1, 2, 100, "CNY", 0));
+        aggregates.add(record(2, 1, 30, "CNY", 0));
+        aggregates.add(record(1, 3, 7, "USD", 0));
+
+        List<AccountFlow> flows = aggregates.accountFlows(1, null);
+        assertEquals(2, flows.size());
+        AccountFlow cny = flows.getFirst();
+        assertEquals("CNY", cny.getCurrency());
+        assertEquals(30, cny.getInflow());
+        assertEquals(100, cny.getOutflow());
+        assertEquals(-70, cny.getNet());
+        assertEquals(1, cny.getInCount());
+        assertEquals(1, cny.getOutCount());
+        assertEquals(List.of(flows.get(1)), aggregates.accountFlows(1, "USD"));
+        assertTrue(aggregates.accountFlows(99, null).isEmpty());
+
+        assertEquals(130, aggregates.currencyTotals().getFirst().getAmount());
+        assertEquals(2, aggregates.currencyTotals().getFirst().getCount());
+    }
+
+    @Test
+    void remove_AppliesInverseDelta() {
+        TransactionAggregates aggregates = new TransactionAggregates(ZoneOffset.UTC);
+        TransactionRecord original = record(1, 2, 100, "CNY", 0);
+        aggregates.add(original);
+
+        // 更新：扣减旧记录、累加新记录（金额、转入账户和状态都变了）
+        Transaction changed = original.toTransaction();
+        changed.setToAccountId(3L);
+        changed.setAmount(40L);
+        changed.setStatus(2);
+        TransactionRecord updated = TransactionRecord.of(changed);
+        aggregates.remove(original);
+        aggregates.add(updated);
+
+        assertEquals(-40, aggregates.accountFlows(1, "CNY").getFirst().getNet());
+        assertEquals(0, aggregates.accountFlows(2, "CNY").getFirst().getInflow());
+        assertEquals(0, aggregates.accountFlows(2, "CNY").getFirst().getInCount());
+        assertEquals(40, aggregates.accountFlows(3, "CNY").getFirst().getInflow());
+        DailyCounts day = aggregates.dailyCounts(LocalDate.EPOCH);
+        assertEquals(1, day.getTotal());
+        assertEquals(Map.of(2, 1L), day.getByStatus());
+
+        aggregates.remove(updated);
+        assertEquals(0, aggregates.dailyCounts(LocalDate.EPOCH).getTotal());
+        assertEquals(0, aggregates.currencyTotals().getFirst().getAmount());
+    }
+
+    @Test
+    void dailyCounts_UsesConfiguredZone() {
+        // UTC 1970-01-01 20:00 在东八区已是 1970-01-02
+        long createTime = 20 * 60 * 60 * 1000L;
+        TransactionAggregates utc = new TransactionAggregates(ZoneOffset.UTC);
+        TransactionAggregates shanghai = new TransactionAggregates(ZoneId.of("Asia/Shanghai"));
+        utc.add(record(1, 2, 1, "CNY", createTime));
+        shanghai.add(record(1, 2, 1, "CNY", createTime));
+
+        assertEquals(1, utc.dailyCounts(LocalDate.EPOCH).getTotal());
+        assertEquals(0, shanghai.dailyCounts(LocalDate.EPOCH).getTotal());
+        assertEquals(1, shanghai.dailyCounts(LocalDate.EPOCH.plusDays(1)).getTotal());
+    }
+}
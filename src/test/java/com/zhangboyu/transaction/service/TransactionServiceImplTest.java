@@ -1,24 +1,37 @@
 package com.zhangboyu.transaction.service;
 
+import com.zhangboyu.transaction.entity.BatchCreateItem;
+import com.zhangboyu.transaction.entity.ChangeBatch;
+import com.zhangboyu.transaction.entity.ChangeEvent;
 import com.zhangboyu.transaction.entity.Cursor;
 import com.zhangboyu.transaction.entity.CursorPageResult;
 import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.entity.TransactionQuery;
+import com.zhangboyu.transaction.enums.ChangeType;
 import com.zhangboyu.transaction.enums.ErrorEnum;
 import com.zhangboyu.transaction.exception.TransactionException;
+import com.zhangboyu.transaction.lock.StripedLock;
+import com.zhangboyu.transaction.persistence.SnapshotStore;
+import com.zhangboyu.transaction.persistence.WalRecord;
+import com.zhangboyu.transaction.persistence.WriteAheadLog;
+import com.zhangboyu.transaction.replication.ReplicationState;
 import com.zhangboyu.transaction.repo.IdRepo;
+import com.zhangboyu.transaction.store.HeapTransactionStore;
+import com.zhangboyu.transaction.store.TransactionRecord;
 import com.zhangboyu.transaction.utils.TransactionUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 
 import java.lang.reflect.Field;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,32 +40,43 @@ class TransactionServiceImplTest {
     @Mock
     private IdRepo idRepo;
 
+    @Mock
+    private WriteAheadLog writeAheadLog;
+
+    @Mock
+    private SnapshotStore snapshotStore;
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
-    private ConcurrentHashMap<String, Transaction> transactionConcurrentHashMap;
+    private HeapTransactionStore transactionStore;
 
-    private ConcurrentSkipListMap<TransactionServiceImpl.SortKey, Transaction> timeIndex;
+    private TimeIndex timeIndex;
 
     // 细粒度锁（按交易ID）
-    private ConcurrentMap<String, ReentrantLock> keyLocks;
+    private StripedLock keyLocks;
 
-    // 全局读写锁（用于索引维护）
-    private ReentrantReadWriteLock globalLock;
+    private ChangeLog changeLog;
 
     @BeforeEach
     void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
-        transactionConcurrentHashMap = new ConcurrentHashMap<>();
-        timeIndex = new ConcurrentSkipListMap<>();
-        keyLocks = new ConcurrentHashMap<>();
-        globalLock = Mockito.spy(new ReentrantReadWriteLock());
+        transactionStore = new HeapTransactionStore();
+        timeIndex = new TimeIndex(4);
+        keyLocks = Mockito.spy(new StripedLock(16, 1000));
 
         // 通过反射重置私有集合/锁字段
-        resetPrivateField("transactionConcurrentHashMap", transactionConcurrentHashMap);
+        resetPrivateField("transactionStore", transactionStore);
         resetPrivateField("timeIndex", timeIndex);
         resetPrivateField("keyLocks", keyLocks);
-        resetPrivateField("globalLock", globalLock);
+        resetPrivateField("cursorCodec", new CursorCodec("", true));
+        VersionManager versions = new VersionManager(60_000);
+        resetPrivateField("versions", versions);
+        resetPrivateField("aggregates", new TransactionAggregates(ZoneOffset.UTC));
+        changeLog = new ChangeLog(versions, 0);
+        resetPrivateField("changeLog", changeLog);
+        resetPrivateField("replication", new ReplicationState("primary", ""));
+        resetPrivateField("hotTransactions", new HotTransactionCache(1 << 20));
     }
 
     // 反射工具方法
@@ -62,6 +86,17 @@ class TransactionServiceImplTest {
         field.set(transactionService, value);
     }
 
+    // 主表中的当前版本，以对外视图返回
+    private Transaction stored(String transactionNo) {
+        TransactionRecord record = transactionStore.get(transactionNo);
+        return record == null ? null : record.toTransaction();
+    }
+
+    // 时间索引中存在该键时返回主表中的当前版本
+    private Transaction indexed(Date createTime, String transactionNo) {
+        return timeIndex.contains(new TransactionServiceImpl.SortKey(createTime.getTime(), transactionNo)) ? stored(transactionNo) : null;
+    }
+
     @Test
     void createTransaction_NormalCase_ShouldSucceed() throws Exception {
         // 准备数据
@@ -75,11 +110,49 @@ class TransactionServiceImplTest {
 
         // 验证
         assertEquals(transactionNo, result);
-        assertSame(tx, transactionConcurrentHashMap.get(transactionNo));
-        assertSame(tx, timeIndex.get(new TransactionServiceImpl.SortKey(tx.getCreateTime(), tx.getTransactionNo())));
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertFalse(keyLocks.get(transactionNo).isLocked());
+        assertEquals(tx, stored(transactionNo));
+        assertEquals(tx, indexed(tx.getCreateTime(), tx.getTransactionNo()));
+        assertFalse(keyLocks.getLock(transactionNo).isLocked());
     }
+    @Test
+    void createTransactionIfAbsent_ExistingReturnsFalse() {
+        String serialNumber = "SN123";
+        when(idRepo.createTransactionNo(serialNumber)).thenReturn("TX1001");
+        Transaction tx = TransactionUtils.createTransaction();
+
+        assertTrue(transactionService.createTransactionIfAbsent(serialNumber, tx));
+        Transaction retry = TransactionUtils.createTransaction();
+        retry.setRemark("retry");
+        assertFalse(transactionService.createTransactionIfAbsent(serialNumber, retry));
+
+        // 重复请求回填已有交易号，不写日志、不覆盖原交易
+        assertEquals("TX1001", retry.getTransactionNo());
+        assertEquals(tx, stored("TX1001"));
+        verify(idRepo, times(2)).createTransactionNo(serialNumber);
+        verify(writeAheadLog, times(1)).append(any());
+        assertThrows(TransactionException.class, () -> transactionService.createTransactionIfAbsent("", new Transaction()));
+    }
+
+    @Test
+    void createTransactionIfAbsent_WalFailed_RetryRejectedInsteadOfDuplicate() {
+        String serialNumber = "SN123";
+        when(idRepo.createTransactionNo(serialNumber)).thenReturn("TX1001");
+        // 落盘失败后日志进入不可用状态
+        doThrow(new TransactionException(ErrorEnum.WAL_UNAVAILABLE_EXCEPTION)).when(writeAheadLog).awaitDurable(any());
+        Transaction tx = TransactionUtils.createTransaction();
+        TransactionException e = assertThrows(TransactionException.class,
+                () -> transactionService.createTransactionIfAbsent(serialNumber, tx));
+        assertEquals(ErrorEnum.WAL_UNAVAILABLE_EXCEPTION.getCode(), e.getCode());
+
+        // 内存中已有这笔交易，重试不能按已存在返回成功
+        doThrow(new TransactionException(ErrorEnum.WAL_UNAVAILABLE_EXCEPTION)).when(writeAheadLog).checkWritable();
+        e = assertThrows(TransactionException.class,
+                () -> transactionService.createTransactionIfAbsent(serialNumber, TransactionUtils.createTransaction()));
+        assertEquals(ErrorEnum.WAL_UNAVAILABLE_EXCEPTION.getCode(), e.getCode());
+        verify(writeAheadLog, times(1)).append(any());
+        verify(idRepo, times(1)).createTransactionNo(serialNumber);
+    }
+
     @Test
     void createTransaction_LockRecordFail_ShouldThrowException() throws Exception {
         // 模拟锁已被占用
@@ -93,10 +166,10 @@ class TransactionServiceImplTest {
         // 2. 预注入 Spy 锁
         ReentrantLock realLock = new ReentrantLock();
         ReentrantLock lockSpy = Mockito.spy(realLock); // 创建 Spy 锁
-        keyLocks.put(transactionNo, lockSpy); // 手动注入锁
+        doReturn(lockSpy).when(keyLocks).getLock(transactionNo); // 手动注入锁
 
-        // 3. 模拟 tryLock() 返回 false
-        doReturn(false).when(lockSpy).tryLock();
+        // 3. 模拟等待超时后 tryLock 返回 false
+        doReturn(false).when(lockSpy).tryLock(anyLong(), any());
         // 执行并验证异常
         assertThrows(TransactionException.class,
                 () -> transactionService.createTransaction("SN123", new Transaction()),
@@ -104,35 +177,35 @@ class TransactionServiceImplTest {
         );
 
 
-        assertNull(transactionConcurrentHashMap.get(transactionNo));
-        assertNull(timeIndex.get(new TransactionServiceImpl.SortKey(tx.getCreateTime(), tx.getTransactionNo())));
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertFalse(keyLocks.get(transactionNo).isLocked());
+        assertNull(stored(transactionNo));
+        assertNull(indexed(tx.getCreateTime(), tx.getTransactionNo()));
+        assertFalse(keyLocks.getLock(transactionNo).isLocked());
     }
 
     @Test
-    void createTransaction_GlobalLockFail_ShouldThrowException() throws Exception {
-        // 模拟锁已被占用
-        Transaction tx = TransactionUtils.createTransaction();
-        String serialNumber = "SN123";
-        String transactionNo = "TX1001";
-        when(idRepo.createTransactionNo(serialNumber)).thenReturn(transactionNo);
-
-        globalLock.readLock().lock();
+    void createTransactions_MarksExistingAndRepeatedSerialAsDuplicate() {
+        when(idRepo.createTransactionNo("SN0")).thenReturn("TX0");
+        transactionService.createTransaction("SN0", TransactionUtils.createTransaction());
+        // 同一流水号分配同一交易号，模拟 IdRepo 的幂等映射
+        when(idRepo.createTransactionNos(anyList())).thenAnswer(invocation -> {
+            List<String> serialNumbers = invocation.getArgument(0);
+            return serialNumbers.stream().map(serial -> "TX" + serial.substring(2)).toArray(String[]::new);
+        });
+        List<BatchCreateItem> items = new ArrayList<>();
+        for (String serial : List.of("SN0", "SN1", "SN2", "SN1", "SN3")) {
+            items.add(new BatchCreateItem(serial, TransactionUtils.createTransaction()));
+        }
 
-        // 执行并验证异常
-        assertThrows(TransactionException.class,
-                () -> transactionService.createTransaction("SN123", new Transaction()),
-                "CONCURRENCY_EXCEPTION"
-        );
+        assertEquals(3, transactionService.createTransactions(items));
 
-        assertNull(transactionConcurrentHashMap.get(transactionNo));
-        assertNull(timeIndex.get(new TransactionServiceImpl.SortKey(tx.getCreateTime(), tx.getTransactionNo())));
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertFalse(keyLocks.get(transactionNo).isLocked());
+        assertEquals(List.of(true, false, false, true, false), items.stream().map(BatchCreateItem::isDuplicate).toList());
+        assertEquals(List.of("TX0", "TX1", "TX2", "TX1", "TX3"), items.stream().map(BatchCreateItem::getTransactionNo).toList());
+        assertEquals(items.get(1).getTransaction(), stored("TX1"));
+        assertEquals(items.get(4).getTransaction(), indexed(items.get(4).getTransaction().getCreateTime(), "TX3"));
+        assertEquals(4, timeIndex.size());
+        items.forEach(item -> assertFalse(keyLocks.getLock(item.getTransactionNo()).isLocked()));
     }
 
-
     @Test
     void deleteTransaction_Normal_shouldSuccess() {
         // 准备数据
@@ -143,12 +216,11 @@ class TransactionServiceImplTest {
 
         // 执行
         String result = transactionService.createTransaction(serialNumber, tx);
-        assertNotNull(transactionConcurrentHashMap.get(result));
+        assertNotNull(stored(result));
         transactionService.deleteTransaction(result);
-        assertNull(transactionConcurrentHashMap.get(result));
-        assertNull(timeIndex.get(new TransactionServiceImpl.SortKey(tx.getCreateTime(), tx.getTransactionNo())));
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertFalse(keyLocks.containsKey(result));
+        assertNull(stored(result));
+        assertNull(indexed(tx.getCreateTime(), tx.getTransactionNo()));
+        assertFalse(keyLocks.getLock(result).isLocked());
     }
 
     @Test
@@ -162,13 +234,12 @@ class TransactionServiceImplTest {
                 () -> transactionService.deleteTransaction(transactionNo),
                 ErrorEnum.TRANSACTION_NOT_EXISTS_EXCEPTION.getMessage()
         );
-        assertNull(transactionConcurrentHashMap.get(transactionNo));
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertFalse(keyLocks.containsKey(transactionNo));
+        assertNull(stored(transactionNo));
+        assertFalse(keyLocks.getLock(transactionNo).isLocked());
     }
 
     @Test
-    void deleteTransaction_LockRecordFail() {
+    void deleteTransaction_LockRecordFail() throws Exception {
         // 准备数据
         String serialNumber = "SN123";
         Transaction tx = TransactionUtils.createTransaction();
@@ -176,16 +247,16 @@ class TransactionServiceImplTest {
         when(idRepo.createTransactionNo(serialNumber)).thenReturn(transactionNo);
 
         String result = transactionService.createTransaction(serialNumber, tx);
-        assertNotNull(transactionConcurrentHashMap.get(result));
+        assertNotNull(stored(result));
 
         // 模拟调用时锁已被占用
         // 2. 预注入 Spy 锁
         ReentrantLock realLock = new ReentrantLock();
         ReentrantLock lockSpy = Mockito.spy(realLock); // 创建 Spy 锁
-        keyLocks.put(transactionNo, lockSpy); // 手动注入锁
+        doReturn(lockSpy).when(keyLocks).getLock(transactionNo); // 手动注入锁
 
-        // 3. 模拟 tryLock() 返回 false
-        doReturn(false).when(lockSpy).tryLock();
+        // 3. 模拟等待超时后 tryLock 返回 false
+        doReturn(false).when(lockSpy).tryLock(anyLong(), any());
 
 
         // 执行并验证异常
@@ -193,35 +264,11 @@ class TransactionServiceImplTest {
                 () -> transactionService.deleteTransaction(transactionNo),
                 ErrorEnum.CONCURRENCY_EXCEPTION.getMessage()
         );
-        assertNotNull(transactionConcurrentHashMap.get(result));
-        assertNotNull(timeIndex.get(new TransactionServiceImpl.SortKey(tx.getCreateTime(), tx.getTransactionNo())));
+        assertNotNull(stored(result));
+        assertNotNull(indexed(tx.getCreateTime(), tx.getTransactionNo()));
         verify(lockSpy, never()).unlock();
     }
 
-    @Test
-    void deleteTransaction_GlobalRecordFail() {
-        // 准备数据
-        String serialNumber = "SN123";
-        Transaction tx = TransactionUtils.createTransaction();
-        String transactionNo = "TX1001";
-        when(idRepo.createTransactionNo(serialNumber)).thenReturn(transactionNo);
-
-        String result = transactionService.createTransaction(serialNumber, tx);
-        assertNotNull(transactionConcurrentHashMap.get(result));
-
-        // 模拟调用时锁已被占用
-        globalLock.readLock().lock();
-        // 执行并验证异常
-        assertThrows(TransactionException.class,
-                () -> transactionService.deleteTransaction(transactionNo),
-                ErrorEnum.CONCURRENCY_EXCEPTION.getMessage()
-        );
-        assertNotNull(transactionConcurrentHashMap.get(result));
-        assertNotNull(timeIndex.get(new TransactionServiceImpl.SortKey(tx.getCreateTime(), tx.getTransactionNo())));
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertFalse(keyLocks.get(transactionNo).isLocked());
-    }
-
     @Test
     void updateTransaction_success() {
         // 准备数据
@@ -232,18 +279,21 @@ class TransactionServiceImplTest {
 
         // 执行
         String result = transactionService.createTransaction(serialNumber, tx);
-        assertNotNull(transactionConcurrentHashMap.get(result));
+        assertNotNull(stored(result));
 
         Transaction newTx = TransactionUtils.createTransaction();
         newTx.setTransactionNo(transactionNo);
         newTx.setCreateTime(new Date(1));
 
         transactionService.updateTransaction(newTx);
-        assertEquals(transactionConcurrentHashMap.get(result), newTx);
-        assertNull(timeIndex.get(new TransactionServiceImpl.SortKey(tx.getCreateTime(), tx.getTransactionNo())));
-        assertEquals(timeIndex.get(new TransactionServiceImpl.SortKey(newTx.getCreateTime(), newTx.getTransactionNo())), newTx);
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertFalse(keyLocks.get(result).isLocked());
+        assertEquals(stored(result), newTx);
+        // 旧索引项在旧版本回收时删除
+        assertTrue(timeIndex.contains(new TransactionServiceImpl.SortKey(tx.getCreateTime().getTime(), transactionNo)));
+        transactionService.reclaimVersions();
+        assertNull(indexed(tx.getCreateTime(), tx.getTransactionNo()));
+        assertEquals(1, timeIndex.size());
+        assertEquals(indexed(newTx.getCreateTime(), newTx.getTransactionNo()), newTx);
+        assertFalse(keyLocks.getLock(result).isLocked());
     }
 
     @Test
@@ -256,7 +306,7 @@ class TransactionServiceImplTest {
 
         // 执行
         String result = transactionService.createTransaction(serialNumber, tx);
-        assertNotNull(transactionConcurrentHashMap.get(result));
+        assertNotNull(stored(result));
 
         Transaction newTx = TransactionUtils.createTransaction();
         newTx.setTransactionNo(transactionNo);
@@ -264,10 +314,9 @@ class TransactionServiceImplTest {
         newTx.setRemark("newRemark");
 
         transactionService.updateTransaction(newTx);
-        assertEquals(transactionConcurrentHashMap.get(result), newTx);
-        assertEquals(timeIndex.get(new TransactionServiceImpl.SortKey(newTx.getCreateTime(), newTx.getTransactionNo())), newTx);
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertFalse(keyLocks.get(result).isLocked());
+        assertEquals(stored(result), newTx);
+        assertEquals(indexed(newTx.getCreateTime(), newTx.getTransactionNo()), newTx);
+        assertFalse(keyLocks.getLock(result).isLocked());
     }
 
     @Test
@@ -280,14 +329,13 @@ class TransactionServiceImplTest {
                 () -> transactionService.updateTransaction(newTx),
                 ErrorEnum.CONCURRENCY_EXCEPTION.getMessage()
         );
-        assertNull(transactionConcurrentHashMap.get(newTx.getTransactionNo()));
-        assertNull(timeIndex.get(new TransactionServiceImpl.SortKey(newTx.getCreateTime(), newTx.getTransactionNo())));
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertNull(keyLocks.get(newTx.getTransactionNo()));
+        assertNull(stored(newTx.getTransactionNo()));
+        assertNull(indexed(newTx.getCreateTime(), newTx.getTransactionNo()));
+        assertFalse(keyLocks.getLock(newTx.getTransactionNo()).isLocked());
     }
 
     @Test
-    void updateTransaction_lock_record() {
+    void updateTransaction_lock_record() throws Exception {
         // 准备数据
         // 准备数据
         String serialNumber = "SN123";
@@ -297,7 +345,7 @@ class TransactionServiceImplTest {
 
         // 执行
         String result = transactionService.createTransaction(serialNumber, tx);
-        assertNotNull(transactionConcurrentHashMap.get(result));
+        assertNotNull(stored(result));
 
         Transaction newTx = TransactionUtils.createTransaction();
         newTx.setTransactionNo(transactionNo);
@@ -307,51 +355,18 @@ class TransactionServiceImplTest {
         // 2. 预注入 Spy 锁
         ReentrantLock realLock = new ReentrantLock();
         ReentrantLock lockSpy = Mockito.spy(realLock); // 创建 Spy 锁
-        keyLocks.put(transactionNo, lockSpy); // 手动注入锁
-        // 3. 模拟 tryLock() 返回 false
-        doReturn(false).when(lockSpy).tryLock();
+        doReturn(lockSpy).when(keyLocks).getLock(transactionNo); // 手动注入锁
+        // 3. 模拟等待超时后 tryLock 返回 false
+        doReturn(false).when(lockSpy).tryLock(anyLong(), any());
         // 执行并验证异常
         assertThrows(TransactionException.class,
                 () -> transactionService.updateTransaction(newTx),
                 ErrorEnum.CONCURRENCY_EXCEPTION.getMessage()
         );
-        assertEquals(transactionConcurrentHashMap.get(result), tx);
-        assertNull(timeIndex.get(new TransactionServiceImpl.SortKey(newTx.getCreateTime(), newTx.getTransactionNo())));
-        assertEquals(timeIndex.get(new TransactionServiceImpl.SortKey(tx.getCreateTime(), tx.getTransactionNo())), tx);
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertFalse(keyLocks.get(result).isLocked());
-    }
-
-    @Test
-    void updateTransaction_global_lock() {
-        // 准备数据
-        // 准备数据
-        String serialNumber = "SN123";
-        Transaction tx = TransactionUtils.createTransaction();
-        String transactionNo = "TX1001";
-        when(idRepo.createTransactionNo(serialNumber)).thenReturn(transactionNo);
-
-        // 执行
-        String result = transactionService.createTransaction(serialNumber, tx);
-        assertNotNull(transactionConcurrentHashMap.get(result));
-
-        Transaction newTx = TransactionUtils.createTransaction();
-        newTx.setTransactionNo(transactionNo);
-        newTx.setCreateTime(new Date(1));
-
-        globalLock.readLock().lock();
-
-        // 执行并验证异常
-        assertThrows(TransactionException.class,
-                () -> transactionService.updateTransaction(newTx),
-                ErrorEnum.CONCURRENCY_EXCEPTION.getMessage()
-        );
-
-        assertEquals(transactionConcurrentHashMap.get(result), tx);
-        assertNull(timeIndex.get(new TransactionServiceImpl.SortKey(newTx.getCreateTime(), newTx.getTransactionNo())));
-        assertEquals(timeIndex.get(new TransactionServiceImpl.SortKey(tx.getCreateTime(), tx.getTransactionNo())), tx);
-        assertEquals(0, globalLock.writeLock().getHoldCount());
-        assertFalse(keyLocks.get(result).isLocked());
+        assertEquals(stored(result), tx);
+        assertNull(indexed(newTx.getCreateTime(), newTx.getTransactionNo()));
+        assertEquals(indexed(tx.getCreateTime(), tx.getTransactionNo()), tx);
+        assertFalse(keyLocks.getLock(result).isLocked());
     }
 
     @Test
@@ -374,30 +389,119 @@ class TransactionServiceImplTest {
     }
 
     @Test
-    void listAllTransaction_LockFailWrite() throws Exception {
+    void listAllTransaction_SkipStaleIndexEntry() {
         List<Transaction> transactions = createTransactions();
-        ExecutorService executorService = Executors.newFixedThreadPool(1);
-        Future<?> future = executorService.submit(() -> {
-            globalLock.writeLock().lock();
-        });
-        future.get();
-        // 执行并验证异常
-        assertThrows(TransactionException.class,
-                () -> transactionService.listAllTransaction(null, 10),
-                ErrorEnum.CONCURRENCY_EXCEPTION.getMessage()
-        );
-        executorService.shutdown();
+        // 模拟写线程已更新主表、尚未清理旧索引项的中间状态
+        Transaction stale = transactions.get(0);
+        Transaction moved = TransactionUtils.createTransaction();
+        moved.setTransactionNo(stale.getTransactionNo());
+        moved.setCreateTime(new Date(100_000));
+        transactionStore.put(TransactionRecord.of(moved));
+        // 模拟删除时主表已删除、索引项尚未删除
+        Transaction deleted = transactions.get(1);
+        transactionStore.remove(deleted.getTransactionNo());
+
+        CursorPageResult<Transaction> result = transactionService.listAllTransaction(null, 100);
+        assertEquals(transactions.size() - 2, result.getItems().size());
+        assertFalse(result.getItems().contains(stale));
+        assertFalse(result.getItems().contains(deleted));
     }
 
     @Test
-    void listAllTransaction_LockReadSuccess() {
-        List<Transaction> transactions = createTransactions();
-        ExecutorService executorService = Executors.newFixedThreadPool(1);
-        executorService.submit(() -> {
-            globalLock.readLock().lock();
-        });
-        transactionService.listAllTransaction(null, 10);
+    void listTransactionByAccount_PagesFromAndToInTimeOrder() {
+        when(idRepo.createTransactionNo(anyString())).thenAnswer(invocation -> "TX" + invocation.getArgument(0));
+        for (int i = 0; i < 10; i++) {
+            Transaction tx = TransactionUtils.createTransaction();
+            tx.setCreateTime(new Date(1000L + i));
+            // 偶数笔由账户 7 转出，奇数笔转入账户 7，第 9 笔与账户 7 无关
+            tx.setFromAccountId(i % 2 == 0 ? 7L : 8L);
+            tx.setToAccountId(i % 2 == 0 ? 8L : (i == 9 ? 9L : 7L));
+            transactionService.createTransaction(String.valueOf(i), tx);
+        }
+
+        List<String> transactionNos = new ArrayList<>();
+        Cursor cursor = null;
+        CursorPageResult<Transaction> result;
+        do {
+            result = transactionService.listTransactionByAccount(7L, cursor, 4);
+            result.getItems().forEach(tx -> transactionNos.add(tx.getTransactionNo()));
+            cursor = result.isHasNext() ? transactionService.decodeCursor(result.getNextCursor()) : null;
+        } while (result.isHasNext());
+
+        assertEquals(List.of("TX0", "TX1", "TX2", "TX3", "TX4", "TX5", "TX6", "TX7", "TX8"), transactionNos);
+        assertTrue(transactionService.listTransactionByAccount(10L, null, 4).getItems().isEmpty());
+    }
+
+    @Test
+    void listTransactionByAccount_FollowsUpdateAndDelete() {
+        when(idRepo.createTransactionNo(anyString())).thenAnswer(invocation -> "TX" + invocation.getArgument(0));
+        Transaction tx = TransactionUtils.createTransaction();
+        transactionService.createTransaction("1", tx);
+        Transaction self = TransactionUtils.createTransaction();
+        self.setFromAccountId(3L);
+        self.setToAccountId(3L);
+        transactionService.createTransaction("2", self);
+
+        Transaction updated = TransactionUtils.createTransaction();
+        updated.setTransactionNo("TX1");
+        updated.setCreateTime(tx.getCreateTime());
+        updated.setFromAccountId(5L);
+        transactionService.updateTransaction(updated);
+
+        assertTrue(transactionService.listTransactionByAccount(1L, null, 10).getItems().isEmpty());
+        assertEquals(List.of(updated), transactionService.listTransactionByAccount(5L, null, 10).getItems());
+        assertEquals(List.of(updated), transactionService.listTransactionByAccount(2L, null, 10).getItems());
+        // 转出转入为同一账户时只返回一次
+        assertEquals(List.of(self), transactionService.listTransactionByAccount(3L, null, 10).getItems());
+
+        transactionService.deleteTransaction("TX1");
+        assertTrue(transactionService.listTransactionByAccount(5L, null, 10).getItems().isEmpty());
+    }
+
+    @Test
+    void exportTransactions_RangeCursorAndDeleted() {
+        when(idRepo.createTransactionNo(anyString())).thenAnswer(invocation -> "TX" + invocation.getArgument(0));
+        for (int i = 0; i < 10; i++) {
+            Transaction tx = TransactionUtils.createTransaction();
+            tx.setCreateTime(new Date(1000L + i));
+            transactionService.createTransaction(String.valueOf(i), tx);
+        }
+        transactionService.deleteTransaction("TX4");
+
+        List<String> all = new ArrayList<>();
+        transactionService.exportTransactions(null, null, null).forEachRemaining(tx -> all.add(tx.getTransactionNo()));
+        assertEquals(List.of("TX0", "TX1", "TX2", "TX3", "TX5", "TX6", "TX7", "TX8", "TX9"), all);
+
+        // [1002, 1008) 且从 TX3 之后续传
+        List<String> resumed = new ArrayList<>();
+        transactionService.exportTransactions(new Cursor(1003L, "TX3"), 1002L, 1008L).forEachRemaining(tx -> resumed.add(tx.getTransactionNo()));
+        assertEquals(List.of("TX5", "TX6", "TX7"), resumed);
+
+        assertFalse(transactionService.exportTransactions(new Cursor(1009L, "TX9"), null, 1005L).hasNext());
+        assertThrows(TransactionException.class, () -> transactionService.exportTransactions(null, 1005L, 1000L));
+    }
+
+    @Test
+    void createTransaction_ConcurrentWriters_NoGlobalContention() throws Exception {
+        int threadCount = 16;
+        int perThread = 200;
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        when(idRepo.createTransactionNo(anyString())).thenAnswer(invocation -> "TX" + invocation.getArgument(0));
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int base = t * perThread;
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    transactionService.createTransaction(String.valueOf(base + i), TransactionUtils.createTransaction());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
         executorService.shutdown();
+        assertEquals(threadCount * perThread, transactionStore.size());
+        assertEquals(threadCount * perThread, timeIndex.size());
     }
 
     @Test
@@ -406,12 +510,16 @@ class TransactionServiceImplTest {
         Transaction cursorTransaction = transactions.get(4);
         Cursor cursor = new Cursor(cursorTransaction.getCreateTime().getTime(), cursorTransaction.getTransactionNo());
         CursorPageResult<Transaction> result = transactionService.listAllTransaction(cursor, 10);
-        TransactionServiceImpl.SortKey cursorKey = new TransactionServiceImpl.SortKey(cursorTransaction.getCreateTime(), cursorTransaction.getTransactionNo());
+        TransactionServiceImpl.SortKey cursorKey = new TransactionServiceImpl.SortKey(cursorTransaction.getCreateTime().getTime(), cursorTransaction.getTransactionNo());
         Transaction last = null;
         assertTrue(result.isHasNext());
-        assertEquals(transactionService.encodeCursor(result.getItems().getLast()), result.getNextCursor());
+        // 下一页游标携带本页的读版本
+        Transaction lastItem = result.getItems().getLast();
+        assertTrue(result.getReadVersion() > 0);
+        assertEquals(new Cursor(lastItem.getCreateTime().getTime(), lastItem.getTransactionNo(), result.getReadVersion()),
+                transactionService.decodeCursor(result.getNextCursor()));
         for (Transaction transaction : result.getItems()) {
-            assertTrue(cursorKey.compareTo(new TransactionServiceImpl.SortKey(transaction.getCreateTime(), transaction.getTransactionNo())) < 0);
+            assertTrue(cursorKey.compareTo(new TransactionServiceImpl.SortKey(transaction.getCreateTime().getTime(), transaction.getTransactionNo())) < 0);
             if (last == null) {
                 last = transaction;
             } else {
@@ -423,6 +531,253 @@ class TransactionServiceImplTest {
         }
     }
 
+    @Test
+    void listAllTransaction_PagesReadPinnedSnapshot() {
+        List<Transaction> transactions = createTransactions();
+        CursorPageResult<Transaction> first = transactionService.listAllTransaction(null, 5);
+        assertEquals(transactions.subList(0, 5), first.getItems());
+
+        // 翻页期间：删除下一页的交易、把一条交易移到末尾、新建交易，并执行回收
+        transactionService.deleteTransaction(transactions.get(6).getTransactionNo());
+        Transaction moved = TransactionUtils.createTransaction();
+        moved.setTransactionNo(transactions.get(7).getTransactionNo());
+        moved.setCreateTime(new Date(100_000));
+        moved.setRemark("moved");
+        transactionService.updateTransaction(moved);
+        Transaction added = TransactionUtils.createTransaction();
+        added.setCreateTime(new Date(5500));
+        when(idRepo.createTransactionNo("new")).thenReturn("TX_NEW");
+        transactionService.createTransaction("new", added);
+        transactionService.reclaimVersions();
+
+        List<Transaction> rest = new ArrayList<>();
+        Cursor cursor = transactionService.decodeCursor(first.getNextCursor());
+        while (true) {
+            CursorPageResult<Transaction> page = transactionService.listAllTransaction(cursor, 5);
+            assertEquals(first.getReadVersion(), page.getReadVersion());
+            rest.addAll(page.getItems());
+            if (!page.isHasNext()) {
+                break;
+            }
+            cursor = transactionService.decodeCursor(page.getNextCursor());
+        }
+        // 后续各页仍是首页时的快照
+        assertEquals(transactions.subList(5, transactions.size()), rest);
+
+        // 新的遍历看到最新数据
+        transactionService.reclaimVersions();
+        List<Transaction> latest = transactionService.listAllTransaction(null, 100).getItems();
+        assertEquals(transactions.size(), latest.size());
+        assertFalse(latest.contains(transactions.get(6)));
+        assertTrue(latest.contains(added));
+        assertEquals(moved, latest.getLast());
+    }
+
+    @Test
+    void listAllTransaction_ExpiredReadVersionFallsBackToLatest() throws Exception {
+        AtomicLong now = new AtomicLong(1_000_000);
+        resetPrivateField("versions", new VersionManager(1000, now::get));
+        List<Transaction> transactions = createTransactions();
+        CursorPageResult<Transaction> first = transactionService.listAllTransaction(null, 5);
+        transactionService.deleteTransaction(transactions.get(6).getTransactionNo());
+
+        // 读版本租约过期，旧版本被回收，游标改用最新版本继续
+        now.addAndGet(2000);
+        transactionService.reclaimVersions();
+        CursorPageResult<Transaction> next = transactionService.listAllTransaction(transactionService.decodeCursor(first.getNextCursor()), 5);
+        assertTrue(next.getReadVersion() > first.getReadVersion());
+        assertEquals(List.of(transactions.get(5), transactions.get(7), transactions.get(8), transactions.get(9), transactions.get(10)), next.getItems());
+    }
+
+    @Test
+    void queryTransactions_TimeRangeAndAttributeFilters() {
+        List<Transaction> transactions = createTransactions();
+        // 第 i 对交易：状态 i % 3，偶数号币种 USD，金额 i * 100
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            transaction.setStatus(i % 3);
+            transaction.setCurrency(i % 2 == 0 ? "USD" : "CNY");
+            transaction.setAmount(i * 100L);
+            transactionService.updateTransaction(transaction);
+        }
+        transactionService.reclaimVersions();
+
+        TransactionQuery query = new TransactionQuery();
+        query.setStartTime(2000L);
+        query.setEndTime(8000L);
+        query.setStatus(1);
+        query.setCurrency("USD");
+        query.setMinAmount(500L);
+        List<Transaction> expected = transactions.stream()
+                .filter(tx -> tx.getCreateTime().getTime() >= 2000 && tx.getCreateTime().getTime() < 8000)
+                .filter(tx -> tx.getStatus() == 1 && "USD".equals(tx.getCurrency()) && tx.getAmount() >= 500)
+                .toList();
+        assertFalse(expected.isEmpty());
+
+        List<Transaction> actual = new ArrayList<>();
+        Cursor cursor = null;
+        do {
+            CursorPageResult<Transaction> page = transactionService.queryTransactions(query, cursor, 1);
+            actual.addAll(page.getItems());
+            cursor = page.isHasNext() ? transactionService.decodeCursor(page.getNextCursor()) : null;
+        } while (cursor != null);
+        assertEquals(expected, actual);
+
+        // 指定账户时由账户索引驱动，同样按条件过滤
+        query.setAccountId(expected.getFirst().getFromAccountId());
+        assertEquals(expected, transactionService.queryTransactions(query, null, 100).getItems());
+        query.setAccountId(-1L);
+        assertTrue(transactionService.queryTransactions(query, null, 100).getItems().isEmpty());
+        query.setAccountId(null);
+
+        // 未出现过的币种、空的时间范围直接返回空页，非法范围报参数错误
+        query.setCurrency("JPY");
+        assertTrue(transactionService.queryTransactions(query, null, 10).getItems().isEmpty());
+        query.setCurrency(null);
+        query.setStartTime(8000L);
+        assertTrue(transactionService.queryTransactions(query, null, 10).getItems().isEmpty());
+        query.setStartTime(9000L);
+        assertThrows(TransactionException.class, () -> transactionService.queryTransactions(query, null, 10));
+    }
+
+    @Test
+    void queryTransactions_AttributeIndexFollowsUpdates() throws Exception {
+        AtomicLong now = new AtomicLong(1_000_000);
+        resetPrivateField("versions", new VersionManager(1000, now::get));
+        List<Transaction> transactions = createTransactions();
+        Transaction changed = transactions.get(3);
+        changed.setStatus(9);
+        transactionService.updateTransaction(changed);
+
+        TransactionQuery query = new TransactionQuery();
+        query.setStatus(9);
+        assertEquals(List.of(changed), transactionService.queryTransactions(query, null, 10).getItems());
+        query.setStatus(TransactionUtils.createTransaction().getStatus());
+        assertFalse(transactionService.queryTransactions(query, null, 100).getItems().contains(changed));
+        // 发出了下一页游标的查询保留读版本租约；只有一页的查询读完即释放，不拖住回收
+        assertTrue(transactionService.queryTransactions(query, null, 1).isHasNext());
+
+        // 读版本租约过期后，旧状态的索引项和已删除交易的索引项被回收
+        transactionService.deleteTransaction(changed.getTransactionNo());
+        transactionService.reclaimVersions();
+        assertEquals(transactions.size(), transactionService.statusIndexSize());
+        now.addAndGet(2000);
+        transactionService.reclaimVersions();
+        assertEquals(transactions.size() - 1, transactionService.statusIndexSize());
+        assertEquals(transactions.size() - 1, transactionService.currencyIndexSize());
+    }
+
+    @Test
+    void queryLatestTransactions_NoReadVersionOrLease() throws Exception {
+        VersionManager versions = new VersionManager(60_000);
+        resetPrivateField("versions", versions);
+        List<Transaction> transactions = createTransactions();
+        TransactionQuery query = new TransactionQuery();
+        query.setStatus(TransactionUtils.createTransaction().getStatus());
+
+        // 集群分散查询的每一页都读取当前版本，发出下一页游标也不保留租约
+        CursorPageResult<Transaction> page = transactionService.queryLatestTransactions(query, null, 1);
+        assertTrue(page.isHasNext());
+        assertEquals(0, page.getReadVersion());
+        assertEquals(0, versions.pinCount());
+
+        // 后续页看到翻页期间的更新，旧版本不被租约拖住
+        Transaction changed = transactions.get(1);
+        changed.setRemark("changed");
+        transactionService.updateTransaction(changed);
+        page = transactionService.queryLatestTransactions(query, transactionService.decodeCursor(page.getNextCursor()), 1);
+        assertEquals(List.of(changed), page.getItems());
+        transactionService.reclaimVersions();
+        assertEquals(0, versions.chainCount());
+        assertEquals(0, versions.pinCount());
+    }
+
+    @Test
+    void aggregates_FollowCreateUpdateAndDelete() throws Exception {
+        TransactionAggregates aggregates = new TransactionAggregates(ZoneOffset.UTC);
+        resetPrivateField("aggregates", aggregates);
+        List<Transaction> transactions = createTransactions();
+        // 账户 1 -> 2，每笔 1000 CNY
+        assertEquals(-1000L * transactions.size(), aggregates.accountFlows(1, "CNY").getFirst().getNet());
+
+        Transaction changed = transactions.get(0);
+        changed.setAmount(10L);
+        changed.setToAccountId(3L);
+        transactionService.updateTransaction(changed);
+        transactionService.deleteTransaction(transactions.get(1).getTransactionNo());
+
+        int remaining = transactions.size() - 1;
+        assertEquals(-1000L * (remaining - 1) - 10, aggregates.accountFlows(1, "CNY").getFirst().getNet());
+        assertEquals(1000L * (remaining - 1), aggregates.accountFlows(2, "CNY").getFirst().getInflow());
+        assertEquals(10, aggregates.accountFlows(3, "CNY").getFirst().getInflow());
+        assertEquals(remaining, aggregates.currencyTotals().getFirst().getCount());
+    }
+
+    @Test
+    void changeLog_PublishesCreateUpdateAndDeleteInOrder() {
+        long start = changeLog.latestSequence();
+        List<Transaction> transactions = createTransactions();
+        Transaction changed = transactions.get(0);
+        changed.setAmount(10L);
+        transactionService.updateTransaction(changed);
+        transactionService.deleteTransaction(transactions.get(1).getTransactionNo());
+
+        ChangeBatch batch = changeLog.read(start, 100);
+        assertEquals(transactions.size() + 2, batch.getEvents().size());
+        assertEquals(changeLog.latestSequence(), batch.getLastSequence());
+        assertEquals(ChangeType.CREATE, batch.getEvents().getFirst().getType());
+        assertNull(batch.getEvents().getFirst().getBefore());
+
+        ChangeEvent update = batch.getEvents().get(transactions.size());
+        assertEquals(ChangeType.UPDATE, update.getType());
+        assertEquals(changed.getTransactionNo(), update.getTransactionNo());
+        assertEquals(1000L, update.getBefore().getAmount());
+        assertEquals(10L, update.getAfter().getAmount());
+
+        ChangeEvent delete = batch.getEvents().getLast();
+        assertEquals(ChangeType.DELETE, delete.getType());
+        assertEquals(transactions.get(1).getTransactionNo(), delete.getBefore().getTransactionNo());
+        assertNull(delete.getAfter());
+
+        // 续读：只返回之后的变更
+        ChangeBatch tail = changeLog.read(update.getSequence(), 100);
+        assertEquals(List.of(delete), tail.getEvents());
+    }
+
+    @Test
+    void applyReplicated_UpsertsAndDeletesIdempotently() {
+        Transaction created = TransactionUtils.createTransaction();
+        created.setTransactionNo("2001");
+        Transaction updated = TransactionUtils.createTransaction();
+        updated.setTransactionNo("2001");
+        updated.setAmount(10L);
+        List<ChangeEvent> events = List.of(
+                new ChangeEvent(1, ChangeType.CREATE, "2001", "SN1", null, created),
+                new ChangeEvent(2, ChangeType.UPDATE, "2001", null, created, updated),
+                new ChangeEvent(3, ChangeType.DELETE, "2002", null, created, null));
+
+        transactionService.applyReplicated(events);
+        // 全量同步后重放同一段变更，结果不变
+        transactionService.applyReplicated(events);
+
+        assertEquals(10L, stored("2001").getAmount());
+        assertNotNull(indexed(updated.getCreateTime(), "2001"));
+        assertEquals(1, transactionStore.size());
+        verify(idRepo, times(2)).restore("SN1", "2001");
+    }
+
+    @Test
+    void follower_RejectsWrites() throws Exception {
+        resetPrivateField("replication", new ReplicationState("follower", "http://127.0.0.1:8080"));
+        Transaction transaction = TransactionUtils.createTransaction();
+
+        TransactionException exception = assertThrows(TransactionException.class,
+                () -> transactionService.createTransactionIfAbsent("SN1", transaction));
+        assertEquals(ErrorEnum.READ_ONLY_REPLICA_EXCEPTION.getCode(), exception.getCode());
+        assertThrows(TransactionException.class, () -> transactionService.deleteTransaction("2001"));
+        verifyNoInteractions(idRepo);
+    }
+
     private List<Transaction> createTransactions() {
         List<Transaction> transactions = new ArrayList<>();
         for (int i = 0; i < 10; i++) {
@@ -443,21 +798,96 @@ class TransactionServiceImplTest {
         return transactions;
     }
 
+    @Test
+    void createTransaction_AppendsWalBeforeReturn() {
+        String serialNumber = "SN123";
+        Transaction tx = TransactionUtils.createTransaction();
+        when(idRepo.createTransactionNo(serialNumber)).thenReturn("TX1001");
+
+        transactionService.createTransaction(serialNumber, tx);
+        transactionService.updateTransaction(tx);
+        transactionService.deleteTransaction("TX1001");
+
+        InOrder inOrder = inOrder(writeAheadLog);
+        inOrder.verify(writeAheadLog).append(WalRecord.create(serialNumber, TransactionRecord.of(tx)));
+        inOrder.verify(writeAheadLog).append(WalRecord.update(TransactionRecord.of(tx)));
+        inOrder.verify(writeAheadLog).append(WalRecord.delete("TX1001"));
+        verify(writeAheadLog, times(3)).awaitDurable(any());
+    }
+
+    @Test
+    void recover_RebuildsMapIndexAndSerialMapping() {
+        Transaction created = TransactionUtils.createTransaction();
+        created.setTransactionNo("1001");
+        Transaction updated = TransactionUtils.createTransaction();
+        updated.setTransactionNo("1001");
+        updated.setCreateTime(new Date(1));
+        Transaction deleted = TransactionUtils.createTransaction();
+        deleted.setTransactionNo("1002");
+        when(writeAheadLog.recover(anyLong(), any())).thenAnswer(invocation -> {
+            Consumer<WalRecord> consumer = invocation.getArgument(1);
+            consumer.accept(WalRecord.create("SN1", TransactionRecord.of(created)));
+            consumer.accept(WalRecord.create("SN2", TransactionRecord.of(deleted)));
+            consumer.accept(WalRecord.update(TransactionRecord.of(updated)));
+            consumer.accept(WalRecord.delete("1002"));
+            return 4L;
+        });
+
+        transactionService.recover();
+
+        assertEquals(updated, stored("1001"));
+        assertNull(stored("1002"));
+        assertEquals(1, timeIndex.size());
+        assertEquals(updated, indexed(updated.getCreateTime(), "1001"));
+        verify(idRepo).restore("SN1", "1001");
+        verify(idRepo).restore("SN2", "1002");
+    }
+
+    @Test
+    void recover_LoadsSnapshotThenReplaysTail() {
+        Transaction snapshotTx = TransactionUtils.createTransaction();
+        snapshotTx.setTransactionNo("1001");
+        Transaction tailTx = TransactionUtils.createTransaction();
+        tailTx.setTransactionNo("1002");
+        when(snapshotStore.load(any(), any(), any())).thenAnswer(invocation -> {
+            Consumer<TransactionRecord> consumer = invocation.getArgument(0);
+            consumer.accept(TransactionRecord.of(snapshotTx));
+            return 7L;
+        });
+        when(writeAheadLog.recover(eq(7L), any())).thenAnswer(invocation -> {
+            Consumer<WalRecord> consumer = invocation.getArgument(1);
+            consumer.accept(WalRecord.create("SN2", TransactionRecord.of(tailTx)));
+            return 1L;
+        });
+
+        transactionService.recover();
+
+        assertEquals(snapshotTx, stored("1001"));
+        assertEquals(tailTx, stored("1002"));
+        assertEquals(2, timeIndex.size());
+    }
+
     @Test
     void existBySerialNo() {
         String txNo = "TX123";
         String serialNumber = "S123";
-        when(idRepo.createTransactionNo(serialNumber)).thenReturn(txNo);
-        transactionConcurrentHashMap.put(txNo, TransactionUtils.createTransaction());
+        when(idRepo.findTransactionNo(serialNumber)).thenReturn(txNo);
+        Transaction tx = TransactionUtils.createTransaction();
+        tx.setTransactionNo(txNo);
+        transactionStore.put(TransactionRecord.of(tx));
         assertTrue(transactionService.existBySerialNo(serialNumber));
-        verify(idRepo).createTransactionNo(serialNumber);
+        // 未登记的流水号只查询，不会分配交易号
+        assertFalse(transactionService.existBySerialNo("S404"));
+        verify(idRepo, never()).createTransactionNo(anyString());
         assertFalse(transactionService.existBySerialNo(""));
     }
 
     @Test
     void existByTransactionNo() {
         String txNo = "TX123";
-        transactionConcurrentHashMap.put(txNo, TransactionUtils.createTransaction());
+        Transaction tx = TransactionUtils.createTransaction();
+        tx.setTransactionNo(txNo);
+        transactionStore.put(TransactionRecord.of(tx));
         assertTrue(transactionService.existByTransactionNo(txNo));
         assertFalse(transactionService.existByTransactionNo("TX1234"));
         assertFalse(transactionService.existByTransactionNo(""));
@@ -488,9 +918,10 @@ class TransactionServiceImplTest {
         // 调用方法
         String encoded = transactionService.encodeCursor(transaction);
 
-        // 验证Base64 URL编码是否正确
-        byte[] decodedBytes = Base64.getUrlDecoder().decode(encoded);
-        String decodedString = new String(decodedBytes);
-        assertEquals(String.format("%d,%s", transaction.getCreateTime().getTime(), transaction.getTransactionNo()), decodedString);
+        // 二进制游标，解码后还原 (createTime, transactionNo)
+        assertEquals('A', encoded.charAt(0));
+        Cursor cursor = transactionService.decodeCursor(encoded);
+        assertEquals(transaction.getCreateTime().getTime(), cursor.getDate());
+        assertEquals(transaction.getTransactionNo(), cursor.getTransactionNo());
     }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.zhangboyu.transaction.service;
+
+import com.zhangboyu.transaction.store.TransactionRecord;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionManagerTest {
+
+    @Test
+    void commit_WatermarkSkipsOnlyContiguousVersions() {
+        VersionManager versions = new VersionManager(60_000);
+        long initial = versions.visibleVersion();
+        long first = versions.begin();
+        long second = versions.begin();
+
+        // 后领取的版本先提交，水位不能越过未提交的版本
+        versions.commit(second);
+        assertEquals(initial, versions.visibleVersion());
+        versions.commit(first);
+        assertEquals(second, versions.visibleVersion());
+    }
+
+    @Test
+    void resolve_ReturnsVersionVisibleAtReadVersion() {
+        VersionManager versions = new VersionManager(60_000);
+        TransactionRecord original = TransactionRecord.of(TransactionUtils.createTransaction());
+        long beforeCreate = versions.pin(0);
+
+        long create = versions.begin();
+        versions.supersede(original.transactionNo(), create, null, false);
+        versions.commit(create);
+        long afterCreate = versions.pin(0);
+
+        TransactionRecord updated = TransactionRecord.of(TransactionUtils.createTransaction());
+        long update = versions.begin();
+        versions.supersede(original.transactionNo(), update, original, false);
+        versions.commit(update);
+
+        assertNull(versions.resolve(original.transactionNo(), beforeCreate, updated));
+        assertEquals(original, versions.resolve(original.transactionNo(), afterCreate, updated));
+        assertEquals(updated, versions.resolve(original.transactionNo(), versions.visibleVersion(), updated));
+    }
+
+    @Test
+    void reclaim_KeepsVersionsNeededByLivePins() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        VersionManager versions = new VersionManager(1000, now::get);
+        TransactionRecord original = TransactionRecord.of(TransactionUtils.createTransaction());
+        long pinned = versions.pin(0);
+        // 发出了下一页游标，保留租约
+        versions.unpin(pinned, true);
+
+        long delete = versions.begin();
+        versions.supersede(original.transactionNo(), delete, original, true);
+        versions.commit(delete);
+
+        List<VersionManager.Retired> retired = new ArrayList<>();
+        versions.reclaim(retired::add);
+        assertTrue(retired.isEmpty());
+        assertEquals(original, versions.resolve(original.transactionNo(), pinned, null));
+
+        // 续期后仍然有效
+        now.addAndGet(800);
+        assertEquals(pinned, versions.pin(pinned));
+        versions.unpin(pinned, true);
+        now.addAndGet(800);
+        versions.reclaim(retired::add);
+        assertTrue(retired.isEmpty());
+
+        // 租约过期后回收，已回收的读版本不能再使用
+        now.addAndGet(1000);
+        versions.reclaim(retired::add);
+        assertEquals(List.of(new VersionManager.Retired(original.transactionNo(), delete, original)), retired);
+        assertEquals(0, versions.chainCount());
+        assertEquals(versions.visibleVersion(), versions.pin(pinned));
+    }
+
+    @Test
+    void reclaim_ReadersWithoutNextCursorDoNotHoldVersions() {
+        VersionManager versions = new VersionManager(60_000);
+        TransactionRecord original = TransactionRecord.of(TransactionUtils.createTransaction());
+        long reading = versions.pin(0);
+
+        long delete = versions.begin();
+        versions.supersede(original.transactionNo(), delete, original, true);
+        versions.commit(delete);
+
+        // 读取中的版本不回收
+        List<VersionManager.Retired> retired = new ArrayList<>();
+        versions.reclaim(retired::add);
+        assertTrue(retired.isEmpty());
+        assertEquals(original, versions.resolve(original.transactionNo(), reading, null));
+
+        // 最后一页读完，不等租约过期即可回收
+        versions.unpin(reading, false);
+        assertEquals(0, versions.pinCount());
+        versions.reclaim(retired::add);
+        assertEquals(1, retired.size());
+        assertEquals(0, versions.chainCount());
+    }
+}
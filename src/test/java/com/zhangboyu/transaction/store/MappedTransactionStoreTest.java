@@ -0,0 +1,152 @@
+package com.zhangboyu.transaction.store;
+
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTransactionStoreTest {
+    @TempDir
+    Path dir;
+
+    private static TransactionRecord record(String transactionNo) {
+        Transaction tx = TransactionUtils.createTransaction();
+        tx.setTransactionNo(transactionNo);
+        return TransactionRecord.of(tx);
+    }
+
+    @Test
+    void putGetUpdateRemove() {
+        MappedTransactionStore store = new MappedTransactionStore(dir.toString());
+        TransactionRecord record = record("TX1");
+        store.put(record);
+        assertEquals(record, store.get("TX1"));
+        assertTrue(store.contains("TX1"));
+        assertNull(store.get("TX2"));
+
+        Transaction tx = record.toTransaction();
+        tx.setRemark(null);
+        tx.setAmount(42L);
+        tx.setToAccountId(null);
+        TransactionRecord updated = TransactionRecord.of(tx);
+        store.put(updated);
+        assertEquals(updated, store.get("TX1"));
+        assertEquals(1, store.size());
+
+        assertEquals(updated, store.remove("TX1"));
+        assertNull(store.get("TX1"));
+        assertNull(store.remove("TX1"));
+        assertEquals(0, store.size());
+        store.close();
+    }
+
+    @Test
+    void reopen_KeepsLiveRecordsAndReusesFreeSlots() {
+        MappedTransactionStore store = new MappedTransactionStore(dir.toString());
+        List<TransactionRecord> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            TransactionRecord record = record("TX" + i);
+            records.add(record);
+            store.put(record);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            store.remove("TX" + i);
+        }
+        store.close();
+
+        MappedTransactionStore reopened = new MappedTransactionStore(dir.toString());
+        assertEquals(50, reopened.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2 == 0 ? null : records.get(i), reopened.get("TX" + i));
+        }
+        Set<String> iterated = new HashSet<>();
+        reopened.records().forEach(r -> iterated.add(r.transactionNo()));
+        assertEquals(50, iterated.size());
+
+        // 新记录优先复用已删除的槽位
+        reopened.put(record("TX-new"));
+        assertEquals(record("TX-new").transactionNo(), reopened.get("TX-new").transactionNo());
+        assertEquals(51, reopened.size());
+        reopened.clear();
+        assertEquals(0, reopened.size());
+        assertNull(reopened.get("TX1"));
+        reopened.close();
+
+        MappedTransactionStore cleared = new MappedTransactionStore(dir.toString());
+        assertEquals(0, cleared.size());
+        cleared.close();
+    }
+
+    @Test
+    void concurrentWritersOnDistinctKeys() throws Exception {
+        MappedTransactionStore store = new MappedTransactionStore(dir.toString());
+        int threadCount = 8;
+        int perThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int base = t * perThread;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    store.put(record(String.valueOf(base + i)));
+                    if (i % 3 == 0) {
+                        store.remove(String.valueOf(base + i));
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        int expected = 0;
+        for (int i = 0; i < threadCount * perThread; i++) {
+            boolean removed = (i % perThread) % 3 == 0;
+            assertEquals(!removed, store.contains(String.valueOf(i)), "key " + i);
+            expected += removed ? 0 : 1;
+        }
+        assertEquals(expected, store.size());
+        store.close();
+    }
+
+    @Test
+    void readersNeverSeeTornRecord() throws Exception {
+        MappedTransactionStore store = new MappedTransactionStore(dir.toString());
+        Transaction tx = TransactionUtils.createTransaction();
+        tx.setTransactionNo("TX1");
+        tx.setAmount(-1L);
+        tx.setUpdater(-1L);
+        store.put(TransactionRecord.of(tx));
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> reader = executor.submit(() -> {
+            while (running.get()) {
+                TransactionRecord record = store.get("TX1");
+                // 写线程总是同时修改金额和更新人，读到的两个字段必须一致
+                assertEquals(record.amount(), record.updater());
+            }
+        });
+        Future<?> writer = executor.submit(() -> {
+            for (long i = 0; i < 100_000; i++) {
+                tx.setAmount(i);
+                tx.setUpdater(i);
+                store.put(TransactionRecord.of(tx));
+            }
+            running.set(false);
+        });
+        writer.get(60, TimeUnit.SECONDS);
+        reader.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+        store.close();
+    }
+}
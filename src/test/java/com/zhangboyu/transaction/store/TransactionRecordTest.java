@@ -0,0 +1,42 @@
+package com.zhangboyu.transaction.store;
+
+import com.zhangboyu.transaction.entity.Transaction;
+import com.zhangboyu.transaction.utils.TransactionUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionRecordTest {
+
+    @Test
+    void of_ToTransaction_RoundTrip() {
+        Transaction tx = TransactionUtils.createTransaction();
+        TransactionRecord record = TransactionRecord.of(tx);
+        assertEquals(tx, record.toTransaction());
+        assertEquals(tx.getCreateTime().getTime(), record.createTime());
+        assertEquals("CNY", record.currency());
+    }
+
+    @Test
+    void of_NullFieldsStayNull() {
+        Transaction tx = new Transaction();
+        tx.setTransactionNo("TX1");
+        tx.setAmount(0L);
+        TransactionRecord record = TransactionRecord.of(tx);
+        assertTrue(record.isNull(TransactionRecord.NULL_FROM));
+        assertFalse(record.isNull(TransactionRecord.NULL_AMOUNT));
+        assertEquals(tx, record.toTransaction());
+    }
+
+    @Test
+    void of_SameCurrencySharesCode() {
+        Transaction a = TransactionUtils.createTransaction();
+        a.setCurrency(new String("USD"));
+        Transaction b = TransactionUtils.createTransaction();
+        b.setCurrency(new String("USD"));
+        TransactionRecord ra = TransactionRecord.of(a);
+        TransactionRecord rb = TransactionRecord.of(b);
+        assertEquals(ra.currencyCode(), rb.currencyCode());
+        assertSame(ra.currency(), rb.currency());
+    }
+}